@@ -24,7 +24,15 @@ import java.util.List;
  */
 public class CsvReader
 {
-	private BufferedReader buffer;
+	private Reader reader;
+
+	private char buffer[] = new char[65536];
+
+	private int pos = 0;
+
+	private int limit = 0;
+
+	private boolean eof = false;
 
 	private boolean hasNext = true;
 
@@ -36,6 +44,24 @@ public class CsvReader
 
 	private boolean linesSkiped;
 
+	/** Reusable buffer of the current row fields */
+	private String fields[] = new String[16];
+
+	private int count = 0;
+
+	/** Reusable buffer for the fields that couldn't be taken directly from the characters buffer */
+	private StringBuilder builder = new StringBuilder();
+
+	private boolean building = false;
+
+	/** Cache of short field values, used when the fields interning is enabled */
+	private String cache[] = null;
+
+	/**
+	 * The maximum length of a field that is cached when the fields interning is enabled.
+	 */
+	public static final int INTERN_FIELD_LENGTH = 64;
+
 	/**
 	 * The default separator to use if none is supplied to the constructor.
 	 */
@@ -118,8 +144,8 @@ public class CsvReader
 	 */
 	public CsvReader(Reader reader, char separator, char quotechar, int line)
 	{
-		this.buffer = new BufferedReader(reader);
-		
+		this.reader = reader;
+
 		this.separator = separator;
 		this.quotechar = quotechar;
 		this.skipLines = line;
@@ -146,99 +172,276 @@ public class CsvReader
 	}
 
 	/**
-	 * Reads the next line from the buffer and converts to a string array.
+	 * Enable or disable the fields interning. When it is enabled, the short field values that are repeated
+	 * in consecutive rows (i.e. codes, statuses, categories) are delivered through the same <code>String</code>
+	 * instance, without creating a new string for each occurrence.
 	 *
-	 * @return a string array with each comma-separated element as a separate
-	 *         entry.
-	 * @throws IOException if bad things happen during the read
+	 * @param intern true to enable fields interning
 	 */
-	public String[] readNext() throws IOException
+	public void setInternFields(boolean intern)
 	{
-		String nextLine = getNextLine();
-		return hasNext ? parseLine(nextLine) : null;
+		cache = intern ? new String[4096] : null;
 	}
 
 	/**
-	 * Reads the next line from the file.
+	 * Reads the next row from the buffer and converts to a string array. The characters are parsed directly from
+	 * a reusable buffer according to RFC-4180: the fields starting with the quote character could contain separators,
+	 * line breaks and escaped (doubled) quote characters.
 	 *
-	 * @return the next line from the file without trailing newline
+	 * @return a string array with each comma-separated element as a separate
+	 *         entry.
 	 * @throws IOException if bad things happen during the read
 	 */
-	private String getNextLine() throws IOException
+	public String[] readNext() throws IOException
 	{
 		if (!this.linesSkiped)
 		{
 			for (int i = 0; i < skipLines; i++)
 			{
-				buffer.readLine();
+				skipLine();
 			}
 
 			this.linesSkiped = true;
 		}
 
-		String nextLine = buffer.readLine();
-		if (nextLine == null) hasNext = false;
+		if (!ensure())
+		{
+			hasNext = false;
+			return null;
+		}
+
+		count = 0;
 
-		return hasNext ? nextLine : null;
+		while (true)
+		{
+			addField(readField());
+
+			if (!ensure()) break;
+
+			char c = buffer[pos];
+
+			if (c == separator) pos++;
+			else
+			{
+				// line end: \r, \n or \r\n
+				pos++;
+				if (c == '\r' && ensure() && buffer[pos] == '\n') pos++;
+
+				break;
+			}
+		}
+
+		String row[] = new String[count];
+		System.arraycopy(fields, 0, row, 0, count);
+
+		return row;
 	}
 
 	/**
-	 * Parses an incoming String and returns an array of elements.
+	 * Read the next field, up to the separator, the line end or the end of the file.
 	 *
-	 * @param nextLine the string to parse
-	 * @return the comma-tokenized list of elements, or null if nextLine is null
+	 * @return field value
 	 * @throws IOException if bad things happen during the read
 	 */
-	private String[] parseLine(String nextLine) throws IOException
+	private String readField() throws IOException
 	{
-		if (nextLine == null) return null;
+		builder.setLength(0);
+		building = false;
+
+		if (!ensure()) return "";
+		if (buffer[pos] == quotechar)
+		{
+			pos++;
 
-		List tokensOnThisLine = new ArrayList();
-		StringBuffer sb = new StringBuffer();
-		boolean inQuotes = false;
+			// quoted value without escaped quotes, found entirely in the buffer
+			int end = pos;
+			while (end < limit && buffer[end] != quotechar) end++;
 
-		do
+			if (end + 1 < limit && (buffer[end + 1] == separator || buffer[end + 1] == '\n' || buffer[end + 1] == '\r'))
+			{
+				int start = pos;
+				pos = end + 1;
+
+				return intern(start, end);
+			}
+
+			readQuoted();
+		}
+
+		int start = pos;
+
+		while (true)
 		{
-			if (inQuotes)
+			if (pos >= limit)
 			{
-				// continuing a quoted section, reappend newline
-				sb.append("\n");
-				nextLine = getNextLine();
+				append(start, pos);
+
+				boolean more = fill();
+				start = pos;
 
-				if (nextLine == null) break;
+				if (!more) break;
 			}
-			for (int i = 0; i < nextLine.length(); i++)
+
+			char c = buffer[pos];
+			if (c == separator || c == '\n' || c == '\r') break;
+
+			pos++;
+		}
+
+		if (building)
+		{
+			builder.append(buffer, start, pos - start);
+			return intern(builder.toString());
+		}
+		else return intern(start, pos);
+	}
+
+	/**
+	 * Read a quoted section of a field, up to the closing quote character.
+	 *
+	 * @throws IOException if bad things happen during the read
+	 */
+	private void readQuoted() throws IOException
+	{
+		building = true;
+		int start = pos;
+
+		while (true)
+		{
+			if (pos >= limit)
 			{
-				char c = nextLine.charAt(i);
-				if (c == quotechar)
-				{
-					// this gets complex... the quote may end a quoted block, or escape another quote.
-					if (inQuotes && nextLine.length() > (i + 1) && nextLine.charAt(i + 1) == quotechar)
-					{
-						sb.append(nextLine.charAt(i + 1));
-						i++;
-					}
-					else
-					{
-						inQuotes = !inQuotes;
-
-						// the tricky case of an embedded quote in the middle: a,bc"d"ef,g
-						if (i > 2 && nextLine.charAt(i - 1) != this.separator && nextLine.length() > (i + 1) && nextLine.charAt(i + 1) != this.separator) sb.append(c);
-					}
-				}
-				else if (c == separator && !inQuotes)
+				builder.append(buffer, start, pos - start);
+
+				if (!fill()) return;
+				start = pos;
+			}
+
+			if (buffer[pos] == quotechar)
+			{
+				builder.append(buffer, start, pos - start);
+				pos++;
+
+				// doubled quote character means an escaped quote character
+				if (ensure() && buffer[pos] == quotechar)
 				{
-					tokensOnThisLine.add(sb.toString());
-					sb = new StringBuffer(); // start work on next token
+					builder.append(quotechar);
+					pos++;
+					start = pos;
 				}
-				else sb.append(c);
+				else return;
 			}
+			else pos++;
 		}
-		while (inQuotes);
+	}
+
+	/**
+	 * Skip the next line from the file, without parsing it.
+	 *
+	 * @throws IOException if bad things happen during the read
+	 */
+	private void skipLine() throws IOException
+	{
+		while (ensure())
+		{
+			char c = buffer[pos++];
 
-		tokensOnThisLine.add(sb.toString());
+			if (c == '\n') return;
+			else if (c == '\r')
+			{
+				if (ensure() && buffer[pos] == '\n') pos++;
+				return;
+			}
+		}
+	}
+
+	private void addField(String value)
+	{
+		if (count == fields.length)
+		{
+			String temp[] = new String[count * 2];
+			System.arraycopy(fields, 0, temp, 0, count);
+			fields = temp;
+		}
+
+		fields[count++] = value;
+	}
+
+	private void append(int start, int end)
+	{
+		builder.append(buffer, start, end - start);
+		building = true;
+	}
+
+	/**
+	 * Get the field value found in the characters buffer between the specified positions. When the interning
+	 * is enabled, the cached value is returned (if exists) without creating a new string.
+	 */
+	private String intern(int start, int end)
+	{
+		int length = end - start;
+
+		if (cache == null || length > INTERN_FIELD_LENGTH) return new String(buffer, start, length);
+
+		int hash = 0;
+		for (int i = start; i < end; i++) hash = 31 * hash + buffer[i];
+
+		int slot = hash & (cache.length - 1);
+		String value = cache[slot];
+
+		if (value != null && value.length() == length)
+		{
+			int i = 0;
+			while (i < length && value.charAt(i) == buffer[start + i]) i++;
+
+			if (i == length) return value;
+		}
+
+		value = new String(buffer, start, length);
+		cache[slot] = value;
+
+		return value;
+	}
+
+	private String intern(String value)
+	{
+		if (cache == null || value.length() > INTERN_FIELD_LENGTH) return value;
+
+		int slot = value.hashCode() & (cache.length - 1);
+
+		if (value.equals(cache[slot])) return cache[slot];
+			else cache[slot] = value;
+
+		return value;
+	}
+
+	private boolean ensure() throws IOException
+	{
+		return pos < limit || fill();
+	}
+
+	private boolean fill() throws IOException
+	{
+		if (eof) return false;
+
+		int length;
+		do
+		{
+			length = reader.read(buffer, 0, buffer.length);
+		}
+		while (length == 0);
+
+		pos = 0;
+
+		if (length < 0)
+		{
+			eof = true;
+			limit = 0;
+
+			return false;
+		}
 
-		return (String[]) tokensOnThisLine.toArray(new String[0]);
+		limit = length;
+		return true;
 	}
 
 	/**
@@ -248,7 +451,7 @@ public class CsvReader
 	 */
 	public void close() throws IOException
 	{
-		buffer.close();
+		reader.close();
 	}
 
 }
@@ -39,6 +39,11 @@ public class CsvWriter
 
 	private String lineEnd;
 
+	/** Reusable buffer of the current line */
+	private char line[] = new char[1024];
+
+	private int length = 0;
+
 	/**
 	 * The character used for escaping quotes.
 	 */
@@ -328,7 +333,8 @@ public class CsvWriter
 	}
 
 	/**
-	 * Writes the next line to the file.
+	 * Writes the next line to the file. The line is composed in a reusable characters buffer and written
+	 * through a single call, without building intermediate strings.
 	 *
 	 * @param nextLine a string array with each comma-separated element as a separate entry.
 	 */
@@ -336,30 +342,52 @@ public class CsvWriter
 	{
 		if (nextLine == null) return;
 
-		StringBuffer sb = new StringBuffer();
+		length = 0;
+
 		for (int i = 0; i < nextLine.length; i++)
 		{
-			if (i != 0) sb.append(separator);
+			if (i != 0) append(separator);
 
 			String nextElement = nextLine[i];
 			if (nextElement == null) continue;
-			if (quotechar != NO_QUOTE_CHARACTER) sb.append(quotechar);
+			if (quotechar != NO_QUOTE_CHARACTER) append(quotechar);
+
+			int size = nextElement.length();
+			ensure(length + size * 2);
 
-			for (int j = 0; j < nextElement.length(); j++)
+			for (int j = 0; j < size; j++)
 			{
 				char nextChar = nextElement.charAt(j);
 
-				if (escapechar != NO_ESCAPE_CHARACTER && nextChar == quotechar) sb.append(escapechar).append(nextChar);
-					else if (escapechar != NO_ESCAPE_CHARACTER && nextChar == escapechar) sb.append(escapechar).append(nextChar);
-						else sb.append(nextChar);
+				if (escapechar != NO_ESCAPE_CHARACTER && (nextChar == quotechar || nextChar == escapechar)) line[length++] = escapechar;
+				line[length++] = nextChar;
 			}
 
-			if (quotechar != NO_QUOTE_CHARACTER) sb.append(quotechar);
+			if (quotechar != NO_QUOTE_CHARACTER) append(quotechar);
+		}
+
+		for (int i = 0; i < lineEnd.length(); i++)
+		{
+			append(lineEnd.charAt(i));
 		}
 
-		sb.append(lineEnd);
-		printer.write(sb.toString());
+		printer.write(line, 0, length);
+	}
+
+	private void append(char c)
+	{
+		ensure(length + 1);
+		line[length++] = c;
+	}
 
+	private void ensure(int capacity)
+	{
+		if (capacity > line.length)
+		{
+			char temp[] = new char[Math.max(capacity, line.length * 2)];
+			System.arraycopy(line, 0, temp, 0, length);
+			line = temp;
+		}
 	}
 
 	/**
@@ -16,6 +16,7 @@ package org.areasy.common.parser.excel;
 import org.areasy.common.parser.excel.read.biff.BiffException;
 import org.areasy.common.parser.excel.read.biff.File;
 import org.areasy.common.parser.excel.read.biff.PasswordException;
+import org.areasy.common.parser.excel.read.biff.SheetRowReader;
 import org.areasy.common.parser.excel.read.biff.WorkbookParser;
 import org.areasy.common.parser.excel.write.WritableWorkbook;
 import org.areasy.common.parser.excel.write.biff.DefaultWritableWorkbook;
@@ -71,6 +72,20 @@ public abstract class Workbook
 	public abstract Sheet getSheet(int index)
 			throws IndexOutOfBoundsException;
 
+	/**
+	 * Gets a streaming reader of the rows of the specified sheet. The cells
+	 * are decoded row by row, while the reader advances, so the sheet is
+	 * never held in memory and the other sheets are not read. Do not read
+	 * any sheet of this workbook while the row reader is opened
+	 *
+	 * @param index the zero based index of the required sheet
+	 * @return the row reader of the sheet
+	 * @throws IndexOutOfBoundsException when index refers to a non-existent
+	 *                                   sheet
+	 */
+	public abstract SheetRowReader getRowReader(int index)
+			throws IndexOutOfBoundsException;
+
 	/**
 	 * Gets the sheet with the specified name from within this workbook.
 	 * As described in the accompanying technical notes, each call
@@ -200,6 +215,14 @@ public abstract class Workbook
 	public static Workbook getWorkbook(java.io.File file, WorkbookSettings ws)
 			throws IOException, BiffException
 	{
+		if (ws.getMemoryMappingEnabled())
+		{
+			Workbook workbook = new WorkbookParser(new File(file, ws), ws);
+			workbook.parse();
+
+			return workbook;
+		}
+
 		FileInputStream fis = new FileInputStream(file);
 
 		// Always close down the input stream, regardless of whether or not the
@@ -84,6 +84,16 @@ public final class WorkbookSettings
 	 */
 	private boolean gcDisabled;
 
+	/**
+	 * Flag to indicate whether the workbook files are memory-mapped when
+	 * they are read. Mapping avoids copying the file in the heap, but keeps
+	 * the file open (and locked on Windows) until the mapped region is garbage
+	 * collected, so the file can't be deleted right after it has been read.
+	 * Deactivated by default, mapping is activated using -Dparser.excel.mmap=true
+	 * on the JVM command line
+	 */
+	private boolean memoryMappingEnabled;
+
 	/**
 	 * Flag to indicate whether the rationalization of cell formats is
 	 * disabled or not.
@@ -262,6 +272,7 @@ public final class WorkbookSettings
 			drawingsDisabled = Boolean.getBoolean("parser.excel.nodrawings");
 			namesDisabled = Boolean.getBoolean("parser.excel.nonames");
 			gcDisabled = Boolean.getBoolean("parser.excel.nogc");
+			memoryMappingEnabled = Boolean.getBoolean("parser.excel.mmap");
 			rationalizationDisabled = Boolean.getBoolean("parser.excel.norat");
 			mergedCellCheckingDisabled = Boolean.getBoolean("parser.excel.nomergedcellchecks");
 			formulaReferenceAdjustDisabled = Boolean.getBoolean("parser.excel.noformulaadjust");
@@ -365,6 +376,16 @@ public final class WorkbookSettings
 		return gcDisabled;
 	}
 
+	/**
+	 * Accessor for the enabling of memory-mapped file reading
+	 *
+	 * @return TRUE if the workbook files are memory-mapped, FALSE otherwise
+	 */
+	public boolean getMemoryMappingEnabled()
+	{
+		return memoryMappingEnabled;
+	}
+
 	/**
 	 * Accessor for the disabling of interpretation of named ranges
 	 *
@@ -579,6 +600,16 @@ public final class WorkbookSettings
 		gcDisabled = disabled;
 	}
 
+	/**
+	 * Sets the memory-mapped file reading enabled
+	 *
+	 * @param enabled TRUE to map the workbook files, FALSE to read them through an input stream
+	 */
+	public void setMemoryMappingEnabled(boolean enabled)
+	{
+		memoryMappingEnabled = enabled;
+	}
+
 	/**
 	 * Sets the ignore blanks flag
 	 *
@@ -13,6 +13,8 @@ package org.areasy.common.parser.excel.read.biff;
  * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
  */
 
+import java.nio.ByteBuffer;
+
 /**
  * Serves up Record objects from a biff file.  This object is used by the
  * demo programs BiffDump and ... only and has no influence whatsoever on
@@ -61,6 +63,17 @@ public class BiffRecordReader
 		return record;
 	}
 
+	/**
+	 * Gets the data of the current record as a view of the biff file,
+	 * without copying it
+	 *
+	 * @return the record data
+	 */
+	public ByteBuffer getBuffer()
+	{
+		return record.getBuffer();
+	}
+
 	/**
 	 * Gets the position of the current record in the biff file
 	 *
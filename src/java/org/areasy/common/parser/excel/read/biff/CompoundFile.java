@@ -16,8 +16,9 @@ package org.areasy.common.parser.excel.read.biff;
 import org.areasy.common.logger.Logger;
 import org.areasy.common.logger.LoggerFactory;
 import org.areasy.common.parser.excel.biff.BaseCompoundFile;
-import org.areasy.common.parser.excel.biff.IntegerHelper;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Iterator;
 
@@ -34,9 +35,9 @@ public final class CompoundFile extends BaseCompoundFile
 
 	/**
 	 * The original OLE stream, organized into blocks, which can
-	 * appear at any physical location in the file
+	 * appear at any physical location in the file (little endian)
 	 */
-	private byte[] data;
+	private ByteBuffer data;
 	/**
 	 * The number of blocks it takes to store the big block depot
 	 */
@@ -91,23 +92,35 @@ public final class CompoundFile extends BaseCompoundFile
 	 * @throws BiffException
 	 */
 	public CompoundFile(byte[] d) throws BiffException
+	{
+		this(ByteBuffer.wrap(d));
+	}
+
+	/**
+	 * Initializes the compound file from a buffer (i.e. a memory-mapped
+	 * file). The blocks are read directly from the buffer
+	 *
+	 * @param d  the raw data of the ole stream
+	 * @throws BiffException
+	 */
+	public CompoundFile(ByteBuffer d) throws BiffException
 	{
 		super();
-		data = d;
+		data = d.duplicate().order(ByteOrder.LITTLE_ENDIAN);
 
 		// First verify the OLE identifier
 		for (int i = 0; i < IDENTIFIER.length; i++)
 		{
-			if (data[i] != IDENTIFIER[i]) throw new BiffException(BiffException.unrecognizedOLEFile);
+			if (data.limit() <= i || data.get(i) != IDENTIFIER[i]) throw new BiffException(BiffException.unrecognizedOLEFile);
 		}
 
 		propertySets = new ArrayList();
 		
-		numBigBlockDepotBlocks = IntegerHelper.getInt (data[NUM_BIG_BLOCK_DEPOT_BLOCKS_POS], data[NUM_BIG_BLOCK_DEPOT_BLOCKS_POS + 1], data[NUM_BIG_BLOCK_DEPOT_BLOCKS_POS + 2], data[NUM_BIG_BLOCK_DEPOT_BLOCKS_POS + 3]);
-		sbdStartBlock = IntegerHelper.getInt (data[SMALL_BLOCK_DEPOT_BLOCK_POS], data[SMALL_BLOCK_DEPOT_BLOCK_POS + 1], data[SMALL_BLOCK_DEPOT_BLOCK_POS + 2], data[SMALL_BLOCK_DEPOT_BLOCK_POS + 3]);
-		rootStartBlock = IntegerHelper.getInt (data[ROOT_START_BLOCK_POS], data[ROOT_START_BLOCK_POS + 1], data[ROOT_START_BLOCK_POS + 2], data[ROOT_START_BLOCK_POS + 3]);
-		extensionBlock = IntegerHelper.getInt(data[EXTENSION_BLOCK_POS], data[EXTENSION_BLOCK_POS + 1],data[EXTENSION_BLOCK_POS + 2], data[EXTENSION_BLOCK_POS + 3]);
-		numExtensionBlocks = IntegerHelper.getInt (data[NUM_EXTENSION_BLOCK_POS], data[NUM_EXTENSION_BLOCK_POS + 1], data[NUM_EXTENSION_BLOCK_POS + 2], data[NUM_EXTENSION_BLOCK_POS + 3]);
+		numBigBlockDepotBlocks = data.getInt(NUM_BIG_BLOCK_DEPOT_BLOCKS_POS);
+		sbdStartBlock = data.getInt(SMALL_BLOCK_DEPOT_BLOCK_POS);
+		rootStartBlock = data.getInt(ROOT_START_BLOCK_POS);
+		extensionBlock = data.getInt(EXTENSION_BLOCK_POS);
+		numExtensionBlocks = data.getInt(NUM_EXTENSION_BLOCK_POS);
 
 		bigBlockDepotBlocks = new int[numBigBlockDepotBlocks];
 
@@ -118,7 +131,7 @@ public final class CompoundFile extends BaseCompoundFile
 
 		for (int i = 0; i < bbdBlocks; i++)
 		{
-			bigBlockDepotBlocks[i] = IntegerHelper.getInt(d[pos], d[pos + 1], d[pos + 2], d[pos + 3]);
+			bigBlockDepotBlocks[i] = data.getInt(pos);
 			pos += 4;
 		}
 
@@ -129,14 +142,14 @@ public final class CompoundFile extends BaseCompoundFile
 
 			for (int i = bbdBlocks; i < bbdBlocks + blocksToRead; i++)
 			{
-				bigBlockDepotBlocks[i] = IntegerHelper.getInt(d[pos], d[pos + 1], d[pos + 2], d[pos + 3]);
+				bigBlockDepotBlocks[i] = data.getInt(pos);
 				pos += 4;
 			}
 
 			bbdBlocks += blocksToRead;
 			if (bbdBlocks < numBigBlockDepotBlocks)
 			{
-				extensionBlock = IntegerHelper.getInt(d[pos], d[pos + 1], d[pos + 2], d[pos + 3]);
+				extensionBlock = data.getInt(pos);
 			}
 		}
 
@@ -162,8 +175,7 @@ public final class CompoundFile extends BaseCompoundFile
 
 			for (int j = 0; j < BIG_BLOCK_SIZE / 4; j++)
 			{
-				bigBlockChain[index] = IntegerHelper.getInt
-						(data[pos], data[pos + 1], data[pos + 2], data[pos + 3]);
+				bigBlockChain[index] = data.getInt(pos);
 				pos += 4;
 				index++;
 			}
@@ -200,7 +212,7 @@ public final class CompoundFile extends BaseCompoundFile
 
 			for (int j = 0; j < BIG_BLOCK_SIZE / 4; j++)
 			{
-				smallBlockChain[index] = IntegerHelper.getInt(data[pos], data[pos + 1], data[pos + 2], data[pos + 3]);
+				smallBlockChain[index] = data.getInt(pos);
 				pos += 4;
 				index++;
 			}
@@ -284,6 +296,40 @@ public final class CompoundFile extends BaseCompoundFile
 		}
 	}
 
+	/**
+	 * Gets the stream from this ole compound file as a little endian buffer.
+	 * When the big blocks of the stream are stored contiguously (the usual
+	 * layout of the workbook stream) the returned buffer is a slice of the
+	 * compound file data, so the stream isn't copied; otherwise the stream
+	 * is defragmented in a new array
+	 *
+	 * @param streamName the stream name to get
+	 * @return the ole stream
+	 * @throws BiffException
+	 */
+	public ByteBuffer getStreamBuffer(String streamName) throws BiffException
+	{
+		PropertyStorage ps = findPropertyStorage(streamName, rootEntryPropertyStorage);
+
+		// Property set can't be found from the direct hierarchy, so just search on the name
+		if (ps == null)
+		{
+			ps = getPropertyStorage(streamName);
+		}
+
+		if (ps.size >= SMALL_BLOCK_THRESHOLD || streamName.equalsIgnoreCase(ROOT_ENTRY_NAME))
+		{
+			ByteBuffer slice = getContiguousStream(ps);
+			if (slice != null) return slice;
+
+			return ByteBuffer.wrap(getBigBlockStream(ps)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		else
+		{
+			return ByteBuffer.wrap(getSmallBlockStream(ps)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
 	/**
 	 * Gets the defragmented stream from this ole compound file.  Used when
 	 * copying workbooks with macros
@@ -405,6 +451,7 @@ public final class CompoundFile extends BaseCompoundFile
 		if (ps.size % BIG_BLOCK_SIZE != 0) numBlocks++;
 
 		byte[] streamData = new byte[numBlocks * BIG_BLOCK_SIZE];
+		ByteBuffer source = data.duplicate();
 
 		int block = ps.startBlock;
 
@@ -414,8 +461,8 @@ public final class CompoundFile extends BaseCompoundFile
 		while (block != -2 && count < numBlocks)
 		{
 			pos = (block + 1) * BIG_BLOCK_SIZE;
-			System.arraycopy(data, pos, streamData,
-					count * BIG_BLOCK_SIZE, BIG_BLOCK_SIZE);
+			source.position(pos);
+			source.get(streamData, count * BIG_BLOCK_SIZE, BIG_BLOCK_SIZE);
 			count++;
 			block = bigBlockChain[block];
 		}
@@ -425,6 +472,38 @@ public final class CompoundFile extends BaseCompoundFile
 		return streamData;
 	}
 
+	/**
+	 * Gets the big block stream as a slice of the compound file data, if
+	 * the blocks of the stream follow each other in the file
+	 *
+	 * @param ps the property storage
+	 * @return the stream slice or null if the stream is fragmented
+	 */
+	private ByteBuffer getContiguousStream(PropertyStorage ps)
+	{
+		int numBlocks = ps.size / BIG_BLOCK_SIZE;
+		if (ps.size % BIG_BLOCK_SIZE != 0) numBlocks++;
+
+		int block = ps.startBlock;
+		if (block < 0 || numBlocks == 0) return null;
+
+		for (int count = 1; count < numBlocks; count++)
+		{
+			if (block >= bigBlockChain.length || bigBlockChain[block] != block + 1) return null;
+			block++;
+		}
+
+		int start = (ps.startBlock + 1) * BIG_BLOCK_SIZE;
+		int end = start + numBlocks * BIG_BLOCK_SIZE;
+		if (end > data.limit()) return null;
+
+		ByteBuffer slice = data.duplicate();
+		slice.limit(end);
+		slice.position(start);
+
+		return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
 	/**
 	 * Build up the resultant stream using the small blocks
 	 *
@@ -435,23 +514,13 @@ public final class CompoundFile extends BaseCompoundFile
 	private byte[] getSmallBlockStream(PropertyStorage ps) throws BiffException
 	{
 		byte[] rootdata = readData(rootEntryPropertyStorage.startBlock);
-		byte[] sbdata = new byte[0];
 
+		// Count the blocks first, so the stream is allocated only once
 		int block = ps.startBlock;
-		int pos = 0;
 
 		int blockCount = 0;
 		for (; blockCount <= smallBlockChain.length && block != -2; blockCount++)
 		{
-			// grow the array
-			byte[] olddata = sbdata;
-			sbdata = new byte[olddata.length + SMALL_BLOCK_SIZE];
-			System.arraycopy(olddata, 0, sbdata, 0, olddata.length);
-
-			// Copy in the new data
-			pos = block * SMALL_BLOCK_SIZE;
-			System.arraycopy(rootdata, pos, sbdata,
-					olddata.length, SMALL_BLOCK_SIZE);
 			block = smallBlockChain[block];
 
 			if (block == -1)
@@ -468,6 +537,15 @@ public final class CompoundFile extends BaseCompoundFile
 			throw new BiffException(BiffException.corruptFileFormat);
 		}
 
+		byte[] sbdata = new byte[blockCount * SMALL_BLOCK_SIZE];
+		block = ps.startBlock;
+
+		for (int i = 0; i < blockCount; i++)
+		{
+			System.arraycopy(rootdata, block * SMALL_BLOCK_SIZE, sbdata, i * SMALL_BLOCK_SIZE, SMALL_BLOCK_SIZE);
+			block = smallBlockChain[block];
+		}
+
 		return sbdata;
 	}
 
@@ -480,21 +558,12 @@ public final class CompoundFile extends BaseCompoundFile
 	 */
 	private byte[] readData(int bl) throws BiffException
 	{
+		// Count the blocks first, so the data is allocated only once
 		int block = bl;
-		int pos = 0;
-		byte[] entry = new byte[0];
 
 		int blockCount = 0;
 		for (; blockCount <= bigBlockChain.length && block != -2; blockCount++)
 		{
-			// Grow the array
-			byte[] oldEntry = entry;
-			entry = new byte[oldEntry.length + BIG_BLOCK_SIZE];
-			System.arraycopy(oldEntry, 0, entry, 0, oldEntry.length);
-			pos = (block + 1) * BIG_BLOCK_SIZE;
-
-			System.arraycopy(data, pos, entry, oldEntry.length, BIG_BLOCK_SIZE);
-
 			if (bigBlockChain[block] == block) throw new BiffException(BiffException.corruptFileFormat);
 
 			block = bigBlockChain[block];
@@ -507,6 +576,17 @@ public final class CompoundFile extends BaseCompoundFile
 			throw new BiffException(BiffException.corruptFileFormat);
 		}
 
+		byte[] entry = new byte[blockCount * BIG_BLOCK_SIZE];
+		ByteBuffer source = data.duplicate();
+		block = bl;
+
+		for (int i = 0; i < blockCount; i++)
+		{
+			source.position((block + 1) * BIG_BLOCK_SIZE);
+			source.get(entry, i * BIG_BLOCK_SIZE, BIG_BLOCK_SIZE);
+			block = bigBlockChain[block];
+		}
+
 		return entry;
 	}
 
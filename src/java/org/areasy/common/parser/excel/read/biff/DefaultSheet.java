@@ -1150,6 +1150,25 @@ public class DefaultSheet implements Sheet
 		}
 	}
 
+	/**
+	 * Gets a streaming reader of the rows of this sheet. The cells are decoded
+	 * row by row, while the reader advances, without reading the whole sheet
+	 *
+	 * @return the row reader
+	 */
+	final SheetRowReader getRowReader()
+	{
+		return new SheetRowReader(excelFile,
+				sharedStrings,
+				formattingRecords,
+				sheetBof,
+				workbookBof,
+				nineteenFour,
+				workbook,
+				startPosition,
+				this);
+	}
+
 	/**
 	 * Used by one of the demo programs for debugging purposes only
 	 */
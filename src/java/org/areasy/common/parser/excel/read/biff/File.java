@@ -17,15 +17,20 @@ import org.areasy.common.logger.Logger;
 import org.areasy.common.logger.LoggerFactory;
 import org.areasy.common.parser.excel.WorkbookSettings;
 import org.areasy.common.parser.excel.biff.BaseCompoundFile;
-import org.areasy.common.parser.excel.biff.IntegerHelper;
 import org.areasy.common.parser.excel.biff.Type;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 /**
- * File containing the data from the binary stream
+ * File containing the data from the binary stream. The workbook stream is
+ * kept in a little endian buffer, which could be a memory-mapped region of
+ * the workbook file, and the records are read directly from that buffer.
  */
 public class File
 {
@@ -37,7 +42,7 @@ public class File
 	/**
 	 * The data from the excel 97 file
 	 */
-	private byte[] data;
+	private ByteBuffer data;
 	/**
 	 * The current position within the file
 	 */
@@ -111,16 +116,68 @@ public class File
 		// Perform file reading checks and throw exceptions as necessary
 		if (bytesRead == 0) throw new BiffException(BiffException.excelFileNotFound);
 
+		readCompoundFile(ByteBuffer.wrap(d));
+	}
+
+	/**
+	 * Constructs a file from a workbook file. The file is memory-mapped,
+	 * so its content isn't copied in the heap and, when the workbook stream
+	 * is stored contiguously, the records are read directly from the
+	 * mapped region. The mapped file stays open (and locked on Windows) until
+	 * the mapped region is garbage collected, so this constructor is used
+	 * only when memory mapping is enabled in the workbook settings
+	 *
+	 * @param f  the workbook file
+	 * @param ws the workbook settings
+	 * @throws IOException
+	 * @throws BiffException
+	 */
+	public File(java.io.File f, WorkbookSettings ws) throws IOException, BiffException
+	{
+		workbookSettings = ws;
+		initialFileSize = workbookSettings.getInitialFileSize();
+		arrayGrowSize = workbookSettings.getArrayGrowSize();
+
+		FileInputStream fis = new FileInputStream(f);
+		ByteBuffer map;
+
+		try
+		{
+			FileChannel channel = fis.getChannel();
+			long size = channel.size();
+
+			if (size == 0) throw new BiffException(BiffException.excelFileNotFound);
+			if (size > Integer.MAX_VALUE) throw new IOException("Workbook file is too large to be mapped: " + f);
+
+			// the mapping stays valid after the channel is closed
+			map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		finally
+		{
+			fis.close();
+		}
+
+		readCompoundFile(map);
+	}
+
+	/**
+	 * Reads the workbook stream from the compound file data
+	 *
+	 * @param d the compound file data
+	 * @throws BiffException
+	 */
+	private void readCompoundFile(ByteBuffer d) throws BiffException
+	{
 		CompoundFile cf = new CompoundFile(d);
 
 		try
 		{
-			data = cf.getStream("workbook");
+			data = cf.getStreamBuffer("workbook");
 		}
 		catch (BiffException e)
 		{
 			// this might be in excel 95 format - try again
-			data = cf.getStream("book");
+			data = cf.getStreamBuffer("book");
 		}
 
 		if (!workbookSettings.getPropertySetsDisabled() && (cf.getNumberOfPropertySets() > BaseCompoundFile.STANDARD_PROPERTY_SETS.length)) compoundFile = cf;
@@ -144,7 +201,7 @@ public class File
 	 */
 	public File(byte[] d)
 	{
-		data = d;
+		data = ByteBuffer.wrap(d).order(ByteOrder.LITTLE_ENDIAN);
 	}
 
 	/**
@@ -194,18 +251,53 @@ public class File
 	public byte[] read(int pos, int length)
 	{
 		byte[] ret = new byte[length];
+		read(pos, ret, 0, length);
 
-		try
+		return ret;
+	}
+
+	/**
+	 * Copies the bytes into an existing array.
+	 *
+	 * @param pos	the position to read from
+	 * @param dest   the destination array
+	 * @param offset the offset in the destination array
+	 * @param length the number of bytes to read
+	 */
+	void read(int pos, byte[] dest, int offset, int length)
+	{
+		if (pos < 0 || length < 0 || pos + length > data.limit())
+		{
+			logger.error("Array index out of bounds at position " + pos + " record length " + length);
+			throw new ArrayIndexOutOfBoundsException(pos + length);
+		}
+
+		if (data.hasArray())
 		{
-			System.arraycopy(data, pos, ret, 0, length);
+			System.arraycopy(data.array(), data.arrayOffset() + pos, dest, offset, length);
 		}
-		catch (ArrayIndexOutOfBoundsException e)
+		else
 		{
-			logger.error("Array index out of bounds at position " + pos + " record length " + length);
-			throw e;
+			ByteBuffer source = data.duplicate();
+			source.position(pos);
+			source.get(dest, offset, length);
 		}
+	}
 
-		return ret;
+	/**
+	 * Gets a little endian view of the bytes, without copying them
+	 *
+	 * @param pos	the position to read from
+	 * @param length the number of bytes to read
+	 * @return the bytes read
+	 */
+	public ByteBuffer slice(int pos, int length)
+	{
+		ByteBuffer slice = data.duplicate();
+		slice.limit(pos + length);
+		slice.position(pos);
+
+		return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
 	}
 
 	/**
@@ -255,7 +347,7 @@ public class File
 
 		while (!bofFound)
 		{
-			int code = IntegerHelper.getInt(data[filePos], data[filePos + 1]);
+			int code = data.getShort(filePos) & 0xffff;
 
 			if (code == Type.BOF.value)
 			{
@@ -293,7 +385,7 @@ public class File
 	public boolean hasNext()
 	{
 		// Allow four bytes for the record code and its length
-		return filePos < data.length - 4;
+		return filePos < data.limit() - 4;
 	}
 
 	/**
@@ -15,9 +15,9 @@ package org.areasy.common.parser.excel.read.biff;
 
 import org.areasy.common.logger.Logger;
 import org.areasy.common.logger.LoggerFactory;
-import org.areasy.common.parser.excel.biff.IntegerHelper;
 import org.areasy.common.parser.excel.biff.Type;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 
@@ -66,12 +66,12 @@ public final class Record
 	 *
 	 * @param offset the offset in the raw file
 	 * @param f	  the excel 97 biff file
-	 * @param d	  the data record
+	 * @param d	  the little endian file data
 	 */
-	Record(byte[] d, int offset, File f)
+	Record(ByteBuffer d, int offset, File f)
 	{
-		code = IntegerHelper.getInt(d[offset], d[offset + 1]);
-		length = IntegerHelper.getInt(d[offset + 2], d[offset + 3]);
+		code = d.getShort(offset) & 0xffff;
+		length = d.getShort(offset + 2) & 0xffff;
 		file = f;
 		file.skip(4);
 		dataPos = f.getPos();
@@ -106,40 +106,50 @@ public final class Record
 	 */
 	public byte[] getData()
 	{
-		if (data == null)
+		if (data != null) return data;
+
+		if (continueRecords == null)
 		{
 			data = file.read(dataPos, length);
 		}
-
-		// copy in any data from the continue records
-		if (continueRecords != null)
+		else
 		{
-			int size = 0;
-			byte[][] contData = new byte[continueRecords.size()][];
+			// copy the data of the continue records straight from the file,
+			// allocating the merged data only once
+			int size = length;
 			for (int i = 0; i < continueRecords.size(); i++)
 			{
-				Record r = (Record) continueRecords.get(i);
-				contData[i] = r.getData();
-				byte[] d2 = contData[i];
-				size += d2.length;
+				size += ((Record) continueRecords.get(i)).length;
 			}
 
-			byte[] d3 = new byte[data.length + size];
-			System.arraycopy(data, 0, d3, 0, data.length);
-			int pos = data.length;
-			for (int i = 0; i < contData.length; i++)
+			data = new byte[size];
+			file.read(dataPos, data, 0, length);
+
+			int pos = length;
+			for (int i = 0; i < continueRecords.size(); i++)
 			{
-				byte[] d2 = contData[i];
-				System.arraycopy(d2, 0, d3, pos, d2.length);
-				pos += d2.length;
+				Record r = (Record) continueRecords.get(i);
+				r.file.read(r.dataPos, data, pos, r.length);
+				pos += r.length;
 			}
 
-			data = d3;
+			continueRecords = null;
 		}
 
 		return data;
 	}
 
+	/**
+	 * Gets the data portion of the record as a little endian view of the
+	 * file data, without copying it.  The continue records are not included
+	 *
+	 * @return the data portion of the record
+	 */
+	public ByteBuffer getBuffer()
+	{
+		return file.slice(dataPos, length);
+	}
+
 	/**
 	 * The excel 97 code
 	 *
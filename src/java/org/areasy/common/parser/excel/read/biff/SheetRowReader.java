@@ -0,0 +1,643 @@
+package org.areasy.common.parser.excel.read.biff;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import org.areasy.common.logger.Logger;
+import org.areasy.common.logger.LoggerFactory;
+import org.areasy.common.parser.excel.Cell;
+import org.areasy.common.parser.excel.CellReferenceHelper;
+import org.areasy.common.parser.excel.CellType;
+import org.areasy.common.parser.excel.WorkbookSettings;
+import org.areasy.common.parser.excel.biff.FormattingRecords;
+import org.areasy.common.parser.excel.biff.Type;
+import org.areasy.common.parser.excel.biff.formula.FormulaException;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.TreeMap;
+
+/**
+ * Streaming reader of the rows of one sheet. Unlike the <code>SheetReader</code>, which builds the cells
+ * matrix of the whole sheet, this reader walks the sheet records on demand and delivers the cells row
+ * by row (row events), in ascending row order. Only the cell records are decoded, the cell contents being
+ * formatted only when they are requested, and the cells of a row are released when the reader advances.
+ * <p>
+ * The cell records of a row block are delivered when the block is closed (DBCELL record), so only a few rows
+ * are held in memory. The shared formulas are delivered through their cached values, without being
+ * expanded from the template formula.
+ * <p>
+ * The reader shares the workbook data with the sheets, so no sheet should be read while it is opened.
+ */
+public final class SheetRowReader
+{
+	/**
+	 * The logger
+	 */
+	private static Logger logger = LoggerFactory.getLog(SheetRowReader.class);
+
+	/**
+	 * The maximum number of rows held in memory when the sheet has no row blocks
+	 */
+	private static final int MAX_PENDING_ROWS = 256;
+
+	/**
+	 * The number of (last) rows which remain pending when the pending rows are
+	 * delivered because the maximum number is exceeded
+	 */
+	private static final int OPEN_ROWS = MAX_PENDING_ROWS / 2;
+
+	/**
+	 * The excel file
+	 */
+	private File excelFile;
+
+	/**
+	 * A handle to the shared string table
+	 */
+	private SSTRecord sharedStrings;
+
+	/**
+	 * A handle to the formatting records
+	 */
+	private FormattingRecords formattingRecords;
+
+	/**
+	 * A handle to the sheet BOF record, which indicates the stream type
+	 */
+	private BOFRecord sheetBof;
+
+	/**
+	 * A handle to the workbook BOF record, which indicates the stream type
+	 */
+	private BOFRecord workbookBof;
+
+	/**
+	 * The 1904 flag
+	 */
+	private boolean nineteenFour;
+
+	/**
+	 * The workbook which this sheet belongs to
+	 */
+	private WorkbookParser workbook;
+
+	/**
+	 * The workbook settings
+	 */
+	private WorkbookSettings workbookSettings;
+
+	/**
+	 * The sheet
+	 */
+	private DefaultSheet sheet;
+
+	/**
+	 * The number of rows, as declared by the dimension record
+	 */
+	private int numRows = -1;
+
+	/**
+	 * The number of columns, as declared by the dimension record
+	 */
+	private int numCols = -1;
+
+	/**
+	 * Indicates that the end of the sheet has been reached
+	 */
+	private boolean finished;
+
+	/**
+	 * Rows of the current row block, indexed by row number
+	 */
+	private TreeMap pending = new TreeMap();
+
+	/**
+	 * Completed rows, waiting to be delivered
+	 */
+	private LinkedList ready = new LinkedList();
+
+	/**
+	 * The numbers of the rows found in the sheet, used to identify the cells
+	 * found after their row has been completed
+	 */
+	private BitSet rows = new BitSet();
+
+	/**
+	 * The current row
+	 */
+	private Row current;
+
+	/**
+	 * Constructor
+	 *
+	 * @param f   the excel file
+	 * @param sst the shared string table
+	 * @param fr  formatting records
+	 * @param sb  the bof record which indicates the start of the sheet
+	 * @param wb  the bof record which indicates the start of the workbook
+	 * @param nf  the 1904 flag
+	 * @param wp  the workbook which this sheet belongs to
+	 * @param sp  the start position of the sheet bof in the excel file
+	 * @param sh  the sheet
+	 */
+	SheetRowReader(File f,
+				   SSTRecord sst,
+				   FormattingRecords fr,
+				   BOFRecord sb,
+				   BOFRecord wb,
+				   boolean nf,
+				   WorkbookParser wp,
+				   int sp,
+				   DefaultSheet sh)
+	{
+		excelFile = f;
+		sharedStrings = sst;
+		formattingRecords = fr;
+		sheetBof = sb;
+		workbookBof = wb;
+		nineteenFour = nf;
+		workbook = wp;
+		workbookSettings = wp.getSettings();
+		sheet = sh;
+
+		// Set the position within the file
+		excelFile.setPos(sp);
+
+		// A chart sheet has no cells
+		finished = !sheetBof.isWorksheet();
+
+		// Read the sheet header, up to the dimension record or to the first cell
+		while (!finished && numRows < 0 && pending.isEmpty())
+		{
+			readRecord();
+		}
+	}
+
+	/**
+	 * Advances to the next row which contains cells
+	 *
+	 * @return TRUE if a row is available, FALSE at the end of the sheet
+	 */
+	public boolean next()
+	{
+		current = null;
+
+		while (ready.isEmpty() && !finished)
+		{
+			readRecord();
+		}
+
+		if (ready.isEmpty())
+		{
+			return false;
+		}
+
+		current = (Row) ready.removeFirst();
+		return true;
+	}
+
+	/**
+	 * Accessor for the number of the current row
+	 *
+	 * @return the zero based index of the current row or -1 if there is no current row
+	 */
+	public int getRow()
+	{
+		return current != null ? current.number : -1;
+	}
+
+	/**
+	 * Accessor for the number of columns of the current row, as given by its last cell
+	 *
+	 * @return the number of columns of the current row
+	 */
+	public int getColumns()
+	{
+		return current != null ? current.length : 0;
+	}
+
+	/**
+	 * Gets the cell of the current row, from the specified column
+	 *
+	 * @param column the zero based column index
+	 * @return the cell or null if the column has no cell
+	 */
+	public Cell getCell(int column)
+	{
+		if (current == null || column < 0 || column >= current.length)
+		{
+			return null;
+		}
+
+		return current.cells[column];
+	}
+
+	/**
+	 * Gets the contents of the current row cells. The columns without cells
+	 * have empty contents
+	 *
+	 * @param columns the minimum number of columns to be returned
+	 * @return the contents of the row cells
+	 */
+	public String[] getContents(int columns)
+	{
+		int length = current != null ? Math.max(columns, current.length) : columns;
+		String[] contents = new String[length];
+
+		for (int i = 0; i < length; i++)
+		{
+			Cell cell = getCell(i);
+			String data = cell != null ? cell.getContents() : null;
+
+			contents[i] = data != null ? data : "";
+		}
+
+		return contents;
+	}
+
+	/**
+	 * Accessor for the number of rows declared by the sheet dimension record
+	 *
+	 * @return the number of rows or -1 if the sheet has no dimension record
+	 */
+	public int getNumberOfRows()
+	{
+		return numRows;
+	}
+
+	/**
+	 * Accessor for the number of columns declared by the sheet dimension record
+	 *
+	 * @return the number of columns or -1 if the sheet has no dimension record
+	 */
+	public int getNumberOfColumns()
+	{
+		return numCols;
+	}
+
+	/**
+	 * Releases the read rows and restores the position of the excel file
+	 */
+	public void close()
+	{
+		pending.clear();
+		ready.clear();
+		rows.clear();
+		current = null;
+
+		if (excelFile != null)
+		{
+			excelFile.restorePos();
+			excelFile = null;
+		}
+
+		finished = true;
+	}
+
+	/**
+	 * Reads and decodes the next record of the sheet
+	 */
+	private void readRecord()
+	{
+		if (!excelFile.hasNext())
+		{
+			endOfSheet();
+			return;
+		}
+
+		Record r = excelFile.next();
+		Type type = r.getType();
+
+		if (type == Type.DIMENSION)
+		{
+			DimensionRecord dr = null;
+
+			if (workbookBof.isBiff8())
+			{
+				dr = new DimensionRecord(r);
+			}
+			else
+			{
+				dr = new DimensionRecord(r, DimensionRecord.biff7);
+			}
+
+			numRows = dr.getNumberOfRows();
+			numCols = dr.getNumberOfColumns();
+		}
+		else if (type == Type.LABELSST)
+		{
+			addCell(new LabelSSTRecord(r, sharedStrings, formattingRecords, sheet));
+		}
+		else if (type == Type.RK || type == Type.RK2)
+		{
+			RKRecord rkr = new RKRecord(r, formattingRecords, sheet);
+
+			if (formattingRecords.isDate(rkr.getXFIndex()))
+			{
+				addCell(new DateRecord(rkr, rkr.getXFIndex(), formattingRecords, nineteenFour, sheet));
+			}
+			else
+			{
+				addCell(rkr);
+			}
+		}
+		else if (type == Type.MULRK)
+		{
+			MulRKRecord mulrk = new MulRKRecord(r);
+
+			// Get the individual cell records from the multiple record
+			int num = mulrk.getNumberOfColumns();
+
+			for (int i = 0; i < num; i++)
+			{
+				int ixf = mulrk.getXFIndex(i);
+
+				NumberValue nv = new NumberValue(mulrk.getRow(),
+						mulrk.getFirstColumn() + i,
+						RKHelper.getDouble(mulrk.getRKNumber(i)),
+						ixf,
+						formattingRecords,
+						sheet);
+
+				if (formattingRecords.isDate(ixf))
+				{
+					addCell(new DateRecord(nv, ixf, formattingRecords, nineteenFour, sheet));
+				}
+				else
+				{
+					nv.setNumberFormat(formattingRecords.getNumberFormat(ixf));
+					addCell(nv);
+				}
+			}
+		}
+		else if (type == Type.NUMBER)
+		{
+			NumberRecord nr = new NumberRecord(r, formattingRecords, sheet);
+
+			if (formattingRecords.isDate(nr.getXFIndex()))
+			{
+				addCell(new DateRecord(nr, nr.getXFIndex(), formattingRecords, nineteenFour, sheet));
+			}
+			else
+			{
+				addCell(nr);
+			}
+		}
+		else if (type == Type.BOOLERR)
+		{
+			BooleanRecord br = new BooleanRecord(r, formattingRecords, sheet);
+
+			if (br.isError())
+			{
+				addCell(new ErrorRecord(br.getRecord(), formattingRecords, sheet));
+			}
+			else
+			{
+				addCell(br);
+			}
+		}
+		else if (type == Type.FORMULA || type == Type.FORMULA2)
+		{
+			addFormula(r);
+		}
+		else if (type == Type.LABEL)
+		{
+			if (workbookBof.isBiff8())
+			{
+				addCell(new LabelRecord(r, formattingRecords, sheet, workbookSettings));
+			}
+			else
+			{
+				addCell(new LabelRecord(r, formattingRecords, sheet, workbookSettings, LabelRecord.biff7));
+			}
+		}
+		else if (type == Type.RSTRING)
+		{
+			addCell(new RStringRecord(r, formattingRecords, sheet, workbookSettings, RStringRecord.biff7));
+		}
+		else if (type == Type.DBCELL)
+		{
+			// End of a row block
+			flush(Integer.MAX_VALUE);
+		}
+		else if (type == Type.BOF)
+		{
+			// Skip to the end of the nested bof (i.e. embedded chart)
+			Record r2 = excelFile.next();
+
+			while (r2.getCode() != Type.EOF.value)
+			{
+				r2 = excelFile.next();
+			}
+		}
+		else if (type == Type.EOF)
+		{
+			endOfSheet();
+		}
+	}
+
+	/**
+	 * Decodes a formula record, delivering the cached result of the formula
+	 *
+	 * @param r the formula record
+	 */
+	private void addFormula(Record r)
+	{
+		FormulaRecord fr = new FormulaRecord(r,
+				excelFile,
+				formattingRecords,
+				workbook,
+				workbook,
+				sheet,
+				workbookSettings);
+
+		Cell cell = fr.getFormula();
+
+		try
+		{
+			// See if the formula evaluates to date
+			if (cell.getType() == CellType.NUMBER_FORMULA)
+			{
+				if (fr.isShared())
+				{
+					SharedNumberFormulaRecord snfr = (SharedNumberFormulaRecord) cell;
+
+					if (formattingRecords.isDate(snfr.getXFIndex()))
+					{
+						cell = new SharedDateFormulaRecord(snfr, formattingRecords, nineteenFour, sheet, snfr.getFilePos());
+					}
+				}
+				else
+				{
+					NumberFormulaRecord nfr = (NumberFormulaRecord) cell;
+
+					if (formattingRecords.isDate(nfr.getXFIndex()))
+					{
+						cell = new DateFormulaRecord(nfr, formattingRecords, workbook, workbook, nineteenFour, sheet);
+					}
+				}
+			}
+
+			addCell(cell);
+		}
+		catch (FormulaException e)
+		{
+			// Something has gone wrong trying to read the formula data eg. it
+			// might be unsupported biff7 data
+			logger.warn(CellReferenceHelper.getCellReference(cell.getColumn(), cell.getRow()) + " " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Adds a cell to its row. A cell found after its row has been completed
+	 * is added to the row if it hasn't been delivered yet, otherwise the cell
+	 * is ignored (the row is not delivered twice)
+	 *
+	 * @param cell the cell
+	 */
+	private void addCell(Cell cell)
+	{
+		Integer key = Integer.valueOf(cell.getRow());
+		Row row = (Row) pending.get(key);
+
+		if (row == null && rows.get(cell.getRow()))
+		{
+			row = getReadyRow(cell.getRow());
+
+			if (row == null)
+			{
+				logger.warn(CellReferenceHelper.getCellReference(cell.getColumn(), cell.getRow()) + " cell found after its row has been read");
+				return;
+			}
+		}
+		else if (row == null)
+		{
+			row = new Row(cell.getRow());
+			pending.put(key, row);
+			rows.set(cell.getRow());
+
+			// Sheets without row blocks are delivered as the cells arrive,
+			// keeping pending the last rows
+			if (pending.size() > MAX_PENDING_ROWS)
+			{
+				int count = pending.size() - OPEN_ROWS;
+				Iterator iterator = pending.keySet().iterator();
+
+				for (int i = 0; i < count; i++)
+				{
+					iterator.next();
+				}
+
+				flush(((Integer) iterator.next()).intValue());
+			}
+		}
+
+		row.add(cell);
+	}
+
+	/**
+	 * Finds a completed row which hasn't been delivered yet
+	 *
+	 * @param number the row number
+	 * @return the row or null if the row has been delivered
+	 */
+	private Row getReadyRow(int number)
+	{
+		Iterator iterator = ready.descendingIterator();
+
+		while (iterator.hasNext())
+		{
+			Row row = (Row) iterator.next();
+
+			if (row.number == number)
+			{
+				return row;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Moves the pending rows located before the specified row to the
+	 * delivery list
+	 *
+	 * @param limit the first row which remains pending
+	 */
+	private void flush(int limit)
+	{
+		while (!pending.isEmpty())
+		{
+			Integer key = (Integer) pending.firstKey();
+
+			if (key.intValue() >= limit)
+			{
+				break;
+			}
+
+			ready.add(pending.remove(key));
+		}
+	}
+
+	/**
+	 * Marks the end of the sheet, delivering all the pending rows
+	 */
+	private void endOfSheet()
+	{
+		flush(Integer.MAX_VALUE);
+		finished = true;
+	}
+
+	/**
+	 * The cells of a row
+	 */
+	private static class Row
+	{
+		/**
+		 * The row number
+		 */
+		private int number;
+
+		/**
+		 * The cells, indexed by column
+		 */
+		private Cell[] cells = new Cell[16];
+
+		/**
+		 * The number of columns, up to the last cell
+		 */
+		private int length;
+
+		Row(int number)
+		{
+			this.number = number;
+		}
+
+		void add(Cell cell)
+		{
+			int column = cell.getColumn();
+
+			if (column >= cells.length)
+			{
+				Cell[] temp = new Cell[Math.max(cells.length * 2, column + 1)];
+				System.arraycopy(cells, 0, temp, 0, length);
+				cells = temp;
+			}
+
+			cells[column] = cell;
+			length = Math.max(length, column + 1);
+		}
+	}
+}
@@ -236,6 +236,24 @@ public class WorkbookParser extends Workbook
 		return lastSheet;
 	}
 
+	/**
+	 * Gets a streaming reader of the rows of the specified sheet
+	 *
+	 * @param index the zero based index of the required sheet
+	 * @return the row reader of the sheet
+	 */
+	public SheetRowReader getRowReader(int index)
+	{
+		// Flush out all of the cached data in the last sheet
+		if (lastSheet != null)
+		{
+			lastSheet.clear();
+			lastSheet = null;
+		}
+
+		return ((DefaultSheet) sheets.get(index)).getRowReader();
+	}
+
 	/**
 	 * Gets the sheet with the specified name from within this workbook
 	 *
@@ -0,0 +1,315 @@
+package org.areasy.common.parser.json;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+
+/**
+ * Incremental (pull) JSON reader. The document is read token by token from the underlying reader, through
+ * a fixed size buffer, so documents of any size could be processed without building them in memory.
+ * <p>
+ * The reader is lenient: separators (<code>,</code> and <code>:</code>) are not validated.
+ */
+public class JsonReader
+{
+	/** Start of an object */
+	public static final int BEGIN_OBJECT = 1;
+
+	/** End of an object */
+	public static final int END_OBJECT = 2;
+
+	/** Start of an array */
+	public static final int BEGIN_ARRAY = 3;
+
+	/** End of an array */
+	public static final int END_ARRAY = 4;
+
+	/** Object member name */
+	public static final int NAME = 5;
+
+	/** Scalar value: string, number, boolean or null */
+	public static final int VALUE = 6;
+
+	/** End of the document */
+	public static final int END_DOCUMENT = 7;
+
+	private Reader reader;
+	private char buffer[] = new char[8192];
+	private int pos = 0;
+	private int limit = 0;
+
+	private boolean stack[] = new boolean[32];
+	private int depth = 0;
+	private boolean expectName = false;
+
+	private String name = null;
+	private Object value = null;
+
+	/**
+	 * Constructs a JSON reader.
+	 *
+	 * @param reader the reader to an underlying JSON source.
+	 */
+	public JsonReader(Reader reader)
+	{
+		this.reader = reader;
+	}
+
+	/**
+	 * Read the next token.
+	 *
+	 * @return token type
+	 * @throws IOException if any I/O or syntax error
+	 */
+	public int next() throws IOException
+	{
+		int c = read();
+
+		while(c == ',' || c == ':' || Character.isWhitespace((char)c)) c = read();
+
+		switch(c)
+		{
+			case -1:
+				return END_DOCUMENT;
+
+			case '{':
+				push(true);
+				return BEGIN_OBJECT;
+
+			case '[':
+				push(false);
+				return BEGIN_ARRAY;
+
+			case '}':
+				pop();
+				return END_OBJECT;
+
+			case ']':
+				pop();
+				return END_ARRAY;
+
+			case '"':
+				String text = readString();
+
+				if(expectName)
+				{
+					name = text;
+					expectName = false;
+
+					return NAME;
+				}
+
+				value = text;
+				expectName = isObject();
+
+				return VALUE;
+
+			default:
+				value = readLiteral((char)c);
+				expectName = isObject();
+
+				return VALUE;
+		}
+	}
+
+	/**
+	 * Skip the value started by the last read token. If the token is the start of an object or of an
+	 * array all the nested tokens are read, up to the corresponding end token.
+	 *
+	 * @param token last read token
+	 * @throws IOException if any I/O or syntax error
+	 */
+	public void skip(int token) throws IOException
+	{
+		if(token != BEGIN_OBJECT && token != BEGIN_ARRAY) return;
+
+		int level = depth;
+
+		while(depth >= level)
+		{
+			if(next() == END_DOCUMENT) throw new IOException("Unexpected end of JSON document");
+		}
+	}
+
+	/**
+	 * Get the last member name.
+	 *
+	 * @return member name
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Get the last scalar value: <code>String</code>, <code>Long</code>, <code>BigDecimal</code>,
+	 * <code>Boolean</code> or null.
+	 *
+	 * @return scalar value
+	 */
+	public Object getValue()
+	{
+		return value;
+	}
+
+	/**
+	 * Get the current nesting level.
+	 *
+	 * @return number of opened objects and arrays
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	/**
+	 * Close the underlying reader.
+	 *
+	 * @throws IOException if any I/O error
+	 */
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+
+	private boolean isObject()
+	{
+		return depth > 0 && stack[depth - 1];
+	}
+
+	private void push(boolean object)
+	{
+		if(depth == stack.length)
+		{
+			boolean temp[] = new boolean[depth * 2];
+			System.arraycopy(stack, 0, temp, 0, depth);
+			stack = temp;
+		}
+
+		stack[depth++] = object;
+		expectName = object;
+	}
+
+	private void pop() throws IOException
+	{
+		if(depth == 0) throw new IOException("Unbalanced JSON document");
+
+		depth--;
+		expectName = isObject();
+	}
+
+	private int read() throws IOException
+	{
+		if(pos >= limit)
+		{
+			limit = reader.read(buffer, 0, buffer.length);
+			pos = 0;
+
+			if(limit <= 0)
+			{
+				limit = 0;
+				return -1;
+			}
+		}
+
+		return buffer[pos++];
+	}
+
+	private String readString() throws IOException
+	{
+		StringBuffer text = new StringBuffer();
+
+		while(true)
+		{
+			int start = pos;
+
+			//copy unescaped characters directly from the buffer
+			while(pos < limit && buffer[pos] != '"' && buffer[pos] != '\\') pos++;
+			text.append(buffer, start, pos - start);
+
+			int c = read();
+
+			if(c == '"') return text.toString();
+			else if(c == '\\')
+			{
+				c = read();
+
+				switch(c)
+				{
+					case 'b': text.append('\b'); break;
+					case 'f': text.append('\f'); break;
+					case 'n': text.append('\n'); break;
+					case 'r': text.append('\r'); break;
+					case 't': text.append('\t'); break;
+					case 'u':
+						char hex[] = new char[4];
+						for(int i = 0; i < 4; i++)
+						{
+							int h = read();
+							if(h == -1) throw new IOException("Unterminated JSON string");
+							hex[i] = (char)h;
+						}
+
+						try
+						{
+							text.append((char)Integer.parseInt(new String(hex), 16));
+						}
+						catch(NumberFormatException nfe)
+						{
+							throw new IOException("Invalid JSON escape sequence: \\u" + new String(hex));
+						}
+						break;
+					case -1: throw new IOException("Unterminated JSON string");
+					default: text.append((char)c);
+				}
+			}
+			else if(c == -1) throw new IOException("Unterminated JSON string");
+		}
+	}
+
+	private Object readLiteral(char first) throws IOException
+	{
+		StringBuffer text = new StringBuffer();
+		text.append(first);
+
+		int c = read();
+
+		while(c != -1 && c != ',' && c != '}' && c != ']' && c != ':' && !Character.isWhitespace((char)c))
+		{
+			text.append((char)c);
+			c = read();
+		}
+
+		//delimiter belongs to the next token
+		if(c != -1) pos--;
+
+		String literal = text.toString();
+
+		if(literal.equals("null")) return null;
+			else if(literal.equals("true")) return Boolean.TRUE;
+			else if(literal.equals("false")) return Boolean.FALSE;
+
+		try
+		{
+			if(literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0 && literal.length() < 19) return Long.valueOf(literal);
+				else return new BigDecimal(literal);
+		}
+		catch(NumberFormatException nfe)
+		{
+			throw new IOException("Invalid JSON value: " + literal);
+		}
+	}
+}
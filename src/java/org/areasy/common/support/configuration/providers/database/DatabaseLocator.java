@@ -23,10 +23,10 @@ import org.areasy.common.support.configuration.ConfigurationLocator;
 import org.areasy.common.support.configuration.ConfigurationStream;
 import org.areasy.common.support.configuration.base.BaseConfigurationEntry;
 import org.areasy.common.support.configuration.base.BaseConfigurationLocator;
+import org.areasy.common.support.database.ConnectionPool;
 
 import java.sql.*;
 import java.util.Iterator;
-import java.util.Properties;
 
 
 /**
@@ -71,55 +71,23 @@ public class DatabaseLocator extends BaseConfigurationLocator implements Configu
 	}
 
 	/**
-	 * Create a database locator, creating a database connection and specifing table name and columns.
-	 * Database connectionis created with auto-commit.
+	 * Create a database locator, using a pooled database connection and specifing table name and columns.
+	 * Database connection is borrowed from the pool only for reading and writing operations.
 	 */
 	public DatabaseLocator(String driverClass, String url, String userName, String password,
 						   String table, String keyColumn, String valueColumn) throws ConfigurationException
 	{
 		super();
 
-		Connection connection = null;
-		Driver driverInstance = null;
-
 		try
 		{
-			Class dc = DatabaseLocator.class.getClassLoader().loadClass(driverClass);
-			if(dc == null) dc = Class.forName(driverClass);
-
-			driverInstance = (Driver) dc.newInstance();
-		}
-		catch (ClassNotFoundException e)
-		{
-			throw new ConfigurationException("Class not found: JDBC driver '" + driverClass + "' could not be loaded");
+			ConnectionPool pool = ConnectionPool.getInstance(driverClass, url, userName, password);
+			this.database = new DatabaseLocatorObject(pool, table, keyColumn, valueColumn);
 		}
-		catch (IllegalAccessException e)
+		catch(SQLException sqle)
 		{
-			throw new ConfigurationException("Illegal access: JDBC driver '" + driverClass + "' could not be used", e);
+			throw new ConfigurationException(sqle.getMessage(), sqle);
 		}
-		catch (InstantiationException e)
-		{
-			throw new ConfigurationException("Instantiation exception: JDBC driver " + driverClass + " could not be instantiated", e);
-		}
-
-		// Load driver and generate database connection.
-		try
-		{
-			Properties info = new Properties();
-			info.put("user", userName);
-			info.put("password", password);
-
-			connection = driverInstance.connect(url, info);
-
-			if (connection == null) throw new SQLException("No suitable driver for url: " + url);
-			connection.setAutoCommit(true);
-		}
-		catch(Throwable th)
-		{
-			throw new ConfigurationException(th);
-		}
-
-		this.database = new DatabaseLocatorObject(connection, table, keyColumn, valueColumn);
 	}
 
 	/**
@@ -158,12 +126,14 @@ public class DatabaseLocator extends BaseConfigurationLocator implements Configu
 	{
 		String sql = "SELECT * FROM " + this.database.getTable();
 
+		Connection connection = null;
 		Statement stmt = null;
 
 		try
 		{
 			//create statement
-			stmt = database.getConnection().createStatement();
+			connection = database.borrowConnection();
+			stmt = connection.createStatement();
 
 			//execute statement.
 			stmt.execute(sql);
@@ -203,6 +173,8 @@ public class DatabaseLocator extends BaseConfigurationLocator implements Configu
 			{
 				logger.debug("Error closing statement: " + sqle.getMessage());
 			}
+
+			database.releaseConnection(connection);
 		}
 	}
 
@@ -216,6 +188,7 @@ public class DatabaseLocator extends BaseConfigurationLocator implements Configu
 		String delete = "DELETE * FROM " + this.database.getTable();
 		String insert = "INSERT INTO " + this.database.getTable() + " (" + this.database.getKeyColumn() + ", " + this.database.getValueColumn() + ") VALUES (?, ?)";
 
+		Connection connection = null;
 		PreparedStatement pstmtd = null;
 		PreparedStatement pstmti = null;
 
@@ -225,17 +198,18 @@ public class DatabaseLocator extends BaseConfigurationLocator implements Configu
 		try
 		{
 			//create and execute delete statement
-			pstmtd =  this.database.getConnection().prepareStatement(delete);
+			connection = this.database.borrowConnection();
+			pstmtd =  connection.prepareStatement(delete);
 			pstmtd.executeUpdate();
 
 			//make commit if is necessary
-			if(!this.database.getConnection().getAutoCommit()) this.database.getConnection().commit();
+			if(!connection.getAutoCommit()) connection.commit();
 
 			//execute insert statements.
 			while(iterator.hasNext())
 			{
 				//create statement
-				pstmti =  this.database.getConnection().prepareStatement(insert);
+				pstmti =  connection.prepareStatement(insert);
 
 				//fill statement
 				ConfigurationEntry entry = (ConfigurationEntry) iterator.next();
@@ -260,7 +234,7 @@ public class DatabaseLocator extends BaseConfigurationLocator implements Configu
 			}
 
 			//make commit if is necessary
-			if(!this.database.getConnection().getAutoCommit()) this.database.getConnection().commit();
+			if(!connection.getAutoCommit()) connection.commit();
 		}
 		catch(Exception e)
 		{
@@ -277,6 +251,8 @@ public class DatabaseLocator extends BaseConfigurationLocator implements Configu
 			{
 				logger.debug("Error closing statement(s): " + sqle.getMessage());
 			}
+
+			database.releaseConnection(connection);
 		}
 	}
 }
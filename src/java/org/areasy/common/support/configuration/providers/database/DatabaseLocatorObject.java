@@ -13,7 +13,10 @@ package org.areasy.common.support.configuration.providers.database;
  * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
  */
 
+import org.areasy.common.support.database.ConnectionPool;
+
 import java.sql.Connection;
+import java.sql.SQLException;
 
 /**
  * Define a database locator object.
@@ -27,6 +30,11 @@ public class DatabaseLocatorObject
 	 */
 	private Connection connection;
 
+	/**
+	 * Database connection pool.
+	 */
+	private ConnectionPool pool;
+
 	/**
 	 * The name of the table containing the configurations.
 	 */
@@ -58,6 +66,84 @@ public class DatabaseLocatorObject
 		this.valueColumn = value;
 	}
 
+	/**
+	 * Create a database locator object, specifing a connection pool, a table name and columns.
+	 * @param pool database connection pool
+	 * @param table table name
+	 * @param key column name
+	 * @param value column value
+	 */
+	public DatabaseLocatorObject(ConnectionPool pool, String table, String key, String value)
+	{
+		this.pool = pool;
+		this.table = table;
+
+		this.keyColumn = key;
+		this.valueColumn = value;
+	}
+
+	/**
+	 * Get a database connection for a reading or writing operation. If the locator uses a connection pool
+	 * the connection is borrowed from the pool (in auto-commit mode) and it has to be released after the operation.
+	 * @return database connection
+	 * @throws SQLException if the pooled connection couldn't be created
+	 */
+	public Connection borrowConnection() throws SQLException
+	{
+		if(pool != null)
+		{
+			Connection pooled = pool.getConnection();
+
+			try
+			{
+				if(!pooled.getAutoCommit()) pooled.setAutoCommit(true);
+			}
+			catch(SQLException sqle)
+			{
+				pooled.close();
+				throw sqle;
+			}
+
+			return pooled;
+		}
+		else return connection;
+	}
+
+	/**
+	 * Release a database connection used by a reading or writing operation (return it to the pool in auto-commit mode).
+	 * @param connection database connection
+	 */
+	public void releaseConnection(Connection connection)
+	{
+		if(pool != null && connection != null)
+		{
+			try
+			{
+				if(!connection.getAutoCommit())
+				{
+					connection.rollback();
+					connection.setAutoCommit(true);
+				}
+			}
+			catch(SQLException sqle) { /* nothing to do */ }
+
+			try
+			{
+				connection.close();
+			}
+			catch(SQLException sqle) { /* nothing to do */ }
+		}
+	}
+
+	/**
+	 * Get database connection pool.
+	 * @return database connection pool or null if the locator uses a single connection
+	 */
+	public ConnectionPool getPool()
+	{
+		return pool;
+	}
+
 	public Connection getConnection()
 	{
 		return connection;
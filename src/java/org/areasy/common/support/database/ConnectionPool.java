@@ -0,0 +1,590 @@
+package org.areasy.common.support.database;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import org.areasy.common.data.NumberUtility;
+import org.areasy.common.logger.Logger;
+import org.areasy.common.logger.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Simple JDBC connection pool, registered for each database URL and user. The connections delivered by the pool
+ * are returned to the pool when they are closed; they are validated when they are borrowed and closed (by a
+ * background timer) when they stay unused more than <code>IDLETIMEOUT</code> seconds. Each pooled connection keeps a cache of prepared statements,
+ * so the same statement is not prepared again when it is requested on the same connection.
+ */
+public class ConnectionPool
+{
+	/** Library logger */
+	protected static Logger logger = LoggerFactory.getLog(ConnectionPool.class);
+
+	/** Maximum number of idle connections kept by each pool */
+	public static int MAXIDLE = 8;
+
+	/** Number of seconds after that an idle connection is closed */
+	public static int IDLETIMEOUT = 300;
+
+	/** Number of prepared statements cached for each connection */
+	public static int STATEMENTS = 20;
+
+	/** Number of seconds to wait for connection validation */
+	public static int VALIDATIONTIMEOUT = 5;
+
+	/** Registered pools */
+	private static final Map<String, ConnectionPool> pools = new HashMap<String, ConnectionPool>();
+
+	/** Daemon timer evicting the idle connections of all registered pools */
+	private static Timer evictor = null;
+
+	static
+	{
+		MAXIDLE = NumberUtility.toInt(System.getProperty("JDBCPOOLMAXIDLE"), MAXIDLE);
+		IDLETIMEOUT = NumberUtility.toInt(System.getProperty("JDBCPOOLIDLETIMEOUT"), IDLETIMEOUT);
+		STATEMENTS = NumberUtility.toInt(System.getProperty("JDBCPOOLSTATEMENTS"), STATEMENTS);
+	}
+
+	private Driver driver = null;
+	private String url = null;
+	private String user = null;
+	private String password = null;
+
+	/** Idle connections, the last returned connection is the first one */
+	private final LinkedList<PooledConnection> idle = new LinkedList<PooledConnection>();
+
+	/** The pool has been replaced or shut down, so the returned connections are closed */
+	private boolean retired = false;
+
+	private ConnectionPool(Driver driver, String url, String user, String password)
+	{
+		this.driver = driver;
+		this.url = url;
+		this.user = user;
+		this.password = password;
+	}
+
+	/**
+	 * Get (or create if it doesn't exist) the connection pool for the specified database URL and user.
+	 *
+	 * @param driverClass JDBC driver class name
+	 * @param url database URL
+	 * @param user database user or null
+	 * @param password user password
+	 * @return <code>ConnectionPool</code> instance
+	 * @throws SQLException if the JDBC driver couldn't be loaded
+	 */
+	public static ConnectionPool getInstance(String driverClass, String url, String user, String password) throws SQLException
+	{
+		String key = url + "|" + user;
+
+		synchronized(pools)
+		{
+			ConnectionPool pool = pools.get(key);
+
+			if(pool == null || !equals(pool.password, password))
+			{
+				if(pool != null) pool.retire();
+
+				pool = new ConnectionPool(getDriver(driverClass), url, user, password);
+				pools.put(key, pool);
+			}
+
+			startEvictor();
+
+			return pool;
+		}
+	}
+
+	/**
+	 * Close idle connections of all registered pools, remove the pools and stop the eviction timer. The connections
+	 * borrowed from these pools are closed when they are released.
+	 */
+	public static void shutdown()
+	{
+		synchronized(pools)
+		{
+			if(evictor != null)
+			{
+				evictor.cancel();
+				evictor = null;
+			}
+
+			Iterator<ConnectionPool> iterator = pools.values().iterator();
+			while(iterator.hasNext()) iterator.next().retire();
+
+			pools.clear();
+		}
+	}
+
+	/**
+	 * Start (if it is not started) the timer evicting periodically the idle connections of all registered pools,
+	 * so the pools which are not used anymore don't keep their connections open.
+	 */
+	private static void startEvictor()
+	{
+		if(evictor != null) return;
+
+		long period = 1000L * Math.max(IDLETIMEOUT / 2, 1);
+
+		evictor = new Timer("ConnectionPoolEvictor", true);
+		evictor.schedule(new TimerTask()
+		{
+			public void run()
+			{
+				List<ConnectionPool> list;
+
+				synchronized(pools)
+				{
+					list = new ArrayList<ConnectionPool>(pools.values());
+				}
+
+				for(int i = 0; i < list.size(); i++)
+				{
+					try
+					{
+						list.get(i).evict();
+					}
+					catch(Throwable th)
+					{
+						logger.debug("Error evicting idle connections: " + th.getMessage());
+					}
+				}
+			}
+		}, period, period);
+	}
+
+	private static Driver getDriver(String driverClass) throws SQLException
+	{
+		try
+		{
+			Class dc = ConnectionPool.class.getClassLoader().loadClass(driverClass);
+			return (Driver) dc.getDeclaredConstructor().newInstance();
+		}
+		catch(ClassNotFoundException e)
+		{
+			throw new SQLException("JDBC driver '" + driverClass + "' could not be loaded", e);
+		}
+		catch(Exception e)
+		{
+			throw new SQLException("JDBC driver '" + driverClass + "' could not be instantiated: " + e.getMessage(), e);
+		}
+	}
+
+	private static boolean equals(String first, String second)
+	{
+		return first == null ? second == null : first.equals(second);
+	}
+
+	/**
+	 * Borrow a connection from the pool. The idle connections are validated before delivering them and a new connection
+	 * is created if no valid connection is found. The connection has to be closed in order to be returned to the pool.
+	 *
+	 * @return database connection
+	 * @throws SQLException if the database connection couldn't be created
+	 */
+	public Connection getConnection() throws SQLException
+	{
+		evict();
+
+		while(true)
+		{
+			PooledConnection pooled;
+
+			synchronized(idle)
+			{
+				pooled = idle.poll();
+			}
+
+			if(pooled == null) break;
+
+			if(pooled.isValid()) return pooled.borrow();
+				else pooled.destroy();
+		}
+
+		Properties info = new Properties();
+		if(user != null) info.put("user", user);
+		if(password != null) info.put("password", password);
+
+		Connection connection = driver.connect(url, info);
+		if(connection == null) throw new SQLException("No suitable driver for url: " + url);
+
+		return new PooledConnection(connection).borrow();
+	}
+
+	/**
+	 * Close the connections which are idle more than <code>IDLETIMEOUT</code> seconds.
+	 */
+	public void evict()
+	{
+		List<PooledConnection> expired = new ArrayList<PooledConnection>();
+		long limit = System.currentTimeMillis() - 1000L * IDLETIMEOUT;
+
+		synchronized(idle)
+		{
+			Iterator<PooledConnection> iterator = idle.iterator();
+
+			while(iterator.hasNext())
+			{
+				PooledConnection pooled = iterator.next();
+
+				if(pooled.time < limit)
+				{
+					iterator.remove();
+					expired.add(pooled);
+				}
+			}
+		}
+
+		for(int i = 0; i < expired.size(); i++) expired.get(i).destroy();
+	}
+
+	/**
+	 * Close all idle connections.
+	 */
+	public void close()
+	{
+		List<PooledConnection> connections;
+
+		synchronized(idle)
+		{
+			connections = new ArrayList<PooledConnection>(idle);
+			idle.clear();
+		}
+
+		for(int i = 0; i < connections.size(); i++) connections.get(i).destroy();
+	}
+
+	/**
+	 * Close all idle connections and mark the pool as retired (it is not registered anymore), so the connections
+	 * which are still borrowed are closed when they are released, instead of being kept by the pool.
+	 */
+	private void retire()
+	{
+		synchronized(idle)
+		{
+			retired = true;
+		}
+
+		close();
+	}
+
+	/**
+	 * Get number of idle connections.
+	 *
+	 * @return number of idle connections
+	 */
+	public int getIdleCount()
+	{
+		synchronized(idle)
+		{
+			return idle.size();
+		}
+	}
+
+	private void release(PooledConnection pooled)
+	{
+		if(isRetired() || !pooled.reset())
+		{
+			pooled.destroy();
+			return;
+		}
+
+		PooledConnection extra = null;
+
+		synchronized(idle)
+		{
+			if(retired) extra = pooled;
+			else
+			{
+				idle.addFirst(pooled);
+				if(idle.size() > MAXIDLE) extra = idle.removeLast();
+			}
+		}
+
+		if(extra != null) extra.destroy();
+	}
+
+	private boolean isRetired()
+	{
+		synchronized(idle)
+		{
+			return retired;
+		}
+	}
+
+	public String toString()
+	{
+		return "ConnectionPool [URL = " + url + ", User = " + user + ", Idle = " + getIdleCount() + "]";
+	}
+
+	/**
+	 * Physical connection managed by the pool. The connection is delivered as a proxy that returns it to the pool
+	 * when it is closed and delivers cached prepared statements.
+	 */
+	private class PooledConnection implements InvocationHandler
+	{
+		private Connection connection = null;
+		private Connection proxy = null;
+		private boolean autoCommit = true;
+		private boolean closed = true;
+		private long time = 0;
+
+		/** Cached statements, in access order */
+		private Map<String, CachedStatement> statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true);
+
+		PooledConnection(Connection connection) throws SQLException
+		{
+			this.connection = connection;
+			this.autoCommit = connection.getAutoCommit();
+		}
+
+		Connection borrow()
+		{
+			closed = false;
+			proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] { Connection.class }, this);
+
+			return proxy;
+		}
+
+		boolean isValid()
+		{
+			try
+			{
+				return connection.isValid(VALIDATIONTIMEOUT);
+			}
+			catch(AbstractMethodError ame)
+			{
+				//old drivers (before JDBC 4)
+				try
+				{
+					return !connection.isClosed();
+				}
+				catch(SQLException sqle)
+				{
+					return false;
+				}
+			}
+			catch(Throwable th)
+			{
+				return false;
+			}
+		}
+
+		boolean reset()
+		{
+			try
+			{
+				if(connection.isClosed()) return false;
+
+				//release the statements which have not been closed
+				Iterator<CachedStatement> iterator = statements.values().iterator();
+
+				while(iterator.hasNext())
+				{
+					CachedStatement cached = iterator.next();
+					if(cached.used && !cached.release()) iterator.remove();
+				}
+
+				if(connection.getAutoCommit() != autoCommit)
+				{
+					if(!connection.getAutoCommit()) connection.rollback();
+					connection.setAutoCommit(autoCommit);
+				}
+
+				time = System.currentTimeMillis();
+				return true;
+			}
+			catch(SQLException sqle)
+			{
+				logger.debug("Pooled connection couldn't be reset: " + sqle.getMessage());
+				return false;
+			}
+		}
+
+		void destroy()
+		{
+			try
+			{
+				connection.close();
+			}
+			catch(SQLException sqle)
+			{
+				logger.debug("Error closing pooled connection: " + sqle.getMessage());
+			}
+		}
+
+		public Object invoke(Object object, Method method, Object args[]) throws Throwable
+		{
+			String name = method.getName();
+
+			//a proxy delivered by a previous borrowing is closed
+			boolean active = !closed && object == proxy;
+
+			if(name.equals("close"))
+			{
+				if(active)
+				{
+					closed = true;
+					release(this);
+				}
+
+				return null;
+			}
+			else if(name.equals("isClosed")) return !active || connection.isClosed();
+			else if(name.equals("equals")) return object == args[0];
+			else if(name.equals("hashCode")) return System.identityHashCode(object);
+			else if(name.equals("toString")) return "Pooled " + connection;
+
+			if(!active) throw new SQLException("Connection has been closed");
+
+			if(name.equals("prepareStatement") && STATEMENTS > 0 && args != null && args.length > 0 && (args.length == 1 || method.getParameterTypes()[1] == int.class))
+			{
+				String key = Arrays.asList(args).toString();
+				CachedStatement cached = statements.get(key);
+
+				if(cached == null || cached.used)
+				{
+					PreparedStatement statement = (PreparedStatement) call(connection, method, args);
+
+					if(cached != null) return statement;
+
+					cached = new CachedStatement(statement);
+					statements.put(key, cached);
+
+					if(statements.size() > STATEMENTS) removeEldest();
+				}
+
+				return cached.open();
+			}
+
+			return call(connection, method, args);
+		}
+
+		private void removeEldest()
+		{
+			Iterator<CachedStatement> iterator = statements.values().iterator();
+
+			while(iterator.hasNext())
+			{
+				CachedStatement cached = iterator.next();
+
+				if(!cached.used)
+				{
+					iterator.remove();
+					cached.destroy();
+
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Prepared statement cached by a pooled connection. When it is closed the statement is reset and kept open
+		 * for the next request. Each request gets a new proxy and any call of a closed proxy fails.
+		 */
+		private class CachedStatement implements InvocationHandler
+		{
+			private PreparedStatement statement = null;
+			private PreparedStatement current = null;
+			private boolean used = false;
+
+			CachedStatement(PreparedStatement statement)
+			{
+				this.statement = statement;
+			}
+
+			PreparedStatement open()
+			{
+				used = true;
+				current = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class[] { PreparedStatement.class }, this);
+
+				return current;
+			}
+
+			void destroy()
+			{
+				try
+				{
+					statement.close();
+				}
+				catch(SQLException sqle) { /* nothing to do */ }
+			}
+
+			/**
+			 * Reset the statement to be used by the next request.
+			 *
+			 * @return false if the statement couldn't be reset (and it has been closed)
+			 */
+			boolean release()
+			{
+				used = false;
+				current = null;
+
+				try
+				{
+					ResultSet rs = statement.getResultSet();
+					if(rs != null) rs.close();
+
+					statement.clearParameters();
+					statement.setMaxRows(0);
+					statement.setFetchSize(0);
+
+					return true;
+				}
+				catch(SQLException sqle)
+				{
+					destroy();
+					return false;
+				}
+			}
+
+			public Object invoke(Object object, Method method, Object args[]) throws Throwable
+			{
+				String name = method.getName();
+				boolean active = used && object == current;
+
+				if(name.equals("close"))
+				{
+					if(active && !release()) statements.values().remove(this);
+					return null;
+				}
+				else if(name.equals("isClosed")) return !active || statement.isClosed();
+				else if(name.equals("equals")) return object == args[0];
+				else if(name.equals("hashCode")) return System.identityHashCode(object);
+
+				if(!active) throw new SQLException("Statement has been closed");
+				else if(name.equals("getConnection")) return proxy;
+
+				return call(statement, method, args);
+			}
+		}
+	}
+
+	private static Object call(Object target, Method method, Object args[]) throws Throwable
+	{
+		try
+		{
+			return method.invoke(target, args);
+		}
+		catch(InvocationTargetException ite)
+		{
+			throw ite.getTargetException();
+		}
+	}
+}
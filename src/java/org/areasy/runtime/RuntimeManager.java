@@ -22,6 +22,7 @@ import org.areasy.common.support.configuration.ConfigurationEntry;
 import org.areasy.common.support.configuration.base.BaseConfiguration;
 import org.areasy.common.support.configuration.base.BaseConfigurationEntry;
 import org.areasy.common.support.configuration.providers.properties.stream.PropertiesConfiguration;
+import org.areasy.common.support.database.ConnectionPool;
 import org.areasy.common.velocity.Velocity;
 import org.areasy.runtime.actions.SystemAction;
 import org.areasy.runtime.actions.system.Version;
@@ -590,6 +591,9 @@ public class RuntimeManager
 	 */
 	private void end(boolean error)
 	{
+		//close pooled database connections
+		ConnectionPool.shutdown();
+
 		if(error)
 		{
 			if(logger != null) logger.info("Drop execution of AREasy Runtime due to recorded errors..");
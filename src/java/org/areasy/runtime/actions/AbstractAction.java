@@ -73,6 +73,12 @@ public abstract class AbstractAction implements RuntimeAction
 	 */
 	private ServerConnection target = null;
 
+	/**
+	 * GUIDs generation settings of the persistent server connection, changed by this action and restored at disposal
+	 */
+	private String sharedGuidMode = null;
+	private int sharedGuidBlockSize = 0;
+
 	/**
 	 * AREasy Runtime manager
 	 */
@@ -293,6 +299,16 @@ public abstract class AbstractAction implements RuntimeAction
 			logger.error("Error disposing action: " + th.getMessage());
 			if (logger.isDebugEnabled()) logger.debug("Exception", th);
 		}
+		finally
+		{
+			//restore GUIDs generation settings of the persistent connection, used also by other actions
+			if (target != null && sharedGuidMode != null)
+			{
+				target.setGuidMode(sharedGuidMode);
+				target.setGuidBlockSize(sharedGuidBlockSize);
+				sharedGuidMode = null;
+			}
+		}
 
 		//dispose server connection.
 		if (target != null && !target.isPersistent())
@@ -701,6 +717,20 @@ public abstract class AbstractAction implements RuntimeAction
 					target.connect(arserver, aruser, arpassword, arport, arrpc, armode, impuser);
 				}
 			} else logger.warn("AR server connection couldn't be created because '-arserver' option is null");
+
+			//set GUIDs generation mode for dedicated connections or when it is explicitly requested
+			if (target != null && (!target.isPersistent() || getConfiguration().containsKey("guidmode")))
+			{
+				//the persistent connection is shared with other actions, so its settings are restored when this action is disposed
+				if (target.isPersistent())
+				{
+					sharedGuidMode = target.getGuidMode();
+					sharedGuidBlockSize = target.getGuidBlockSize();
+				}
+
+				target.setGuidMode(getConfiguration().getString("guidmode", getManager().getConfiguration().getString("app.server.default.arsystem.guid.mode", "server")));
+				target.setGuidBlockSize(getConfiguration().getInt("guidblock", getManager().getConfiguration().getInt("app.server.default.arsystem.guid.block", 1000)));
+			}
 		}
 	}
 
@@ -14,6 +14,7 @@ package org.areasy.runtime.actions.ars.data;
  */
 
 import com.bmc.arsys.api.Constants;
+import org.areasy.common.data.DurationFormatUtility;
 import org.areasy.common.data.NumberUtility;
 import org.areasy.common.data.StopWatchUtility;
 import org.areasy.common.data.StringUtility;
@@ -27,11 +28,14 @@ import org.areasy.runtime.RuntimeManager;
 import org.areasy.runtime.actions.AbstractAction;
 import org.areasy.runtime.engine.RuntimeLogger;
 import org.areasy.runtime.engine.base.AREasyException;
+import org.areasy.runtime.engine.services.cache.CacheEntry;
+import org.areasy.runtime.engine.services.cache.DataCache;
 import org.areasy.runtime.engine.services.status.BaseStatus;
 import org.areasy.runtime.engine.structures.Attribute;
 import org.areasy.runtime.engine.structures.CoreItem;
 import org.areasy.runtime.engine.structures.MultiPartItem;
 import org.areasy.runtime.engine.structures.data.cmdb.ConfigurationItem;
+import org.areasy.runtime.engine.structures.data.itsm.foundation.FoundationIndex;
 import org.areasy.runtime.engine.workflows.ProcessorLevel0Reader;
 import org.areasy.runtime.engine.workflows.ProcessorLevel1Context;
 import org.areasy.runtime.engine.workflows.ProcessorLevel2CmdbApp;
@@ -93,6 +97,15 @@ public abstract class BaseData extends AbstractAction implements CoreData
 	/** Time control to measure the time for action execution*/
 	private StopWatchUtility cron = new StopWatchUtility();
 
+	/** Cumulative execution time (in nanoseconds) for each processing stage */
+	private Map<String, Long> stageTimes = new LinkedHashMap<String, Long>();
+
+	/** Total number of records to be processed (if it is known) */
+	private int dataCount = -1;
+
+	/** Cache of lookup entries, used to resolve lookup expressions */
+	private DataCache lookupCache = null;
+
 	/**
 	 * Collect data input parameters and publish them into a <code>CoreItem</code> structure.
 	 *
@@ -754,8 +767,7 @@ public abstract class BaseData extends AbstractAction implements CoreData
 					String qualification = expression.substring(START_TOKEN.length(), expression.length() - END_TOKEN.length());
 					String data[] = StringUtility.split(qualification, ',');
 
-					Configuration config = new BaseConfiguration();
-					config.merge(getConfiguration());
+					Configuration config = new LookupConfiguration(getConfiguration());
 
 					for(int i = 0; i < data.length; i++)
 					{
@@ -776,8 +788,7 @@ public abstract class BaseData extends AbstractAction implements CoreData
 						//get interrogation text into a real qualification
 						query = getTranslatedQualification(query);
 
-						CoreItem item = getCoreItem(schema);
-						item.read(getServerConnection(), query);
+						CoreItem item = getLookupItem(schema, query);
 
 						if (item.exists())
 						{
@@ -845,6 +856,70 @@ public abstract class BaseData extends AbstractAction implements CoreData
 		return value;
 	}
 
+	/**
+	 * Read the entry identified by the specified lookup form and qualification. The found entries are kept in a
+	 * lookup cache, limited by size (<code>lookupcachesize</code> option) and by age (<code>lookupcachettl</code> option,
+	 * in seconds), so the same lookup is not executed again against the server. The cache is enabled using
+	 * <code>lookupcache</code> option. Entries that are not found are not cached.
+	 *
+	 * @param schema lookup form name
+	 * @param query translated qualification
+	 * @return <code>CoreItem</code> structure, found or not
+	 * @throws AREasyException if any error will occur
+	 */
+	protected CoreItem getLookupItem(String schema, String query) throws AREasyException
+	{
+		DataCache cache = getLookupCache();
+		String key = schema + "|" + query;
+
+		if(cache != null)
+		{
+			CacheEntry entry = cache.getCacheEntry(key);
+
+			if(entry != null && !entry.isExpired()) return (CoreItem) entry.getContent();
+				else if(entry != null) cache.remove(key);
+		}
+
+		CoreItem item = getCoreItem(schema);
+		item.read(getServerConnection(), query);
+
+		if(cache != null && item.exists()) cache.add(key, item, getConfiguration().getInt("lookupcachettl", 600));
+
+		return item;
+	}
+
+	/**
+	 * Get lookup cache.
+	 *
+	 * @return <code>DataCache</code> structure or null if the lookup cache is disabled
+	 */
+	public DataCache getLookupCache()
+	{
+		if(lookupCache == null && getConfiguration().getBoolean("lookupcache", false))
+		{
+			lookupCache = new DataCache(getConfiguration().getInt("lookupcachesize", 1000));
+		}
+
+		return lookupCache;
+	}
+
+	/**
+	 * Load (or refresh) the Foundation indexes for the action server connection, when <code>foundationindex</code>
+	 * option is set. Then Foundation structures (companies, sites, regions, organisations, support groups and people)
+	 * are resolved from memory instead of being read one by one from the server. The indexes are read page by page
+	 * (<code>foundationpagesize</code> option) and refreshed with the modified entries when they are older than
+	 * <code>foundationrefresh</code> seconds.
+	 *
+	 * @return <code>FoundationIndex</code> instance or null if the Foundation indexes are not used
+	 * @throws AREasyException if any error will occur
+	 */
+	protected FoundationIndex initFoundationIndex() throws AREasyException
+	{
+		if(!getConfiguration().getBoolean("foundationindex", false)) return null;
+
+		return FoundationIndex.load(getServerConnection(), getConfiguration().getInt("foundationpagesize", 5000), getConfiguration().getInt("foundationrefresh", 300));
+	}
+
 	/**
 	 * Get and replace <b>CoreItem</b> references with the right values. This method should be used only in
 	 * <code>setDataFields</code> method just to reused data values whoc are already in the data structure and referred
@@ -980,6 +1055,70 @@ public abstract class BaseData extends AbstractAction implements CoreData
 		return this.cron.toString();
 	}
 
+	/**
+	 * Mark the start of a processing stage.
+	 *
+	 * @return stage start time, to be passed to <code>addStageTime</code> method
+	 */
+	public long getStageStart()
+	{
+		return System.nanoTime();
+	}
+
+	/**
+	 * Add the execution time of a processing stage (source read, lookup, mapping, transform, develop, etc.)
+	 * to the cumulative time of that stage.
+	 *
+	 * @param stage stage name
+	 * @param start stage start time, returned by <code>getStageStart</code> method
+	 */
+	public void addStageTime(String stage, long start)
+	{
+		long time = System.nanoTime() - start;
+		Long total = stageTimes.get(stage);
+
+		stageTimes.put(stage, total != null ? total + time : time);
+	}
+
+	/**
+	 * Get the cumulative execution time (in milliseconds) for each processing stage.
+	 *
+	 * @return a map having stage names as keys and execution times as values
+	 */
+	public Map<String, Long> getStageTimes()
+	{
+		Map<String, Long> times = new LinkedHashMap<String, Long>();
+		Iterator<String> iterator = stageTimes.keySet().iterator();
+
+		while(iterator.hasNext())
+		{
+			String stage = iterator.next();
+			times.put(stage, stageTimes.get(stage) / 1000000L);
+		}
+
+		return times;
+	}
+
+	/**
+	 * Get total number of records to be processed.
+	 *
+	 * @return number of records or -1 if is not known
+	 */
+	public int getDataCount()
+	{
+		return this.dataCount;
+	}
+
+	/**
+	 * Set total number of records to be processed, used to estimate the time to completion.
+	 *
+	 * @param dataCount number of records
+	 */
+	public void setDataCount(int dataCount)
+	{
+		this.dataCount = dataCount;
+	}
+
 	public StopWatchUtility getCron()
 	{
 		return this.cron;
@@ -992,8 +1131,23 @@ public abstract class BaseData extends AbstractAction implements CoreData
 		buffer.append("\n").append(getCode()).append(" - Execution results:" + "\n");
 		buffer.append("\tTotal number of records: ").append(getRecordsCounter()).append("\n");
 		buffer.append("\tNumber of errors: ").append(getErrorsCounter()).append("\n");
-		buffer.append("\tExecution time: ").append(getCronTime()).append("\n" + "\n");
+		buffer.append("\tExecution time: ").append(getCronTime()).append("\n");
 
+		if(!stageTimes.isEmpty())
+		{
+			Map<String, Long> times = getStageTimes();
+			Iterator<String> iterator = times.keySet().iterator();
+
+			if(getCurrentStatus() instanceof BaseDataStatus) buffer.append("\tAverage throughput: ").append(((BaseDataStatus)getCurrentStatus()).getAverageThroughput()).append(" records/sec\n");
+
+			while(iterator.hasNext())
+			{
+				String stage = iterator.next();
+				buffer.append("\tStage '").append(stage).append("' time: ").append(DurationFormatUtility.formatDurationHMS(times.get(stage))).append("\n");
+			}
+		}
+
+		buffer.append("\n");
 		RuntimeLogger.add(buffer.toString());
 	}
 
@@ -1041,6 +1195,30 @@ public abstract class BaseData extends AbstractAction implements CoreData
 		return status;
 	}
 
+	/**
+	 * Configuration structure used to decode lookup expressions: the expression parts are stored locally and all the
+	 * other keys (used for defaults and variables interpolation) are read from the action configuration, without
+	 * copying it for each lookup.
+	 */
+	protected static class LookupConfiguration extends BaseConfiguration
+	{
+		private Configuration parent = null;
+
+		public LookupConfiguration(Configuration parent)
+		{
+			this.parent = parent;
+		}
+
+		public Object getKey(String key)
+		{
+			Object value = super.getKey(key);
+
+			if(value == null && parent != null) value = parent.getKey(key);
+
+			return value;
+		}
+	}
+
 	/**
 	 * To change this template use File | Settings | File Templates.
 	 */
@@ -1052,6 +1230,10 @@ public abstract class BaseData extends AbstractAction implements CoreData
 		private String execMessage = null;
 		private String noexecMessage = null;
 
+		private long sampleTime = 0;
+		private int sampleRecords = 0;
+		private double throughput = 0;
+
 		public BaseDataStatus(BaseData action)
 		{
 			this.action = action;
@@ -1119,6 +1301,96 @@ public abstract class BaseData extends AbstractAction implements CoreData
 			this.noexecMessage = null;
 		}
 
+		/**
+		 * Get average processing throughput, since the action start.
+		 *
+		 * @return number of records processed per second
+		 */
+		public double getAverageThroughput()
+		{
+			long time = action.getCron().getTime();
+
+			if(time > 0) return Math.round(action.getRecordsCounter() * 100000.0 / time) / 100.0;
+				else return 0;
+		}
+
+		/**
+		 * Get instantaneous processing throughput, measured since the previous call (but at least one second ago).
+		 *
+		 * @return number of records processed per second
+		 */
+		public double getThroughput()
+		{
+			long time = System.currentTimeMillis();
+
+			if(sampleTime == 0)
+			{
+				sampleTime = time;
+				sampleRecords = action.getRecordsCounter();
+				throughput = getAverageThroughput();
+			}
+			else if(time - sampleTime >= 1000)
+			{
+				throughput = Math.round((action.getRecordsCounter() - sampleRecords) * 100000.0 / (time - sampleTime)) / 100.0;
+				sampleTime = time;
+				sampleRecords = action.getRecordsCounter();
+			}
+
+			return throughput;
+		}
+
+		/**
+		 * Get estimated time to completion, based on the total number of records and on the average throughput.
+		 *
+		 * @return estimated time in milliseconds or -1 if the total number of records is not known
+		 */
+		public long getEstimatedTime()
+		{
+			double rate = getAverageThroughput();
+
+			if(action.getDataCount() >= 0 && rate > 0) return (long) (Math.max(action.getDataCount() - action.getRecordsCounter(), 0) * 1000 / rate);
+				else return -1;
+		}
+
+		/**
+		 * Get progress message: throughput, estimated time to completion and processing stages breakdown.
+		 *
+		 * @return progress message or null if the action didn't start yet to process entries
+		 */
+		public String getProgressMessage()
+		{
+			if(action.getRecordsCounter() <= 0) return null;
+
+			StringBuffer message = new StringBuffer();
+			message.append(getThroughput()).append(" records/sec (average ").append(getAverageThroughput()).append(" records/sec)");
+
+			long eta = getEstimatedTime();
+			if(eta >= 0) message.append(", ").append(action.getRecordsCounter()).append("/").append(action.getDataCount()).append(" entries, ETA ").append(DurationFormatUtility.formatDurationHMS(eta));
+
+			Map<String, Long> times = action.getStageTimes();
+
+			if(!times.isEmpty())
+			{
+				long total = 0;
+				Iterator<Long> values = times.values().iterator();
+				while(values.hasNext()) total += values.next();
+
+				message.append(", stages:");
+				Iterator<String> iterator = times.keySet().iterator();
+
+				while(iterator.hasNext())
+				{
+					String stage = iterator.next();
+					long time = times.get(stage);
+
+					message.append(" ").append(stage).append("=").append(DurationFormatUtility.formatDurationHMS(time));
+					if(total > 0) message.append(" (").append(time * 100 / total).append("%)");
+				}
+			}
+
+			return message.toString();
+		}
+
 		public void setCallerSignature(String signature)
 		{
 			this.signature = signature;
@@ -230,7 +230,7 @@ public class FormData extends BaseData
 				setMultiPartForms(entry);
 
 				//execute transactions
-				((MultiPartItem)entry).commitParts(getServerConnection(), getMultiPartQueryFields(), getMultiPartDataFields());
+				((MultiPartItem)entry).commitParts(getServerConnection(), getMultiPartQueryFields(), getMultiPartDataFields(), getConfiguration().getBoolean("multipartbulk", false));
 			}
 		}
 		else if(getConfiguration().getBoolean("updateifexists", false) && entry.exists()) runUpdate(entry);
@@ -252,7 +252,7 @@ public class FormData extends BaseData
 				setMultiPartForms(entry);
 
 				//execute transactions
-				((MultiPartItem) entry).commitParts(getServerConnection(), getMultiPartQueryFields(), getMultiPartDataFields());
+				((MultiPartItem) entry).commitParts(getServerConnection(), getMultiPartQueryFields(), getMultiPartDataFields(), getConfiguration().getBoolean("multipartbulk", false));
 			}
 		}
 		else if(getConfiguration().getBoolean("createifnotexist", false) && !entry.exists()) runCreate(entry);
@@ -15,6 +15,7 @@ package org.areasy.runtime.actions.flow;
 
 import com.bmc.arsys.api.Constants;
 import com.bmc.arsys.api.Field;
+import com.bmc.arsys.api.OutputInteger;
 import com.bmc.arsys.api.SortInfo;
 import org.areasy.common.data.BooleanUtility;
 import org.areasy.common.data.NumberUtility;
@@ -54,6 +55,15 @@ public class DataTransferAction extends FlowPatternAction
 	private String lastRequestId = null;
 	private Map dictionary = null;
 
+	/** Source records read in advance for lookup prefetch: source structure, source data and data-source cursor */
+	private LinkedList<Object[]> prefetchBuffer = null;
+	/** Target entries found by lookup prefetch, indexed by lookup key */
+	private Map<String, CoreItem> prefetchLookups = null;
+	/** Data-source cursor of the current record, when lookup prefetch is used */
+	private String prefetchCursor = null;
+	/** Data read from the data-source for the last source record */
+	private Map sourceData = null;
+
 	/**
 	 * Execute action's workflow.
 	 *
@@ -144,50 +154,100 @@ public class DataTransferAction extends FlowPatternAction
 		//initialize data dictionary for ETL
 		initDictionary();
 
+		//get total number of records to estimate the time to completion (before the data-source is positioned)
+		if(getConfiguration().getBoolean("estimate", false) && dataSource != null) setDataCount(dataSource.getDataCount());
+
+		//position data-source on the last recorded checkpoint
+		String cursor = getResumeCursor();
+
+		if(dataSource != null) dataSource.setCheckpoint(cursor);
+			else if(cursor != null) lastRequestId = cursor;
+
+		//get content fingerprints store
+		FlowFingerprints fingerprints = getFingerprints();
+		String fingerprintPrefix = transformationContent != null ? String.valueOf(transformationContent.hashCode()) + "|" : "";
+		String fingerprintKey = null;
+		String fingerprintContent = null;
+
 		do
 		{
 			//get source
-			source = getNextSourceObject();
+			long stage = getStageStart();
+			source = getNextPrefetchedSourceObject(lookupData, operation);
+			addStageTime("read", stage);
 
 			//if source object is not null processing it
 			if(source != null)
 			{
 				//increment number of records processed
 				setRecordsCounter();
+				fingerprintKey = null;
 
 				try
 				{
 					//get target structure
 					target = getTargetStructure(source);
 
-					//handle first part of operation call (commit)
-					if(StringUtility.equals(operation, "commit"))
+					//skip records having the same content as in the last execution (fingerprint mode)
+					boolean unchanged = false;
+
+					if(fingerprints != null)
 					{
-						applyTargetLookup(target, lookupData, source);
-					}
+						fingerprintKey = getFingerprintKey(target, source, lookupData);
+						fingerprintContent = fingerprintPrefix + getFingerprintContent(source, map);
+						unchanged = fingerprints.isUnchanged(fingerprintKey, fingerprintContent);
 
-					//apply mapping between source and target
-					applyMapping(target, source, map);
+						if(unchanged) logger.debug("Record skipped because its content has not been changed since the last execution: " + fingerprintKey);
+					}
 
-					//data transformation
-					if(transformationContent != null)
+					if(!unchanged)
 					{
-						initContext();
-						getContext().put("target", target);
-						getContext().put("source", source);
+						//handle first part of operation call (commit)
+						if(StringUtility.equals(operation, "commit"))
+						{
+							stage = getStageStart();
+							applyTargetLookup(target, lookupData, source);
+							addStageTime("lookup", stage);
+						}
 
-						String output = ProcessorLevel0Reader.parseText(getContext(), transformationContent);
-						logger.debug("Transformation results: " + output);
-						setNullContext();
-					}
+						//apply mapping between source and target
+						stage = getStageStart();
+						applyMapping(target, source, map);
+						addStageTime("mapping", stage);
 
-					//execute data development workflow
-					develop(source, target, map, operation);
+						//data transformation
+						if(transformationContent != null)
+						{
+							stage = getStageStart();
+							initContext();
+							getContext().put("target", target);
+							getContext().put("source", source);
+
+							String output = ProcessorLevel0Reader.parseText(getContext(), transformationContent);
+							logger.debug("Transformation results: " + output);
+							setNullContext();
+							addStageTime("transform", stage);
+						}
+
+						//execute data development workflow
+						stage = getStageStart();
+						develop(source, target, map, operation);
+						addStageTime("develop", stage);
+
+						//the prefetched lookup is not valid anymore (the target has been created or changed)
+						if(prefetchLookups != null) prefetchLookups.remove(getPrefetchKey(source, lookupData));
+
+						//record the content fingerprint
+						if(fingerprints != null) fingerprints.put(fingerprintKey, fingerprintContent);
+					}
 				}
 				catch(Throwable th)
 				{
 					setErrorsCounter();
 
+					//force record processing in the next execution
+					if(fingerprints != null && fingerprintKey != null) fingerprints.remove(fingerprintKey);
+
 					String errorMsg = "Error running action for '" + getRecordsCounter() + "' record: ";
 					errorMsg += th.getMessage() + ". Target: " + target + ". Source: " + source;
 
@@ -201,19 +261,314 @@ public class DataTransferAction extends FlowPatternAction
 					if(getConfiguration().getBoolean("cleanup", true)) cleanup(target);
 				}
 
+				//record checkpoint (if the interval has been reached)
+				setCheckpoint(getSourceCheckpoint(), false);
+
 				//evaluate cycle limitation
-				if(limit > 0 && limit <= getRecordsCounter()) nextLoop = false;
+				if(limit > 0 && limit <= getRecordsCounter())
+				{
+					nextLoop = false;
+					setCheckpoint(getSourceCheckpoint(), true);
+				}
 
 				// check interruption and and exit if the execution was really interrupted
 				if(isInterrupted())
 				{
+					if(fingerprints != null) fingerprints.save();
+					setCheckpoint(getSourceCheckpoint(), true);
 					RuntimeLogger.warn("Execution interrupted by user");
 					return;
 				}
 			}
-			else nextLoop = false;
+			else
+			{
+				nextLoop = false;
+
+				//remove checkpoint and record watermark when data-source has been completely processed
+				clearCheckpoint();
+				commitWatermark();
+			}
 		}
 		while(nextLoop);
+
+		//record content fingerprints
+		if(fingerprints != null) fingerprints.save();
+	}
+
+	/**
+	 * Get the key of a target record, used to identify its content fingerprint. The key is built using target form name
+	 * and the source values of lookup fields (or source request id if no lookup field is defined).
+	 *
+	 * @param target target structure
+	 * @param source source structure
+	 * @param lookupData list of lookup field ids
+	 * @return target record key
+	 */
+	protected String getFingerprintKey(CoreItem target, CoreItem source, List lookupData)
+	{
+		StringBuffer key = new StringBuffer(target.getFormName());
+
+		if(lookupData != null && !lookupData.isEmpty())
+		{
+			for(int i = 0; i < lookupData.size(); i++)
+			{
+				key.append('|').append(source.getAttributeValue(NumberUtility.toInt((String) lookupData.get(i))));
+			}
+		}
+		else key.append('|').append(source.getEntryId());
+
+		return key.toString();
+	}
+
+	/**
+	 * Get the content of a source record that is transferred to the target, used to calculate its fingerprint.
+	 * The content is built from the mapped source values, ordered by target field id, or from all source values
+	 * if no mapping is defined.
+	 *
+	 * @param source source structure
+	 * @param map the map structure between source and target
+	 * @return source record content
+	 */
+	protected String getFingerprintContent(CoreItem source, Map<Integer, Object> map)
+	{
+		StringBuffer content = new StringBuffer();
+
+		if(map != null && !map.isEmpty())
+		{
+			Iterator iterator = new TreeMap(map).entrySet().iterator();
+
+			while(iterator.hasNext())
+			{
+				Map.Entry entry = (Map.Entry) iterator.next();
+				Object value = entry.getValue();
+
+				if(value instanceof Integer) value = source.getAttributeValue(((Integer) value).intValue());
+				content.append(entry.getKey()).append('=').append(value).append('|');
+			}
+		}
+		else
+		{
+			Iterator iterator = new TreeSet(source.getAttributeIds()).iterator();
+
+			while(iterator.hasNext())
+			{
+				Object id = iterator.next();
+				content.append(id).append('=').append(source.getAttributeValue(String.valueOf(id))).append('|');
+			}
+		}
+
+		return content.toString();
+	}
+
+	/**
+	 * Get the cursor of the last source record, from the data-source or from the remote search.
+	 *
+	 * @return data-source cursor or null
+	 */
+	protected String getSourceCheckpoint()
+	{
+		if(prefetchBuffer != null) return prefetchCursor;
+			else if(dataSource != null) return dataSource.getCheckpoint();
+				else return lastRequestId;
+	}
+
+	/**
+	 * Get next source object, reading in advance a chunk of source records (the chunk size is given by <code>prefetch</code>
+	 * option) in order to resolve the target lookups of the whole chunk through a few searches. Without <code>prefetch</code>
+	 * option or for merge operations this method simply returns the next source object.
+	 *
+	 * @param lookupData list of lookup field ids
+	 * @param operation operation that is asked to be executed
+	 * @return source object found in source repository
+	 * @throws AREasyException is any error will occur
+	 */
+	protected CoreItem getNextPrefetchedSourceObject(List lookupData, String operation) throws AREasyException
+	{
+		int chunk = getConfiguration().getInt("prefetch", 0);
+		if(chunk <= 1 || !StringUtility.equals(operation, "commit")) return getNextSourceObject();
+
+		if(prefetchBuffer == null) prefetchBuffer = new LinkedList<Object[]>();
+
+		if(prefetchBuffer.isEmpty())
+		{
+			List<CoreItem> sources = new ArrayList<CoreItem>();
+
+			for(int i = 0; i < chunk; i++)
+			{
+				CoreItem source = getNextSourceObject();
+				if(source == null) break;
+
+				sources.add(source);
+				prefetchBuffer.add(new Object[] {source, sourceData, dataSource != null ? dataSource.getCheckpoint() : lastRequestId});
+			}
+
+			if(!sources.isEmpty()) prefetchTargetLookup(sources, lookupData);
+		}
+
+		if(prefetchBuffer.isEmpty()) return null;
+
+		Object record[] = prefetchBuffer.removeFirst();
+		prefetchCursor = (String) record[2];
+
+		//publish source data for the current record
+		if(record[1] != null) setSourceData((Map) record[1]);
+
+		return (CoreItem) record[0];
+	}
+
+	/**
+	 * Resolve the target lookups for a chunk of source records. The lookup values are combined in OR-qualified searches
+	 * and the found target entries are kept in a prefetch buffer, used by <code>applyTargetLookup</code> method. Source
+	 * records having lookup values that couldn't be expressed in a qualification are not prefetched and they are
+	 * read individually.
+	 * <p>
+	 * The found entries are matched with the source records using a normalized key (trimmed and lower case, like the
+	 * server could compare the values). Keys having matches that are not exact or not unique are left to individual
+	 * reads and a lookup is marked as not found only if the search delivered all the matching entries (the server
+	 * didn't truncate the list).
+	 *
+	 * @param sources chunk of source records
+	 * @param lookupData list of lookup field ids
+	 * @throws AREasyException is any error will occur
+	 */
+	protected void prefetchTargetLookup(List<CoreItem> sources, List lookupData) throws AREasyException
+	{
+		if(lookupData == null)
+		{
+			lookupData = new Vector();
+			lookupData.add("1");
+		}
+
+		prefetchLookups = new HashMap<String, CoreItem>();
+		Map<String, String> keys = new HashMap<String, String>();
+		StringBuffer qualification = new StringBuffer();
+		CoreItem target = null;
+
+		for(int i = 0; i < sources.size(); i++)
+		{
+			CoreItem source = sources.get(i);
+			String key = getPrefetchKey(source, lookupData);
+			if(keys.containsKey(key)) continue;
+
+			StringBuffer condition = new StringBuffer();
+
+			for(int x = 0; condition != null && x < lookupData.size(); x++)
+			{
+				int fieldId = NumberUtility.toInt((String) lookupData.get(x));
+				Object value = fieldId == 1 ? source.getEntryId() : source.getAttributeValue(fieldId);
+
+				if(fieldId <= 0 || !(value == null || value instanceof String || value instanceof Integer) || String.valueOf(value).indexOf('"') >= 0) condition = null;
+				else
+				{
+					if(condition.length() > 0) condition.append(" AND ");
+
+					if(value == null) condition.append("'").append(fieldId).append("' = $NULL$");
+						else condition.append("'").append(fieldId).append("' = \"").append(value).append("\"");
+				}
+			}
+
+			if(condition != null && condition.length() > 0)
+			{
+				if(target == null) target = getTargetStructure(source);
+				if(qualification.length() > 0) qualification.append(" OR ");
+
+				qualification.append("(").append(condition).append(")");
+				keys.put(key, getPrefetchKey(source, lookupData, true));
+			}
+		}
+
+		if(target == null || keys.isEmpty()) return;
+
+		OutputInteger matches = new OutputInteger();
+		List list = target.search(getServerConnection(), qualification.toString(), 0, matches);
+		boolean complete = list == null || matches.intValue() == list.size();
+
+		//group the found entries by normalized key
+		Map<String, List<CoreItem>> found = new HashMap<String, List<CoreItem>>();
+
+		for(int i = 0; list != null && i < list.size(); i++)
+		{
+			CoreItem item = (CoreItem) list.get(i);
+			String key = getPrefetchKey(item, lookupData, true);
+
+			List<CoreItem> items = found.get(key);
+			if(items == null) found.put(key, items = new ArrayList<CoreItem>());
+
+			items.add(item);
+		}
+
+		Iterator<String> iterator = keys.keySet().iterator();
+		int resolved = 0;
+
+		while(iterator.hasNext())
+		{
+			String key = iterator.next();
+			List<CoreItem> items = found.get(keys.get(key));
+			boolean exact = items != null;
+
+			for(int i = 0; exact && i < items.size(); i++) exact = key.equals(getPrefetchKey(items.get(i), lookupData));
+
+			//keep only the first exact match, like an individual read; not found lookups are marked only for complete searches
+			if(items == null && complete) prefetchLookups.put(key, null);
+				else if(exact && (items.size() == 1 || target.isFirstMatchReading())) prefetchLookups.put(key, items.get(0));
+					else continue;
+
+			resolved++;
+		}
+
+		if(!complete) logger.debug("Lookup prefetch search has been truncated by the server (" + list.size() + " of " + matches.intValue() + " entries), not found keys will be read individually");
+		logger.debug("Lookup prefetch: " + resolved + " of " + keys.size() + " distinct keys resolved with one search, " + (list != null ? list.size() : 0) + " target entries found");
+	}
+
+	/**
+	 * Get lookup key of a source (or target) structure, composed by the values of lookup fields.
+	 *
+	 * @param item source or target structure
+	 * @param lookupData list of lookup field ids
+	 * @return lookup key
+	 */
+	protected String getPrefetchKey(CoreItem item, List lookupData)
+	{
+		return getPrefetchKey(item, lookupData, false);
+	}
+
+	/**
+	 * Get lookup key of a source (or target) structure, composed by the values of lookup fields.
+	 *
+	 * @param item source or target structure
+	 * @param lookupData list of lookup field ids
+	 * @param normalized true to build the key with trimmed and lower case values
+	 * @return lookup key
+	 */
+	private String getPrefetchKey(CoreItem item, List lookupData, boolean normalized)
+	{
+		StringBuffer key = new StringBuffer();
+
+		if(lookupData == null) key.append(normalized ? normalizePrefetchValue(item.getEntryId()) : item.getEntryId());
+		else
+		{
+			for(int i = 0; i < lookupData.size(); i++)
+			{
+				int fieldId = NumberUtility.toInt((String) lookupData.get(i));
+				String value = String.valueOf(fieldId == 1 ? item.getEntryId() : item.getAttributeValue(fieldId));
+
+				if(i > 0) key.append('|');
+				key.append(normalized ? normalizePrefetchValue(value) : value);
+			}
+		}
+
+		return key.toString();
+	}
+
+	/**
+	 * Normalize a lookup value in the way the server could compare the values: trimmed and case insensitive.
+	 *
+	 * @param value lookup value
+	 * @return normalized value
+	 */
+	private String normalizePrefetchValue(String value)
+	{
+		return value != null ? value.trim().toLowerCase() : null;
 	}
 
 	/**
@@ -251,7 +606,7 @@ public class DataTransferAction extends FlowPatternAction
 
 		if(getConfiguration().getBoolean("multipart", false) && target instanceof MultiPartItem)
 		{
-			((MultiPartItem)target).commitParts(getServerConnection());
+			((MultiPartItem)target).commitParts(getServerConnection(), getConfiguration().getBoolean("multipartbulk", false));
 		}
 	}
 
@@ -295,6 +650,7 @@ public class DataTransferAction extends FlowPatternAction
 				parser.setResource("startindex", getConfiguration().getInt("dictionarystartindex", 0));
 				parser.setResource("endindex", getConfiguration().getInt("dictionaryendindex", 0));
 				parser.setResource("pageindex", getConfiguration().getInt("dictionarypageindex", 0));
+				parser.setResource("parserstringsmemory", getConfiguration().getString("parserstringsmemory", null));
 
 				parser.init();
 
@@ -546,8 +902,44 @@ public class DataTransferAction extends FlowPatternAction
 				else RuntimeLogger.debug("Lookup field ignored: " + stringFieldId);
 		}
 
-		//read target data for commit operation.
-		target.read(getServerConnection());
+		//read target data for commit operation (or take it from lookup prefetch).
+		String key = prefetchLookups != null ? getPrefetchKey((CoreItem)source, lookupData) : null;
+
+		if(key != null && prefetchLookups.containsKey(key))
+		{
+			CoreItem item = prefetchLookups.get(key);
+
+			if(item != null)
+			{
+				Map data = new HashMap();
+				List ids = item.getAttributeIds();
+
+				for(int i = 0; i < ids.size(); i++) data.put(ids.get(i), item.getAttributeValue(String.valueOf(ids.get(i))));
+				data.put("1", item.getEntryId());
+
+				target.setDefaultData(data);
+			}
+		}
+		else target.read(getServerConnection());
+	}
+
+	/**
+	 * Publish source data in action configuration, to be referred through <code>D</code> data parameters.
+	 *
+	 * @param map source data
+	 */
+	protected void setSourceData(Map map)
+	{
+		sourceData = map;
+		Iterator iterator = map.keySet().iterator();
+
+		while(iterator != null && iterator.hasNext())
+		{
+			String key = (String) iterator.next();
+			Object value = map.get(key);
+
+			getConfiguration().setKey(FDATA + key, value);
+		}
 	}
 
 	/**
@@ -566,15 +958,7 @@ public class DataTransferAction extends FlowPatternAction
 			{
 				CoreItem source = getSourceStructure();
 				source.setDefaultData(map);
-
-				Iterator iterator = map.keySet().iterator();
-				while(iterator != null && iterator.hasNext())
-				{
-					String key = (String) iterator.next();
-					Object value = map.get(key);
-
-					getConfiguration().setKey(FDATA + key, value);
-				}
+				setSourceData(map);
 
 				return source;
 			}
@@ -595,6 +979,18 @@ public class DataTransferAction extends FlowPatternAction
 				//translate qualification
 				if(remoteQualification != null) remoteQualification = getTranslatedQualification(remoteQualification);
 
+				//build part of qualification for incremental mode
+				FlowWatermark watermark = getWatermark("6");
+
+				if(watermark != null && watermark.getLowerBoundText() != null)
+				{
+					String watermarkField = NumberUtility.isNumber(watermark.getField()) ? "'" + watermark.getField() + "'" : watermark.getField();
+					String watermarkQualification = watermarkField + " >= " + watermark.getLowerBoundText();
+
+					if(remoteQualification != null) remoteQualification = "(" + remoteQualification + ") AND (" + watermarkQualification + ")";
+						else remoteQualification = watermarkQualification;
+				}
+
 				//build part of qualification which should delivered next chunks.
 				if(lastRequestId != null) requestIdQualification = "'1' > \"" + lastRequestId + "\"";
 
@@ -636,6 +1032,10 @@ public class DataTransferAction extends FlowPatternAction
 				{
 					lastRequestId = source.getEntryId();
 
+					//track watermark value
+					FlowWatermark watermark = getWatermark("6");
+					if(watermark != null) watermark.update(source.getAttributeValue(watermark.getField()));
+
 					//validate sourceIndex
 					if(searchList.size() == sourceIndex)
 					{
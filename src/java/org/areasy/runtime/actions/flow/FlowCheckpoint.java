@@ -0,0 +1,220 @@
+package org.areasy.runtime.actions.flow;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import org.areasy.common.data.StringUtility;
+import org.areasy.common.support.configuration.ConfigurationException;
+import org.areasy.common.support.configuration.providers.properties.stream.PropertiesConfiguration;
+import org.areasy.runtime.RuntimeManager;
+import org.areasy.runtime.engine.RuntimeLogger;
+import org.areasy.runtime.engine.base.AREasyException;
+
+import java.io.File;
+import java.util.Date;
+
+/**
+ * Durable job state stored in a small properties file on AREasy file system (by default in "Work" folder). The state
+ * keeps the data-source cursor and the job counters in order to resume an interrupted data flow from the last
+ * recorded position, instead of starting again from the first record.
+ */
+public class FlowCheckpoint
+{
+	/** Cursor key in the state file */
+	public static final String CURSOR = "cursor";
+
+	/** Records counter key in the state file */
+	public static final String RECORDS = "records";
+
+	/** Errors counter key in the state file */
+	public static final String ERRORS = "errors";
+
+	/** State file */
+	private File file = null;
+
+	/** State content */
+	private PropertiesConfiguration state = null;
+
+	/** Number of records between two consecutive checkpoints */
+	private int interval = 0;
+
+	/**
+	 * Create (or load if it already exists) the state file for the specified job.
+	 *
+	 * @param name state name, used as file name prefix
+	 * @param job job identifier (instance id or action code)
+	 * @param fileName explicit state file name or null to use the default location
+	 * @param interval number of records between two consecutive checkpoints
+	 * @throws AREasyException if the existing state file couldn't be read
+	 */
+	public FlowCheckpoint(String name, String job, String fileName, int interval) throws AREasyException
+	{
+		this.interval = interval;
+
+		if(StringUtility.isNotEmpty(fileName)) file = new File(fileName);
+			else file = new File(RuntimeManager.getWorkingDirectory(), name + "-" + StringUtility.variable(job) + ".properties");
+
+		if(file.exists())
+		{
+			try
+			{
+				state = new PropertiesConfiguration(file.getPath());
+			}
+			catch(ConfigurationException ce)
+			{
+				throw new AREasyException("Error reading job state file '" + file.getPath() + "': " + ce.getMessage(), ce);
+			}
+		}
+		else state = new PropertiesConfiguration();
+	}
+
+	/**
+	 * Get state file.
+	 *
+	 * @return <code>File</code> instance
+	 */
+	public File getFile()
+	{
+		return this.file;
+	}
+
+	/**
+	 * Check if a previous checkpoint has been recorded.
+	 *
+	 * @return true if the state file contains a cursor
+	 */
+	public boolean exists()
+	{
+		return file.exists() && state.containsKey(CURSOR);
+	}
+
+	/**
+	 * Get last recorded cursor.
+	 *
+	 * @return data-source cursor or null
+	 */
+	public String getCursor()
+	{
+		return state.getString(CURSOR, null);
+	}
+
+	/**
+	 * Get number of records processed until the last checkpoint.
+	 *
+	 * @return records counter
+	 */
+	public int getRecordsCounter()
+	{
+		return state.getInt(RECORDS, 0);
+	}
+
+	/**
+	 * Get number of errors discovered until the last checkpoint.
+	 *
+	 * @return errors counter
+	 */
+	public int getErrorsCounter()
+	{
+		return state.getInt(ERRORS, 0);
+	}
+
+	/**
+	 * Get a custom value stored in the state file.
+	 *
+	 * @param key value key
+	 * @return stored value or null
+	 */
+	public String getValue(String key)
+	{
+		return state.getString(key, null);
+	}
+
+	/**
+	 * Set a custom value in the state file. The value is persisted at the next <code>save</code> call.
+	 *
+	 * @param key value key
+	 * @param value value to be stored
+	 */
+	public void setValue(String key, String value)
+	{
+		if(value != null) state.setKey(key, value);
+			else if(state.containsKey(key)) state.removeKey(key);
+	}
+
+	/**
+	 * Check if a new checkpoint has to be recorded for the specified number of processed records.
+	 *
+	 * @param records number of processed records
+	 * @return true if the checkpoint interval has been reached
+	 */
+	public boolean isDue(int records)
+	{
+		return interval > 0 && records > 0 && records % interval == 0;
+	}
+
+	/**
+	 * Record a new checkpoint.
+	 *
+	 * @param cursor data-source cursor
+	 * @param records number of processed records
+	 * @param errors number of discovered errors
+	 */
+	public void save(String cursor, int records, int errors)
+	{
+		if(cursor == null) return;
+
+		state.setKey(CURSOR, cursor);
+		state.setKey(RECORDS, String.valueOf(records));
+		state.setKey(ERRORS, String.valueOf(errors));
+		state.setKey("timestamp", String.valueOf(new Date().getTime()));
+
+		save();
+	}
+
+	/**
+	 * Write the state content in the state file.
+	 */
+	public void save()
+	{
+		try
+		{
+			state.save(file.getPath());
+		}
+		catch(ConfigurationException ce)
+		{
+			RuntimeLogger.warn("Error writing job state file '" + file.getPath() + "': " + ce.getMessage());
+		}
+	}
+
+	/**
+	 * Remove the recorded cursor and counters and delete the state file if it doesn't contain other values.
+	 */
+	public void clear()
+	{
+		if(state.containsKey(CURSOR)) state.removeKey(CURSOR);
+		if(state.containsKey(RECORDS)) state.removeKey(RECORDS);
+		if(state.containsKey(ERRORS)) state.removeKey(ERRORS);
+		if(state.containsKey("timestamp")) state.removeKey("timestamp");
+
+		if(state.isEmpty())
+		{
+			if(file.exists() && !file.delete()) file.deleteOnExit();
+		}
+		else save();
+	}
+
+	public String toString()
+	{
+		return "FlowCheckpoint [File = " + file.getPath() + ", Cursor = " + getCursor() + ", Records = " + getRecordsCounter() + ", Errors = " + getErrorsCounter() + "]";
+	}
+}
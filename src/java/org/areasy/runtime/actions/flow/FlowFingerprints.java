@@ -0,0 +1,325 @@
+package org.areasy.runtime.actions.flow;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import org.areasy.common.data.StringUtility;
+import org.areasy.runtime.RuntimeManager;
+import org.areasy.runtime.engine.RuntimeLogger;
+import org.areasy.runtime.engine.base.AREasyException;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content fingerprints store of a data flow. The store maps the key of each target record to a hash of the values
+ * transferred in the last execution, in order to skip the records that haven't been changed since then, before any
+ * read or write call to the target server.
+ * <p>
+ * Keys and values are kept as 64 bits hashes in an open addressing table (two primitive arrays) so the store stays
+ * compact even for millions of records, and it is persisted in a binary file on AREasy file system.
+ */
+public class FlowFingerprints
+{
+	/** Empty slot marker */
+	private static final long EMPTY = 0L;
+
+	/** Store file */
+	private File file = null;
+
+	/** Table keys */
+	private long keys[] = null;
+
+	/** Table values */
+	private long values[] = null;
+
+	/** Number of entries in the table */
+	private int size = 0;
+
+	/** Flag showing that the store has been changed since loading */
+	private boolean changed = false;
+
+	/** Hash calculator */
+	private MessageDigest digest = null;
+
+	/**
+	 * Create (or load if it already exists) the fingerprints store for the specified job.
+	 *
+	 * @param job job identifier (instance id or action code)
+	 * @param fileName explicit store file name or null to use the default location
+	 * @throws AREasyException if the existing store file couldn't be read
+	 */
+	public FlowFingerprints(String job, String fileName) throws AREasyException
+	{
+		if(StringUtility.isNotEmpty(fileName)) file = new File(fileName);
+			else file = new File(RuntimeManager.getWorkingDirectory(), "fingerprints-" + StringUtility.variable(job) + ".dat");
+
+		try
+		{
+			digest = MessageDigest.getInstance("MD5");
+		}
+		catch(NoSuchAlgorithmException nsae)
+		{
+			throw new AREasyException("Error initializing fingerprints hash algorithm: " + nsae.getMessage(), nsae);
+		}
+
+		load();
+	}
+
+	/**
+	 * Get store file.
+	 *
+	 * @return <code>File</code> instance
+	 */
+	public File getFile()
+	{
+		return this.file;
+	}
+
+	/**
+	 * Get number of fingerprints found in the store.
+	 *
+	 * @return number of fingerprints
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Calculate the 64 bits hash of the specified text.
+	 *
+	 * @param text text to be hashed
+	 * @return hash value (never 0, which is reserved for empty slots)
+	 */
+	public long hash(String text)
+	{
+		byte data[];
+
+		try
+		{
+			data = digest.digest(String.valueOf(text).getBytes("UTF-8"));
+		}
+		catch(UnsupportedEncodingException uee)
+		{
+			data = digest.digest(String.valueOf(text).getBytes());
+		}
+
+		long hash = 0;
+		for(int i = 0; i < 8; i++) hash = (hash << 8) | (data[i] & 0xFF);
+
+		return hash != EMPTY ? hash : 1L;
+	}
+
+	/**
+	 * Check if the record identified by the specified key has the same fingerprint as in the last execution.
+	 *
+	 * @param key record key
+	 * @param content record content
+	 * @return true if the content has not been changed
+	 */
+	public boolean isUnchanged(String key, String content)
+	{
+		int slot = find(hash(key));
+
+		return keys[slot] != EMPTY && values[slot] == hash(content);
+	}
+
+	/**
+	 * Record the fingerprint of the specified record.
+	 *
+	 * @param key record key
+	 * @param content record content
+	 */
+	public void put(String key, String content)
+	{
+		long hKey = hash(key);
+		long hValue = hash(content);
+		int slot = find(hKey);
+
+		if(keys[slot] == EMPTY)
+		{
+			keys[slot] = hKey;
+			values[slot] = hValue;
+			size++;
+			changed = true;
+
+			if(size * 4 > keys.length * 3) resize(keys.length * 2);
+		}
+		else if(values[slot] != hValue)
+		{
+			values[slot] = hValue;
+			changed = true;
+		}
+	}
+
+	/**
+	 * Remove the fingerprint of the specified record, forcing it to be processed again in the next execution.
+	 *
+	 * @param key record key
+	 */
+	public void remove(String key)
+	{
+		int slot = find(hash(key));
+		if(keys[slot] == EMPTY) return;
+
+		keys[slot] = EMPTY;
+		values[slot] = EMPTY;
+		size--;
+		changed = true;
+
+		//re-insert the entries of the same cluster
+		int mask = keys.length - 1;
+
+		for(int i = (slot + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask)
+		{
+			long hKey = keys[i];
+			long hValue = values[i];
+
+			keys[i] = EMPTY;
+			values[i] = EMPTY;
+
+			int newSlot = find(hKey);
+			keys[newSlot] = hKey;
+			values[newSlot] = hValue;
+		}
+	}
+
+	/**
+	 * Write the store in the file, if it has been changed.
+	 */
+	public void save()
+	{
+		if(!changed) return;
+
+		DataOutputStream output = null;
+
+		try
+		{
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+			output.writeInt(size);
+
+			for(int i = 0; i < keys.length; i++)
+			{
+				if(keys[i] != EMPTY)
+				{
+					output.writeLong(keys[i]);
+					output.writeLong(values[i]);
+				}
+			}
+
+			changed = false;
+		}
+		catch(IOException ioe)
+		{
+			RuntimeLogger.warn("Error writing fingerprints file '" + file.getPath() + "': " + ioe.getMessage());
+		}
+		finally
+		{
+			try
+			{
+				if(output != null) output.close();
+			}
+			catch(IOException ioe) { /* nothing to do */ }
+		}
+	}
+
+	private void load() throws AREasyException
+	{
+		if(!file.exists())
+		{
+			init(1024);
+			return;
+		}
+
+		DataInputStream input = null;
+
+		try
+		{
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+			int count = input.readInt();
+
+			init(Math.max(1024, count * 2));
+
+			for(int i = 0; i < count; i++)
+			{
+				long hKey = input.readLong();
+				long hValue = input.readLong();
+				int slot = find(hKey);
+
+				if(keys[slot] == EMPTY) size++;
+				keys[slot] = hKey;
+				values[slot] = hValue;
+			}
+		}
+		catch(IOException ioe)
+		{
+			throw new AREasyException("Error reading fingerprints file '" + file.getPath() + "': " + ioe.getMessage(), ioe);
+		}
+		finally
+		{
+			try
+			{
+				if(input != null) input.close();
+			}
+			catch(IOException ioe) { /* nothing to do */ }
+		}
+	}
+
+	private void init(int capacity)
+	{
+		int length = 1;
+		while(length < capacity) length <<= 1;
+
+		keys = new long[length];
+		values = new long[length];
+		size = 0;
+	}
+
+	private void resize(int capacity)
+	{
+		long oldKeys[] = keys;
+		long oldValues[] = values;
+		int oldSize = size;
+
+		init(capacity);
+
+		for(int i = 0; i < oldKeys.length; i++)
+		{
+			if(oldKeys[i] != EMPTY)
+			{
+				int slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+
+		size = oldSize;
+	}
+
+	private int find(long hKey)
+	{
+		int mask = keys.length - 1;
+		int slot = (int)(hKey ^ (hKey >>> 32)) & mask;
+
+		while(keys[slot] != EMPTY && keys[slot] != hKey) slot = (slot + 1) & mask;
+
+		return slot;
+	}
+
+	public String toString()
+	{
+		return "FlowFingerprints [File = " + file.getPath() + ", Size = " + size + "]";
+	}
+}
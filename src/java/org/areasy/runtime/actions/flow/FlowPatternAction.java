@@ -65,6 +65,24 @@ public abstract class FlowPatternAction extends BaseData implements RuntimeActio
 	/** private dedicated flag for logger to log or notify only one time (even if the ask method execution for many times */
 	private boolean loggerClosed = false;
 
+	/** Output entries waiting to be recorded in the job logger */
+	private List<CoreItem> loggerOutputBuffer = new ArrayList<CoreItem>();
+
+	/** Time of the last output buffer flush */
+	private long loggerOutputFlushTime = System.currentTimeMillis();
+
+	/** Job checkpoint used to resume interrupted data flows */
+	private FlowCheckpoint checkpoint = null;
+
+	/** Job watermark used to run incremental data flows */
+	private FlowWatermark watermark = null;
+
+	/** Flag telling that the incremental mode settings have been already resolved */
+	private boolean watermarkResolved = false;
+
+	/** Job content fingerprints used to skip unchanged records */
+	private FlowFingerprints fingerprints = null;
+
 	static
 	{
 		sources.put("No Data", "org.areasy.runtime.actions.process.sources.NoDataSource");
@@ -79,6 +97,7 @@ public abstract class FlowPatternAction extends BaseData implements RuntimeActio
 		sources.put("PostgreSQL Database", "org.areasy.runtime.actions.process.sources.databases.PostgreSQLSource");
 		sources.put("LDAP Entities", "org.areasy.runtime.actions.process.sources.LDAPSource"); //@deprecated
 		sources.put("LDAP Server", "org.areasy.runtime.actions.process.sources.LDAPSource");
+		sources.put("Web Service", "org.areasy.runtime.actions.process.sources.WebServiceSource");
 	}
 
 	/**
@@ -160,6 +179,17 @@ public abstract class FlowPatternAction extends BaseData implements RuntimeActio
 	{
 		String cascadeWorkflow = null;
 
+		//record pending output entries (the job entry is closed even if they couldn't be recorded)
+		try
+		{
+			flushLoggerOutput();
+		}
+		catch(Throwable th)
+		{
+			RuntimeLogger.error("Error recording job output entries: " + th.getMessage());
+			logger.debug("Exception", th);
+		}
+
 		//close job entry
 		if(jobEntry != null && jobEntry.exists())
 		{
@@ -282,7 +312,18 @@ public abstract class FlowPatternAction extends BaseData implements RuntimeActio
 
 			try
 			{
-				jobLogger.setAttribute(536870915, status.getStatusMessage());
+				String message = status.getStatusMessage();
+
+				//add throughput, estimated time and stages breakdown while the job is running
+				String progress = !loggerClosed ? status.getProgressMessage() : null;
+
+				if(progress != null)
+				{
+					logger.debug("Job progress: " + progress);
+					message = StringUtility.abbreviate(message + " - " + progress, 255);
+				}
+
+				jobLogger.setAttribute(536870915, message);
 				jobLogger.update(getServerConnection());
 			}
 			catch(AREasyException are)
@@ -669,6 +710,17 @@ public abstract class FlowPatternAction extends BaseData implements RuntimeActio
 		addLoggerOutput(name, null, file);
 	}
 
+	/**
+	 * Add a new output entry in the job logger. The entries are collected in a buffer and recorded together, in a single
+	 * bulk transaction, when the buffer size (<code>outputbuffersize</code> option) or the buffer time (<code>outputbuffertime</code>
+	 * option, in seconds) is reached, or when the action is closed. Entries having attached files are recorded immediately
+	 * because the files could be removed by the caller.
+	 *
+	 * @param name output name
+	 * @param details output details
+	 * @param file output file
+	 * @throws AREasyException if any error will occur
+	 */
 	public void addLoggerOutput(String name, String details, File file) throws AREasyException
 	{
 		if(name == null) throw new AREasyException("'Name' output logger is null");
@@ -685,13 +737,49 @@ public abstract class FlowPatternAction extends BaseData implements RuntimeActio
 			item.setAttribute(536870917, details);
 			item.setAttribute(536870914, file);
 
-			item.create(getServerConnection());
+			loggerOutputBuffer.add(item);
+
+			int bufferSize = getConfiguration().getInt("outputbuffersize", 25);
+			long bufferTime = 1000L * getConfiguration().getInt("outputbuffertime", 60);
+
+			if(file != null || loggerOutputBuffer.size() >= bufferSize || System.currentTimeMillis() - loggerOutputFlushTime >= bufferTime) flushLoggerOutput();
 		}
 		else throw new AREasyException("Logger instance doesn't exist");
 	}
 
+	/**
+	 * Record all buffered output entries in the job logger.
+	 *
+	 * @throws AREasyException if any error will occur
+	 */
+	public void flushLoggerOutput() throws AREasyException
+	{
+		loggerOutputFlushTime = System.currentTimeMillis();
+		if(loggerOutputBuffer.isEmpty()) return;
+
+		List<CoreItem> items = new ArrayList<CoreItem>(loggerOutputBuffer);
+		loggerOutputBuffer.clear();
+
+		String errors[] = CoreItem.create(getServerConnection(), items);
+		int failed = 0;
+
+		for(int i = 0; i < errors.length; i++)
+		{
+			if(errors[i] != null)
+			{
+				logger.warn("Output logger entry couldn't be recorded: " + errors[i]);
+				failed++;
+			}
+		}
+
+		logger.debug("Output logger entries recorded: " + (items.size() - failed));
+	}
+
 	public List getLoggerOutput() throws AREasyException
 	{
+		//record pending output entries
+		flushLoggerOutput();
+
 		if(jobLogger != null && jobLogger.exists())
 		{
 			CoreItem item = new CoreItem();
@@ -1112,6 +1200,138 @@ public abstract class FlowPatternAction extends BaseData implements RuntimeActio
 		RuntimeLogger.error(StringUtility.trim(message));
 	}
 
+	/**
+	 * Get job checkpoint structure. The checkpoint is available only if <code>checkpoint</code> option (number of records
+	 * between two consecutive checkpoints) or <code>resume</code> option are specified.
+	 *
+	 * @return <code>FlowCheckpoint</code> instance or null
+	 * @throws AREasyException if the checkpoint couldn't be loaded
+	 */
+	public FlowCheckpoint getCheckpoint() throws AREasyException
+	{
+		if(checkpoint == null && (getConfiguration().getInt("checkpoint", 0) > 0 || getConfiguration().getBoolean("resume", false)))
+		{
+			String job = getConfiguration().getString("instanceid", getCode());
+			checkpoint = new FlowCheckpoint("checkpoint", job, getConfiguration().getString("checkpointfile", null), getConfiguration().getInt("checkpoint", 1000));
+		}
+
+		return checkpoint;
+	}
+
+	/**
+	 * Read the last recorded checkpoint (only if <code>resume</code> option is specified) and restore job counters.
+	 *
+	 * @return data-source cursor that has to be used to continue data processing or null to start from the beginning
+	 * @throws AREasyException if the checkpoint couldn't be loaded
+	 */
+	public String getResumeCursor() throws AREasyException
+	{
+		if(!getConfiguration().getBoolean("resume", false)) return null;
+
+		if(getCheckpoint() != null && getCheckpoint().exists())
+		{
+			addRecordsCounter(getCheckpoint().getRecordsCounter());
+			addErrorsCounter(getCheckpoint().getErrorsCounter());
+
+			RuntimeLogger.info("Resume job execution from checkpoint: " + getCheckpoint());
+			return getCheckpoint().getCursor();
+		}
+		else
+		{
+			RuntimeLogger.info("No checkpoint found to resume job execution. The data will be processed from the beginning");
+			return null;
+		}
+	}
+
+	/**
+	 * Record a new checkpoint if the interval is reached or if it is forced.
+	 *
+	 * @param cursor data-source cursor
+	 * @param force record the checkpoint even if the interval wasn't reached
+	 * @throws AREasyException if the checkpoint couldn't be loaded
+	 */
+	public void setCheckpoint(String cursor, boolean force) throws AREasyException
+	{
+		if(cursor == null || getCheckpoint() == null) return;
+
+		if(force || getCheckpoint().isDue(getRecordsCounter()))
+		{
+			getCheckpoint().save(cursor, getRecordsCounter(), getErrorsCounter());
+			logger.debug("Checkpoint recorded: " + getCheckpoint());
+		}
+	}
+
+	/**
+	 * Remove recorded checkpoint, after a complete execution of the job.
+	 *
+	 * @throws AREasyException if the checkpoint couldn't be loaded
+	 */
+	public void clearCheckpoint() throws AREasyException
+	{
+		if(getCheckpoint() != null) getCheckpoint().clear();
+	}
+
+	/**
+	 * Get job watermark structure. The watermark is available only if <code>incremental</code> option is specified and
+	 * it is used by the data-sources to extract only the records changed since the last complete execution. The settings
+	 * are resolved only once, at the first call; if the watermark field is not known the incremental mode stays disabled.
+	 *
+	 * @param field default watermark field id or column name, used if <code>watermarkfield</code> option is not specified
+	 * @return <code>FlowWatermark</code> instance or null
+	 * @throws AREasyException if the watermark couldn't be loaded
+	 */
+	public FlowWatermark getWatermark(String field) throws AREasyException
+	{
+		if(!watermarkResolved && getConfiguration().getBoolean("incremental", false))
+		{
+			String job = getConfiguration().getString("instanceid", getCode());
+			field = getConfiguration().getString("watermarkfield", field);
+
+			if(field != null)
+			{
+				watermark = new FlowWatermark(job, field, getConfiguration().getInt("overlap", 300), getConfiguration().getString("watermarkfile", null));
+				RuntimeLogger.debug("Incremental mode is enabled: " + watermark);
+			}
+			else RuntimeLogger.warn("Incremental mode is not applicable because watermark field is not specified");
+		}
+
+		watermarkResolved = true;
+
+		return watermark;
+	}
+
+	/**
+	 * Record the new watermark, after a complete execution of the job. The watermark is not changed if the execution
+	 * found errors, unless <code>force</code> option is specified.
+	 */
+	public void commitWatermark()
+	{
+		if(watermark == null) return;
+
+		if(getErrorsCounter() == 0 || getConfiguration().getBoolean("force", false)) watermark.commit();
+			else RuntimeLogger.warn("Watermark is not updated because of the errors found during job execution");
+	}
+
+	/**
+	 * Get job content fingerprints store. The store is available only if <code>fingerprint</code> option is specified
+	 * and it is used to skip the records having the same content as in the last execution.
+	 *
+	 * @return <code>FlowFingerprints</code> instance or null
+	 * @throws AREasyException if the store couldn't be loaded
+	 */
+	public FlowFingerprints getFingerprints() throws AREasyException
+	{
+		if(fingerprints == null && getConfiguration().getBoolean("fingerprint", false))
+		{
+			String job = getConfiguration().getString("instanceid", getCode());
+
+			fingerprints = new FlowFingerprints(job, getConfiguration().getString("fingerprintfile", null));
+			RuntimeLogger.debug("Fingerprint mode is enabled: " + fingerprints);
+		}
+
+		return fingerprints;
+	}
+
 	public JobEntry getJobEntryInstance()
 	{
 		return new JobEntry();
@@ -0,0 +1,176 @@
+package org.areasy.runtime.actions.flow;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import com.bmc.arsys.api.Timestamp;
+import org.areasy.common.data.NumberUtility;
+import org.areasy.common.data.StringUtility;
+import org.areasy.runtime.engine.RuntimeLogger;
+import org.areasy.runtime.engine.base.AREasyException;
+
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * High-water mark of an incremental data flow. The watermark keeps the highest value of a modification field (by default
+ * "Modified Date" field for Remedy data-sources, or a dedicated column for database data-sources) found in the last complete
+ * execution. The next execution extracts only the records changed since then, starting with a safe overlap window in order
+ * to catch records committed while the previous execution was running.
+ */
+public class FlowWatermark
+{
+	/** Watermark value key in the state file */
+	public static final String VALUE = "watermark";
+
+	/** Watermark type key in the state file */
+	public static final String TYPE = "watermarktype";
+
+	/** Watermark field or column */
+	private String field = null;
+
+	/** Overlap window in seconds, applied to date watermarks */
+	private int overlap = 0;
+
+	/** Watermark state */
+	private FlowCheckpoint state = null;
+
+	/** The highest value found in the current execution */
+	private Object value = null;
+
+	/**
+	 * Create (or load if it already exists) the watermark for the specified job.
+	 *
+	 * @param job job identifier (instance id or action code)
+	 * @param field watermark field id or column name
+	 * @param overlap overlap window in seconds
+	 * @param fileName explicit state file name or null to use the default location
+	 * @throws AREasyException if the existing state file couldn't be read
+	 */
+	public FlowWatermark(String job, String field, int overlap, String fileName) throws AREasyException
+	{
+		this.field = field;
+		this.overlap = overlap;
+		this.state = new FlowCheckpoint("watermark", job, fileName, 0);
+	}
+
+	/**
+	 * Get watermark field id or column name.
+	 *
+	 * @return watermark field
+	 */
+	public String getField()
+	{
+		return this.field;
+	}
+
+	/**
+	 * Get the lower bound of the incremental extraction: the recorded watermark, decreased by the overlap window
+	 * in case of date values.
+	 *
+	 * @return <code>Date</code> or <code>BigDecimal</code> value or null if no watermark has been recorded
+	 */
+	public Object getLowerBound()
+	{
+		String recorded = state.getValue(VALUE);
+		if(recorded == null) return null;
+
+		if(StringUtility.equals(state.getValue(TYPE), "date"))
+		{
+			long time = NumberUtility.toLong(recorded, 0);
+			return new Date(Math.max(time - 1000L * overlap, 0));
+		}
+		else return NumberUtility.createBigDecimal(recorded);
+	}
+
+	/**
+	 * Get the lower bound of the incremental extraction as number of seconds (for date watermarks) or number value,
+	 * to be used in AR System qualifications.
+	 *
+	 * @return lower bound text or null if no watermark has been recorded
+	 */
+	public String getLowerBoundText()
+	{
+		Object bound = getLowerBound();
+
+		if(bound instanceof Date) return String.valueOf(((Date)bound).getTime() / 1000);
+			else if(bound != null) return bound.toString();
+				else return null;
+	}
+
+	/**
+	 * Track the watermark value of a processed record, keeping the highest one.
+	 *
+	 * @param object field or column value
+	 */
+	public void update(Object object)
+	{
+		if(object == null) return;
+
+		if(object instanceof Timestamp) object = ((Timestamp)object).toDate();
+			else if(object instanceof Calendar) object = ((Calendar)object).getTime();
+
+		if(object instanceof Date)
+		{
+			if(value == null || (value instanceof Date && ((Date)object).after((Date)value))) value = new Date(((Date)object).getTime());
+		}
+		else if(object instanceof Number)
+		{
+			BigDecimal number = new BigDecimal(object.toString());
+			if(value == null || (value instanceof BigDecimal && number.compareTo((BigDecimal)value) > 0)) value = number;
+		}
+	}
+
+	/**
+	 * Get the highest value found in the current execution.
+	 *
+	 * @return highest value or null
+	 */
+	public Object getValue()
+	{
+		return this.value;
+	}
+
+	/**
+	 * Record the highest value found in the current execution as new watermark. If no value has been found the
+	 * previous watermark is kept.
+	 */
+	public void commit()
+	{
+		if(value == null)
+		{
+			RuntimeLogger.debug("No watermark value found for field '" + field + "'. The previous watermark is kept: " + state.getValue(VALUE));
+			return;
+		}
+
+		if(value instanceof Date)
+		{
+			state.setValue(VALUE, String.valueOf(((Date)value).getTime()));
+			state.setValue(TYPE, "date");
+		}
+		else
+		{
+			state.setValue(VALUE, value.toString());
+			state.setValue(TYPE, "number");
+		}
+
+		state.save();
+		RuntimeLogger.debug("Watermark updated: " + this);
+	}
+
+	public String toString()
+	{
+		return "FlowWatermark [Field = " + field + ", File = " + state.getFile().getPath() + ", Bound = " + getLowerBound() + ", Value = " + value + "]";
+	}
+}
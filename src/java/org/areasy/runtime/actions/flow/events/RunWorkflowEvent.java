@@ -141,11 +141,18 @@ public class RunWorkflowEvent extends AbstractEvent
 
 		boolean force = getAction().getConfiguration().getBoolean("force", false);
 		boolean nextLoop = true;
+		boolean completed = false;
 
 		//get list of keys and initialize inout logger
 		List keys = getMappingSourceKeys(jobMapping);
 		setInOutLog(keys);
 
+		//get total number of records to estimate the time to completion (before the data-source is positioned)
+		if(getAction().getConfiguration().getBoolean("estimate", false)) getAction().setDataCount(getSource().getDataCount());
+
+		//position data-source on the last recorded checkpoint
+		getSource().setCheckpoint(getAction().getResumeCursor());
+
 		do
 		{
 			CoreItem target = null;
@@ -154,7 +161,9 @@ public class RunWorkflowEvent extends AbstractEvent
 			try
 			{
 				//get data from data-source, mapped to the source keys.
+				long stage = getAction().getStageStart();
 				Map sourceMap = getSource().getNextObject(keys);
+				getAction().addStageTime("read", stage);
 
 				//if source object is not null processing it
 				if(sourceMap != null)
@@ -185,22 +194,31 @@ public class RunWorkflowEvent extends AbstractEvent
 
 								//initialize action.
 								action.init(config, getAction().getManager(), getRunnerServerConnection());
+
+								stage = getAction().getStageStart();
 								if(target == null) target = getTargetStructure(context, config, (CoreData)action);
+								getAction().addStageTime("lookup", stage);
 								logger.debug("Processing Step 2 - Action initialized and Target created: " + target);
 
 								//run data transformation before commit - apply scripting data transformation
+								stage = getAction().getStageStart();
 								boolean skip = setTransformation(context, target, action, config, sectorConfig, generalRules, transformationScript, "COMMIT");
+								getAction().addStageTime("transform", stage);
 
 								//run action (if wasn't skipped by Velocity injection)
 								if(!skip)
 								{
+									stage = getAction().getStageStart();
 									((CoreData)action).run(target);
+									getAction().addStageTime("develop", stage);
 									logger.debug("Processing Step 3 - Action executed");
 								}
 								else RuntimeLogger.debug("Action '" + action.getCode() + "' has been skipped because of data transformation script attached to the job definition. The following target structure has been skipped: " + target);
 
 								//run data transformation after commit - apply scripting data transformation
+								stage = getAction().getStageStart();
 								setTransformation(context, target, config, transformationScript, "AFTERCOMMIT");
+								getAction().addStageTime("transform", stage);
 								logger.debug("Processing Step 4 - Transformation after Run Action");
 
 								//close action
@@ -214,7 +232,11 @@ public class RunWorkflowEvent extends AbstractEvent
 						}
 					}
 				}
-				else nextLoop = false;
+				else
+				{
+					nextLoop = false;
+					completed = true;
+				}
 
 				//reset counter for the consecutive errors
 				consecutiveCounter = 0;
@@ -256,18 +278,33 @@ public class RunWorkflowEvent extends AbstractEvent
 				if(context != null) setNullContext(context);
 			}
 
+			//record checkpoint (if the interval has been reached)
+			if(!completed) getAction().setCheckpoint(getSource().getCheckpoint(), false);
+
 			//evaluate cycle limitation
-			if(limit > 0 && limit <= getAction().getRecordsCounter()) nextLoop = false;
+			if(limit > 0 && limit <= getAction().getRecordsCounter())
+			{
+				nextLoop = false;
+				getAction().setCheckpoint(getSource().getCheckpoint(), true);
+			}
 
 			// check interruption and and exit if the execution was really interrupted
 			if(getAction().isInterrupted())
 			{
+				getAction().setCheckpoint(getSource().getCheckpoint(), true);
 				RuntimeLogger.warn("Execution interrupted by user");
 				return;
 			}
 		}
 		while(nextLoop);
 
+		//remove checkpoint and record watermark when data-source has been completely processed
+		if(completed)
+		{
+			getAction().clearCheckpoint();
+			getAction().commitWatermark();
+		}
+
 		//close in-out stream
 		closeInOutLog();
 
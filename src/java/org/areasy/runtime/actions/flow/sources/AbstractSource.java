@@ -14,6 +14,7 @@ package org.areasy.runtime.actions.flow.sources;
  */
 
 import org.areasy.runtime.actions.flow.FlowPatternAction;
+import org.areasy.runtime.engine.RuntimeLogger;
 import org.areasy.runtime.engine.base.AREasyException;
 import org.areasy.runtime.engine.structures.CoreItem;
 
@@ -108,6 +109,30 @@ public abstract class AbstractSource
 	 */
 	public abstract int getDataCount();
 
+	/**
+	 * Get the current data-source cursor, used to record a checkpoint of the data flow. The cursor identifies
+	 * the last record delivered by <code>getNextObject</code> method.
+	 *
+	 * @return data-source cursor or null if the data-source doesn't support checkpoints
+	 */
+	public String getCheckpoint()
+	{
+		return null;
+	}
+
+	/**
+	 * Position the data-source after the record identified by the specified cursor, in order to resume a data flow
+	 * from the last recorded checkpoint. This method has to be called after <code>init</code> and before the first
+	 * <code>getNextObject</code> call.
+	 *
+	 * @param checkpoint data-source cursor recorded in a previous execution
+	 * @throws AREasyException in case of any error will occur
+	 */
+	public void setCheckpoint(String checkpoint) throws AREasyException
+	{
+		if(checkpoint != null) RuntimeLogger.warn("Data-source '" + this + "' doesn't support resume from checkpoint. The data will be processed from the beginning");
+	}
+
 	/**
 	 * Returns a string representation of the object. In general, the
      * <code>toString</code> method returns a string that
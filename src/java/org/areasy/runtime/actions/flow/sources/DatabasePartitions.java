@@ -0,0 +1,358 @@
+package org.areasy.runtime.actions.flow.sources;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import org.areasy.runtime.engine.RuntimeLogger;
+import org.areasy.runtime.engine.base.AREasyException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partitioned reader of a database data-source. The data-source query is split in ranges of a numeric or date
+ * key column (found through a <code>MIN/MAX</code> query) and each range is read by a dedicated thread, using a
+ * separate database connection. The rows are delivered in partitions order (ordered mode) or as soon as they
+ * are read by any partition (unordered mode).
+ */
+class DatabasePartitions
+{
+	/** End of partition marker */
+	private static final Map END = new HashMap();
+
+	/** Number of rows buffered for each partition */
+	private static final int BUFFER = 1000;
+
+	/** Time (in milliseconds) to wait for each reader to stop */
+	private static final long JOIN_TIMEOUT = 10000;
+
+	private DatabaseSource source = null;
+	private String key = null;
+	private int count = 1;
+	private boolean ordered = false;
+
+	private PartitionReader readers[] = null;
+	private BlockingQueue queues[] = null;
+	private int current = 0;
+	private int finished = 0;
+	private volatile Throwable error = null;
+	private volatile boolean closed = false;
+
+	/**
+	 * Create a partitioned reader.
+	 *
+	 * @param source database data-source
+	 * @param key numeric or date column used to split the query in ranges
+	 * @param count number of partitions
+	 * @param ordered deliver the rows in partitions order
+	 */
+	DatabasePartitions(DatabaseSource source, String key, int count, boolean ordered)
+	{
+		this.source = source;
+		this.key = key;
+		this.count = Math.max(count, 1);
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Compute partition ranges and start the readers. A checkpoint could be used only in ordered mode, because in
+	 * unordered mode the rows are delivered in a different order in each execution.
+	 *
+	 * @param list list of data source keys
+	 * @param skip number of rows to be skipped (read in a previous execution)
+	 * @return number of skipped rows
+	 * @throws AREasyException in case of any error will occur or if a checkpoint is used in unordered mode
+	 */
+	int start(List list, int skip) throws AREasyException
+	{
+		if(skip > 0 && !ordered) throw new AREasyException("Unordered partitioned reading can't be resumed from checkpoint. Use 'partitionorder' option or run the job without 'resume' option");
+
+		Object bounds[] = getBounds();
+
+		readers = new PartitionReader[bounds.length - 1];
+		queues = new BlockingQueue[ordered ? readers.length : 1];
+
+		for(int i = 0; i < queues.length; i++) queues[i] = new ArrayBlockingQueue(BUFFER);
+
+		for(int i = 0; i < readers.length; i++)
+		{
+			String where;
+			Object params[];
+
+			if(bounds[i] == null)
+			{
+				where = null;
+				params = null;
+			}
+			else
+			{
+				boolean last = i == readers.length - 1;
+
+				where = "(" + key + " >= ? AND " + key + (last ? " <= ?" : " < ?") + ")";
+				if(i == 0) where += " OR " + key + " IS NULL";
+
+				params = new Object[] { bounds[i], bounds[i + 1] };
+			}
+
+			readers[i] = new PartitionReader(i, list, where, params, queues[ordered ? i : 0]);
+			readers[i].start();
+		}
+
+		source.getAction().getLogger().debug("Partitioned reading has been started using " + readers.length + " partition(s) on '" + key + "' key");
+
+		int skipped = 0;
+		while(skipped < skip && next() != null) skipped++;
+
+		return skipped;
+	}
+
+	/**
+	 * Get next row read by the partitions.
+	 *
+	 * @return a <code>Map</code> having data source indexes as keys and data as values, or null at the end
+	 * @throws AREasyException in case of any error will occur in any partition
+	 */
+	Map next() throws AREasyException
+	{
+		while(finished < readers.length)
+		{
+			Map map;
+
+			try
+			{
+				map = (Map) queues[ordered ? current : 0].poll(1, TimeUnit.SECONDS);
+			}
+			catch(InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+				throw new AREasyException("Partitioned reading has been interrupted", ie);
+			}
+
+			if(error != null) throw new AREasyException("Error reading data partition: " + error.getMessage(), error);
+
+			if(map == END)
+			{
+				finished++;
+				if(ordered) current++;
+			}
+			else if(map != null) return map;
+		}
+
+		if(error != null) throw new AREasyException("Error reading data partition: " + error.getMessage(), error);
+
+		return null;
+	}
+
+	/**
+	 * Stop the readers and wait for them to release their connections. The running statements are cancelled
+	 * first, so the readers waiting for database rows are stopped too.
+	 */
+	void close()
+	{
+		closed = true;
+
+		for(int i = 0; readers != null && i < readers.length; i++)
+		{
+			if(readers[i] != null)
+			{
+				readers[i].cancel();
+				readers[i].interrupt();
+			}
+		}
+
+		for(int i = 0; readers != null && i < readers.length; i++)
+		{
+			if(readers[i] == null) continue;
+
+			try
+			{
+				readers[i].join(JOIN_TIMEOUT);
+				if(readers[i].isAlive()) RuntimeLogger.warn("Data partition reader '" + readers[i].getName() + "' couldn't be stopped");
+			}
+			catch(InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Get partition bounds, splitting the key values range in equal intervals.
+	 *
+	 * @return list of bounds (partitions + 1 values) or an array with two null values if the range couldn't be split
+	 * @throws AREasyException in case of any error will occur
+	 */
+	private Object[] getBounds() throws AREasyException
+	{
+		Object min = null;
+		Object max = null;
+		PreparedStatement statement = null;
+
+		try
+		{
+			statement = source.getStatement(source.getConnection(), source.getQualification(), ResultSet.TYPE_FORWARD_ONLY, "MIN(" + key + "), MAX(" + key + ")", null, null);
+			ResultSet rs = statement.executeQuery();
+
+			if(rs.next())
+			{
+				min = rs.getObject(1);
+				max = rs.getObject(2);
+			}
+
+			rs.close();
+		}
+		catch(SQLException sqle)
+		{
+			throw new AREasyException("Error reading partition key range: " + sqle.getMessage(), sqle);
+		}
+		finally
+		{
+			try
+			{
+				if(statement != null) statement.close();
+			}
+			catch(SQLException e) { /* nothing here */ }
+		}
+
+		Object bounds[] = new Object[count + 1];
+
+		if(min instanceof Number && max instanceof Number)
+		{
+			BigDecimal low = new BigDecimal(min.toString());
+			BigDecimal high = new BigDecimal(max.toString());
+			BigDecimal step = high.subtract(low).divide(BigDecimal.valueOf(count), 10, RoundingMode.HALF_UP);
+
+			for(int i = 0; i < count; i++) bounds[i] = low.add(step.multiply(BigDecimal.valueOf(i)));
+			bounds[count] = high;
+		}
+		else if(min instanceof java.util.Date && max instanceof java.util.Date)
+		{
+			long low = ((java.util.Date)min).getTime();
+			long high = ((java.util.Date)max).getTime();
+
+			for(int i = 0; i < count; i++) bounds[i] = new Timestamp(low + (high - low) / count * i);
+			bounds[count] = new Timestamp(high);
+		}
+		else
+		{
+			if(min != null) RuntimeLogger.warn("Partition key '" + key + "' is not a numeric or date column, data will be read by a single partition");
+			return new Object[2];
+		}
+
+		return bounds;
+	}
+
+	/**
+	 * Thread reading one partition into a rows queue.
+	 */
+	private class PartitionReader extends Thread
+	{
+		private List list = null;
+		private String where = null;
+		private Object params[] = null;
+		private BlockingQueue queue = null;
+		private volatile Statement statement = null;
+
+		PartitionReader(int index, List list, String where, Object params[], BlockingQueue queue)
+		{
+			super("DatabasePartition-" + index);
+			setDaemon(true);
+
+			this.list = list;
+			this.where = where;
+			this.params = params;
+			this.queue = queue;
+		}
+
+		/**
+		 * Cancel the running statement (if any).
+		 */
+		void cancel()
+		{
+			Statement running = statement;
+
+			try
+			{
+				if(running != null) running.cancel();
+			}
+			catch(SQLException e) { /* nothing here */ }
+		}
+
+		public void run()
+		{
+			Connection connection = null;
+			PreparedStatement statement = null;
+
+			try
+			{
+				connection = source.newConnection();
+				statement = source.getStatement(connection, source.getQualification(), ResultSet.TYPE_FORWARD_ONLY, null, where, params);
+				this.statement = statement;
+
+				if(closed) return;
+				ResultSet rs = statement.executeQuery();
+
+				while(error == null && !closed && !isInterrupted() && rs.next())
+				{
+					queue.put(source.getRowData(rs, list));
+				}
+
+				rs.close();
+			}
+			catch(InterruptedException ie)
+			{
+				//reading has been stopped
+			}
+			catch(Throwable th)
+			{
+				if(error == null && !closed) error = th;
+			}
+			finally
+			{
+				this.statement = null;
+
+				try
+				{
+					if(statement != null) statement.close();
+				}
+				catch(SQLException e) { /* nothing here */ }
+
+				try
+				{
+					if(connection != null) source.releaseStreaming(connection);
+				}
+				catch(SQLException e) { /* nothing here */ }
+
+				try
+				{
+					if(connection != null) connection.close();
+				}
+				catch(SQLException e) { /* nothing here */ }
+
+				try
+				{
+					if(!closed && !isInterrupted()) queue.put(END);
+				}
+				catch(InterruptedException ie) { /* reading has been stopped */ }
+			}
+		}
+	}
+}
@@ -13,7 +13,10 @@ package org.areasy.runtime.actions.flow.sources;
  * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
  */
 
+import org.areasy.common.data.NumberUtility;
 import org.areasy.common.data.StringUtility;
+import org.areasy.common.support.database.ConnectionPool;
+import org.areasy.runtime.actions.flow.FlowWatermark;
 import org.areasy.runtime.engine.RuntimeLogger;
 import org.areasy.runtime.engine.base.AREasyException;
 
@@ -30,7 +33,16 @@ public abstract class DatabaseSource extends AbstractSource
 {
 	private Connection connection = null;
 	private String qualification = null;
+	private PreparedStatement statement = null;
 	private ResultSet resultSet = null;
+	private int rowIndex = 0;
+
+	private String connectionUrl = null;
+	private String connectionUser = null;
+	private String connectionPassword = null;
+	private ConnectionPool pool = null;
+
+	private DatabasePartitions partitions = null;
 
 	/**
 	 * Dedicated method to release resources that are used by a data-source
@@ -39,6 +51,8 @@ public abstract class DatabaseSource extends AbstractSource
 	 */
 	public void release() throws AREasyException
 	{
+		if(partitions != null) partitions.close();
+
 		if(resultSet != null)
 		{
 			try
@@ -48,8 +62,23 @@ public abstract class DatabaseSource extends AbstractSource
 			catch (Exception e) { /* ignore close errors */ }
 		}
 
+		if(statement != null)
+		{
+			try
+			{
+				statement.close();
+			}
+			catch (Exception e) { /* ignore close errors */ }
+		}
+
 		if (getConnection() != null)
 		{
+			try
+			{
+				releaseStreaming(getConnection());
+			}
+			catch (Exception e) { /* ignore release errors */ }
+
 			try
 			{
 				getConnection().close();
@@ -90,32 +119,7 @@ public abstract class DatabaseSource extends AbstractSource
 
 	protected void setConnection(String url, String driverSignature) throws AREasyException
 	{
-		try
-		{
-			String myURL = url;
-
-			if(getAction().getConfiguration().containsKey("append2connectionstring"))
-			{
-				String append = getAction().getConfiguration().getString("append2connectionstring", null);
-
-				if(StringUtility.isNotEmpty(append))
-				{
-					if(append.startsWith("&") || append.startsWith("?")) myURL += append;
-					else
-					{
-						if(myURL.contains("&")) myURL += "&" + append;
-							else myURL += "?" + append;
-					}
-				}
-			}
-
-			Class.forName(driverSignature).newInstance();
-			this.connection = DriverManager.getConnection(myURL);
-		}
-		catch(Exception e)
-		{
-			throw new AREasyException("Error initiating database connection: " + e.getMessage(), e);
-		}
+		setConnection(url, driverSignature, null, null);
 	}
 
 	protected void setConnection(String url, String driverSignature, String user, String password) throws AREasyException
@@ -139,8 +143,15 @@ public abstract class DatabaseSource extends AbstractSource
 				}
 			}
 
-			Class.forName(driverSignature).newInstance();
-			this.connection = DriverManager.getConnection(myURL, user, password);
+			this.connectionUrl = myURL;
+			this.connectionUser = user;
+			this.connectionPassword = password;
+
+			//use pooled connections (if is requested)
+			if(getAction().getConfiguration().getBoolean("connectionpool", false)) this.pool = ConnectionPool.getInstance(driverSignature, myURL, user, password);
+				else Class.forName(driverSignature).newInstance();
+
+			this.connection = newConnection();
 		}
 		catch(Exception e)
 		{
@@ -148,6 +159,20 @@ public abstract class DatabaseSource extends AbstractSource
 		}
 	}
 
+	/**
+	 * Open a new database connection, using the same settings as the data-source connection. When the connection
+	 * pool is used the connection is borrowed from the pool, and it is returned to the pool when it is closed.
+	 *
+	 * @return SQL <code>Connection</code> instance
+	 * @throws SQLException in case of any database error will occur
+	 */
+	protected Connection newConnection() throws SQLException
+	{
+		if(pool != null) return pool.getConnection();
+			else if(connectionUser != null) return DriverManager.getConnection(connectionUrl, connectionUser, connectionPassword);
+				else return DriverManager.getConnection(connectionUrl);
+	}
+
 	/**
 	 * Take and deliver through a <code>Map</code> structure the data headers from the selected data-source.
 	 *
@@ -157,12 +182,27 @@ public abstract class DatabaseSource extends AbstractSource
 	public Map getHeaders() throws AREasyException
 	{
 		Map map = new Hashtable();
+		PreparedStatement statement = null;
 
 		try
 		{
-			Statement st = getConnection().createStatement();
-			ResultSet rs = st.executeQuery(getQualification());
-			ResultSetMetaData meta = rs.getMetaData();
+			statement = getConnection().prepareStatement(getQualification(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			ResultSetMetaData meta = null;
+			ResultSet rs = null;
+
+			try
+			{
+				meta = statement.getMetaData();
+			}
+			catch(SQLException sqle) { /* not supported by the driver */ }
+
+			//some drivers describe the result only after execution
+			if(meta == null)
+			{
+				statement.setMaxRows(1);
+				rs = statement.executeQuery();
+				meta = rs.getMetaData();
+			}
 
 			for(int i = 1; i <= meta.getColumnCount(); i++)
 			{
@@ -172,23 +212,197 @@ public abstract class DatabaseSource extends AbstractSource
 				map.put(name, label);
 			}
 
-			//close statement
-			st.close();
+			if(rs != null) rs.close();
 		}
 		catch(SQLException sqle)
 		{
 			throw new AREasyException("Error getting database headers: " + sqle.getMessage(), sqle);
 		}
+		finally
+		{
+			try
+			{
+				//close statement
+				if(statement != null) statement.close();
+			}
+			catch(SQLException e) { /* nothing here */ }
+		}
 
 		return map;
 	}
 
+	/**
+	 * Check if the data-source is read in streaming mode: forward-only and read-only cursor, delivering the rows
+	 * in batches having the size returned by <code>getFetchSize</code> method, instead of loading all of them in memory.
+	 *
+	 * @return true if the streaming mode is activated through <code>streaming</code> option
+	 */
+	protected boolean isStreaming()
+	{
+		return getAction().getConfiguration().getBoolean("streaming", false);
+	}
+
+	/**
+	 * Get the number of rows that the database driver should fetch in one round trip, in streaming mode.
+	 * The value is read from <code>fetchsize</code> option, otherwise the database specific value is used.
+	 *
+	 * @return fetch size
+	 */
+	protected int getFetchSize()
+	{
+		return getAction().getConfiguration().getInt("fetchsize", getDefaultFetchSize());
+	}
+
+	/**
+	 * Get the default fetch size of the database driver used in streaming mode. Each dialect could overwrite it.
+	 *
+	 * @return default fetch size
+	 */
+	protected int getDefaultFetchSize()
+	{
+		return 1000;
+	}
+
+	/**
+	 * Prepare database connection for streaming mode. Some drivers use database cursors only with specific
+	 * connection settings, so each dialect could overwrite it.
+	 *
+	 * @param connection database connection
+	 * @throws SQLException in case of any database error will occur
+	 */
+	protected void prepareStreaming(Connection connection) throws SQLException
+	{
+		//nothing to do by default
+	}
+
+	/**
+	 * Restore the connection settings changed for streaming mode, before the connection is closed (or returned to
+	 * the connection pool). Each dialect overwriting <code>prepareStreaming</code> method should overwrite it too.
+	 *
+	 * @param connection database connection
+	 * @throws SQLException in case of any database error will occur
+	 */
+	protected void releaseStreaming(Connection connection) throws SQLException
+	{
+		//nothing to do by default
+	}
+
+	/**
+	 * Create the statement for the specified query. In incremental mode the query is restricted to the rows having
+	 * the watermark column greater or equal with the last recorded watermark.
+	 *
+	 * @param query data-source query
+	 * @param type result set type
+	 * @return <code>PreparedStatement</code> instance
+	 * @throws SQLException in case of any database error will occur
+	 * @throws AREasyException in case of any other error will occur
+	 */
+	protected PreparedStatement getStatement(String query, int type) throws SQLException, AREasyException
+	{
+		return getStatement(getConnection(), query, type, null, null, null);
+	}
+
+	/**
+	 * Create the statement for the specified query. In incremental mode the query is restricted to the rows having
+	 * the watermark column greater or equal with the last recorded watermark and the rows are ordered by the watermark
+	 * column. Because the query is wrapped as derived table, in incremental mode it must not contain its own
+	 * <code>ORDER BY</code> clause (not allowed by all databases in derived tables). The (restricted) query could be
+	 * wrapped in another select statement, delivering the specified columns or aggregates (e.g. <code>COUNT(*)</code>)
+	 * and applying the specified condition.
+	 *
+	 * @param connection database connection
+	 * @param query data-source query
+	 * @param type result set type
+	 * @param select columns or aggregates selected from the query, or null to deliver the query rows
+	 * @param where condition applied to the query rows or null
+	 * @param params values of the condition parameters or null
+	 * @return <code>PreparedStatement</code> instance
+	 * @throws SQLException in case of any database error will occur
+	 * @throws AREasyException in case of any other error will occur
+	 */
+	protected PreparedStatement getStatement(Connection connection, String query, int type, String select, String where, Object params[]) throws SQLException, AREasyException
+	{
+		FlowWatermark watermark = getAction().getWatermark(null);
+		Object bound = watermark != null ? watermark.getLowerBound() : null;
+		PreparedStatement statement;
+		int index = 1;
+
+		if(bound != null)
+		{
+			if(hasOrderBy(query)) throw new AREasyException("Incremental query can't contain ORDER BY clause, the rows are ordered by watermark column: " + watermark.getField());
+			query = "SELECT * FROM (" + query + ") wm WHERE " + watermark.getField() + " >= ?";
+		}
+
+		if(select != null || where != null) query = "SELECT " + (select != null ? select : "*") + " FROM (" + query + ") sq" + (where != null ? " WHERE " + where : "");
+		if(bound != null && select == null) query += " ORDER BY " + watermark.getField();
+
+		if(select == null && isStreaming() && type == ResultSet.TYPE_FORWARD_ONLY)
+		{
+			prepareStreaming(connection);
+
+			statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(getFetchSize());
+		}
+		else statement = connection.prepareStatement(query, type, ResultSet.CONCUR_READ_ONLY);
+
+		if(bound != null)
+		{
+			setParameter(statement, index++, bound);
+			getAction().getLogger().debug("Incremental query has been created using watermark: " + watermark);
+		}
+
+		for(int i = 0; params != null && i < params.length; i++) setParameter(statement, index++, params[i]);
+
+		return statement;
+	}
+
+	/**
+	 * Check if the specified query has an <code>ORDER BY</code> clause outside of any parentheses and quoted text.
+	 *
+	 * @param query database query
+	 * @return true if the query is ordered
+	 */
+	private boolean hasOrderBy(String query)
+	{
+		String text = query.toUpperCase();
+		int depth = 0;
+		char quote = 0;
+
+		for(int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+
+			if(quote != 0)
+			{
+				if(c == quote) quote = 0;
+			}
+			else if(c == '\'' || c == '"') quote = c;
+			else if(c == '(') depth++;
+			else if(c == ')') depth--;
+			else if(depth == 0 && text.startsWith("ORDER", i) && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1))))
+			{
+				int j = i + 5;
+				while(j < text.length() && Character.isWhitespace(text.charAt(j))) j++;
+
+				if(j > i + 5 && text.startsWith("BY", j)) return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void setParameter(PreparedStatement statement, int index, Object value) throws SQLException
+	{
+		if(value instanceof java.util.Date) statement.setTimestamp(index, new Timestamp(((java.util.Date)value).getTime()));
+			else statement.setObject(index, value);
+	}
+
 	private void initResultSet() throws AREasyException
 	{
 		try
 		{
-			Statement statement = getConnection().createStatement();
-			resultSet = statement.executeQuery(getQualification());
+			statement = getStatement(getQualification(), ResultSet.TYPE_FORWARD_ONLY);
+			resultSet = statement.executeQuery();
 		}
 		catch(SQLException sqle)
 		{
@@ -208,6 +422,21 @@ public abstract class DatabaseSource extends AbstractSource
 	{
 		Map map = null;
 
+		//initialize partitioned reading (if is requested)
+		if(partitions == null && resultSet == null && StringUtility.isNotEmpty(getAction().getConfiguration().getString("partitionkey", null)) && getAction().getConfiguration().getInt("partitions", 1) > 1)
+		{
+			partitions = new DatabasePartitions(this, getAction().getConfiguration().getString("partitionkey", null), getAction().getConfiguration().getInt("partitions", 1), getAction().getConfiguration().getBoolean("partitionorder", false));
+			rowIndex = partitions.start(list, rowIndex);
+		}
+
+		if(partitions != null)
+		{
+			map = partitions.next();
+			if(map != null) rowIndex++;
+
+			return map;
+		}
+
 		//initialize parser (if is not)
 		if(resultSet == null) initResultSet();
 
@@ -215,17 +444,8 @@ public abstract class DatabaseSource extends AbstractSource
 		{
 			if(resultSet.next())
 			{
-				map = new HashMap();
-
-				for(int i = 0; i < list.size(); i++)
-				{
-					String colName = (String) list.get(i);
-
-					if(colName != null)
-					{
-						map.put(colName, resultSet.getObject(colName));
-					}
-				}
+				rowIndex++;
+				map = getRowData(resultSet, list);
 			}
 		}
 		catch(SQLException sqle)
@@ -236,6 +456,84 @@ public abstract class DatabaseSource extends AbstractSource
 		return map;
 	}
 
+	/**
+	 * Read the data of the current row from the specified result set, and track the watermark value.
+	 *
+	 * @param resultSet database result set
+	 * @param list this is the list of data source keys.
+	 * @return a <code>Map</code> having data source indexes as keys and data as values.
+	 * @throws SQLException in case of any database error will occur
+	 */
+	protected Map getRowData(ResultSet resultSet, List list) throws SQLException
+	{
+		Map map = new HashMap();
+
+		//track watermark value
+		FlowWatermark watermark = getAction().getWatermark(null);
+
+		if(watermark != null)
+		{
+			synchronized(watermark)
+			{
+				watermark.update(resultSet.getObject(watermark.getField()));
+			}
+		}
+
+		for(int i = 0; i < list.size(); i++)
+		{
+			String colName = (String) list.get(i);
+
+			if(colName != null)
+			{
+				map.put(colName, resultSet.getObject(colName));
+			}
+		}
+
+		return map;
+	}
+
+	/**
+	 * Get the current data-source cursor, represented by the number of rows read from the data cursor.
+	 *
+	 * @return data-source cursor
+	 */
+	public String getCheckpoint()
+	{
+		return String.valueOf(rowIndex);
+	}
+
+	/**
+	 * Position the data cursor after the specified number of rows. The rows are skipped without being
+	 * mapped, so the qualification query must deliver the data in a stable order (using an ORDER BY clause).
+	 *
+	 * @param checkpoint number of rows read in a previous execution
+	 * @throws AREasyException in case of any error will occur
+	 */
+	public void setCheckpoint(String checkpoint) throws AREasyException
+	{
+		int rows = NumberUtility.toInt(checkpoint, 0);
+		if(rows <= 0) return;
+
+		//partitioned reading skips the rows when the partitions are started
+		if(StringUtility.isNotEmpty(getAction().getConfiguration().getString("partitionkey", null)) && getAction().getConfiguration().getInt("partitions", 1) > 1)
+		{
+			rowIndex = rows;
+			return;
+		}
+
+		//initialize data cursor (if is not)
+		if(resultSet == null) initResultSet();
+
+		try
+		{
+			while(rowIndex < rows && resultSet.next()) rowIndex++;
+		}
+		catch(SQLException sqle)
+		{
+			throw new AREasyException("Error positioning data cursor: " + sqle.getMessage(), sqle);
+		}
+	}
+
 	/**
 	 * Read and return the total number of records found in the data-source.
 	 *
@@ -248,19 +546,36 @@ public abstract class DatabaseSource extends AbstractSource
 		if(getConnection() != null)
 		{
 			ResultSet resultSet = null;
-			Statement statement = null;
+			PreparedStatement statement = null;
 			String query = getQualification();
 			if(query == null) return numberOfRows;
 
 			try
 			{
-				statement = getConnection().createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-				resultSet = statement.executeQuery(query);
+				try
+				{
+					statement = getStatement(getConnection(), query, ResultSet.TYPE_FORWARD_ONLY, "COUNT(*)", null, null);
+					resultSet = statement.executeQuery();
+
+					if(resultSet.next()) numberOfRows = resultSet.getInt(1);
+				}
+				catch(SQLException sqle)
+				{
+					//the qualification can't be wrapped (e.g. stored procedure call) so all rows will be scrolled
+					getAction().getLogger().debug("Counting query failed, the records will be counted through a scrollable cursor: " + sqle.getMessage());
+
+					if(resultSet != null) resultSet.close();
+					if(statement != null) statement.close();
+					resultSet = null;
+
+					statement = getStatement(query, ResultSet.TYPE_SCROLL_INSENSITIVE);
+					resultSet = statement.executeQuery();
 
-				resultSet.last();
-				numberOfRows = resultSet.getRow();
+					resultSet.last();
+					numberOfRows = resultSet.getRow();
+				}
 			}
-			catch(SQLException sqle)
+			catch(Exception sqle)
 			{
 				RuntimeLogger.info("Error getting number of records: " + sqle.getMessage());
 
@@ -13,6 +13,8 @@ package org.areasy.runtime.actions.flow.sources;
  * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
  */
 
+import org.areasy.common.data.NumberUtility;
+import org.areasy.common.data.StringUtility;
 import org.areasy.common.logger.Logger;
 import org.areasy.common.logger.LoggerFactory;
 import org.areasy.runtime.engine.RuntimeLogger;
@@ -23,10 +25,14 @@ import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttributes;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
 import javax.naming.ldap.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Dedicated data source to process data from a LDAP server.
@@ -48,6 +54,20 @@ public class LDAPSource extends AbstractSource
 	private Hashtable environment = null;
 	private NamingEnumeration searchAnswer = null;
 	private SearchControls searchControl = null;
+	private int entryIndex = 0;
+	private int skipEntries = 0;
+	private boolean searchFinished = false;
+
+	/** End of search marker */
+	private static final Attributes END = new BasicAttributes();
+
+	private volatile int pageEntries = 0;
+	private int pageResultSize = 0;
+	private boolean lazyCount = false;
+
+	private BlockingQueue pageQueue = null;
+	private PageReader pageReader = null;
+	private volatile Throwable pageError = null;
 
 	/**
 	 * Dedicated method that has to be used internally, to set and validate the data-source configuration (<code>CoreItem</code> structure)
@@ -111,6 +131,8 @@ public class LDAPSource extends AbstractSource
 	 */
 	public void release() throws AREasyException
 	{
+		if(pageReader != null && pageReader.isAlive()) pageReader.interrupt();
+
 		if(context != null)
 		{
 			try
@@ -173,27 +195,22 @@ public class LDAPSource extends AbstractSource
 	{
 		Map map = null;
 
-		if(searchAnswer == null)
-		{
-			try
-			{
-				getContext().setRequestControls(new Control[] {	new PagedResultsControl(pageSize, Control.NONCRITICAL) });
-				searchAnswer = getContext().search(getBaseDN(), getQualification(), searchControl);
-				logger.debug("LDAP Search answer has been initialized: " + searchAnswer.hasMore());
-			}
-			catch(Throwable th)
-			{
-				throw new AREasyException("Error creating search interface: " + th.getMessage(), th);
-			}
-		}
+		if(!searchFinished && searchAnswer == null && pageReader == null) initSearch(list);
 
 		try
 		{
-			if(searchAnswer.hasMore())
+			//skip entries read in a previous execution
+			while(entryIndex < skipEntries)
 			{
-				SearchResult result = (SearchResult) searchAnswer.next();
-				Attributes attrs = result.getAttributes();
+				if(getNextAttributes() == null) return null;
+				entryIndex++;
+			}
 
+			Attributes attrs = getNextAttributes();
+
+			if(attrs != null)
+			{
+				entryIndex++;
 				map = new HashMap();
 
 				for(int i = 0; i < list.size(); i++)
@@ -226,60 +243,302 @@ public class LDAPSource extends AbstractSource
 					}
 				}
 			}
+		}
+		catch(AREasyException are)
+		{
+			throw are;
+		}
+		catch(Throwable th)
+		{
+			throw new AREasyException("Error reading data: " + th.getMessage(), th);
+		}
+
+		return map;
+	}
+
+	/**
+	 * Initialize the paged search. The search returns only the mapped attributes (when <code>attributeprojection</code>
+	 * option is not disabled) and, when <code>pageprefetch</code> option is set, the pages are read by a background
+	 * thread, in advance, so the next page is already requested while the current one is processed.
+	 *
+	 * @param list this is the list of data source keys.
+	 * @throws AREasyException in case of any error will occur
+	 */
+	protected void initSearch(List list) throws AREasyException
+	{
+		if(getAction().getConfiguration().getBoolean("attributeprojection", true) && list != null && !list.isEmpty())
+		{
+			Set names = new LinkedHashSet();
+
+			for(int i = 0; i < list.size(); i++)
+			{
+				if(list.get(i) != null) names.add(list.get(i));
+			}
+
+			searchControl.setReturningAttributes((String[]) names.toArray(new String[names.size()]));
+			searchControl.setReturningObjFlag(false);
+		}
+
+		try
+		{
+			if(getAction().getConfiguration().getBoolean("pageprefetch", false))
+			{
+				pageQueue = new ArrayBlockingQueue(Math.max(pageSize, 1) * Math.max(getAction().getConfiguration().getInt("prefetchpages", 2), 1));
+				pageReader = new PageReader();
+				pageReader.start();
+
+				logger.debug("LDAP Search pages prefetch has been started");
+			}
 			else
 			{
-				int total;
-				byte[] cookie = null;
+				searchAnswer = search(getContext(), null);
+				logger.debug("LDAP Search answer has been initialized: " + searchAnswer.hasMore());
+			}
+		}
+		catch(Throwable th)
+		{
+			throw new AREasyException("Error creating search interface: " + th.getMessage(), th);
+		}
+	}
+
+	/**
+	 * Get the attributes of the next entry found by the paged search.
+	 *
+	 * @return entry attributes or null if the search is completed
+	 * @throws Exception in case of any error will occur
+	 */
+	protected Attributes getNextAttributes() throws Exception
+	{
+		if(pageReader != null)
+		{
+			Attributes attrs = null;
+
+			while(attrs == null && pageError == null && pageQueue != null) attrs = (Attributes) pageQueue.poll(1, TimeUnit.SECONDS);
+
+			if(pageError != null) throw new AREasyException("Error reading LDAP page: " + pageError.getMessage(), pageError);
+
+			if(attrs == END)
+			{
+				pageQueue = null;
+				searchFinished = true;
+			}
 
-				logger.debug("LDAP Search answer asking for a new page");
+			return attrs != END ? attrs : null;
+		}
 
-				// Examine the paged results control response
-				Control[] controls = getContext().getResponseControls();
+		while(searchAnswer != null)
+		{
+			if(searchAnswer.hasMore())
+			{
+				pageEntries++;
+				return ((SearchResult) searchAnswer.next()).getAttributes();
+			}
 
-				if (controls != null)
+			logger.debug("LDAP Search answer asking for a new page");
+			byte[] cookie = getPageCookie(getContext());
+			updateDataCount(cookie);
+
+			if(cookie != null && cookie.length > 0)
+			{
+				if(getAction().getConfiguration().getBoolean("pagereconnect", false))
 				{
-					for (int i = 0; i < controls.length; i++)
-					{
-						if (controls[i] instanceof PagedResultsResponseControl)
-						{
-							PagedResultsResponseControl prrc = (PagedResultsResponseControl)controls[i];
-							total = prrc.getResultSize();
-							cookie = prrc.getCookie();
-						}
-					}
+					release();
+					initContext();
 				}
 
-				if(cookie != null)
+				searchAnswer = search(getContext(), cookie);
+				logger.debug("LDAP Search answer has been recreated: " +  searchAnswer.hasMore());
+			}
+			else
+			{
+				searchAnswer = null;
+				searchFinished = true;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Execute the search for the specified page.
+	 *
+	 * @param context LDAP context
+	 * @param cookie page cookie or null for the first page
+	 * @return search answer
+	 * @throws Exception in case of any error will occur
+	 */
+	private NamingEnumeration search(LdapContext context, byte[] cookie) throws Exception
+	{
+		if(cookie == null) context.setRequestControls(new Control[] { new PagedResultsControl(pageSize, Control.NONCRITICAL) });
+			else context.setRequestControls(new Control[] { new PagedResultsControl(pageSize, cookie, Control.CRITICAL) });
+
+		return context.search(getBaseDN(), getQualification(), searchControl);
+	}
+
+	/**
+	 * Examine the paged results control response and get the cookie of the next page.
+	 *
+	 * @param context LDAP context
+	 * @return page cookie or null if there is no other page
+	 * @throws Exception in case of any error will occur
+	 */
+	private byte[] getPageCookie(LdapContext context) throws Exception
+	{
+		byte[] cookie = null;
+		Control[] controls = context.getResponseControls();
+
+		for(int i = 0; controls != null && i < controls.length; i++)
+		{
+			if(controls[i] instanceof PagedResultsResponseControl)
+			{
+				PagedResultsResponseControl prrc = (PagedResultsResponseControl)controls[i];
+				cookie = prrc.getCookie();
+				pageResultSize = prrc.getResultSize();
+			}
+		}
+
+		return cookie;
+	}
+
+	/**
+	 * Update the total number of records of the action, when the data-source is counted lazily, during extraction.
+	 * The total is the result size estimated by the server (if it is supplied) or the number of entries received
+	 * so far, plus one page if the search is not completed.
+	 *
+	 * @param cookie cookie of the next page
+	 */
+	private void updateDataCount(byte[] cookie)
+	{
+		if(!lazyCount) return;
+
+		boolean more = cookie != null && cookie.length > 0;
+
+		if(more && pageResultSize > pageEntries) getAction().setDataCount(pageResultSize);
+			else getAction().setDataCount(pageEntries + (more ? pageSize : 0));
+	}
+
+	/**
+	 * Get the current data-source cursor, represented by the number of entries read from the directory.
+	 *
+	 * @return data-source cursor
+	 */
+	public String getCheckpoint()
+	{
+		return String.valueOf(entryIndex);
+	}
+
+	/**
+	 * Position the search after the specified number of entries. The entries are read through the paged
+	 * search without being mapped, when the search is started.
+	 *
+	 * @param checkpoint number of entries read in a previous execution
+	 * @throws AREasyException in case of any error will occur
+	 */
+	public void setCheckpoint(String checkpoint) throws AREasyException
+	{
+		skipEntries = NumberUtility.toInt(checkpoint, 0);
+	}
+
+	/**
+	 * Thread reading the search pages in advance, into a bounded queue, using a dedicated LDAP context.
+	 */
+	private class PageReader extends Thread
+	{
+		PageReader()
+		{
+			super("LDAPPageReader");
+			setDaemon(true);
+		}
+
+		public void run()
+		{
+			LdapContext reader = null;
+
+			try
+			{
+				reader = new InitialLdapContext(environment, null);
+				NamingEnumeration answer = search(reader, null);
+
+				while(answer != null && !isInterrupted())
 				{
-					if(getAction().getConfiguration().getBoolean("pagereconnect", false))
+					while(answer.hasMore())
 					{
-						release();
-						initContext();
+						pageQueue.put(((SearchResult) answer.next()).getAttributes());
+						pageEntries++;
 					}
 
-					getContext().setRequestControls(new Control[] {	new PagedResultsControl(pageSize, cookie, Control.CRITICAL) });
-					searchAnswer = getContext().search(getBaseDN(), getQualification(), searchControl);
-					logger.debug("LDAP Search answer has been recreated: " +  searchAnswer.hasMore());
+					byte[] cookie = getPageCookie(reader);
+					updateDataCount(cookie);
+
+					if(cookie != null && cookie.length > 0)
+					{
+						if(getAction().getConfiguration().getBoolean("pagereconnect", false))
+						{
+							reader.close();
+							reader = new InitialLdapContext(environment, null);
+						}
 
-					return getNextObject(list);
+						answer = search(reader, cookie);
+					}
+					else answer = null;
 				}
 			}
-		}
-		catch(Throwable th)
-		{
-			throw new AREasyException("Error reading data: " + th.getMessage(), th);
-		}
+			catch(InterruptedException ie)
+			{
+				//reading has been stopped
+			}
+			catch(Throwable th)
+			{
+				pageError = th;
+			}
+			finally
+			{
+				try
+				{
+					if(reader != null) reader.close();
+				}
+				catch(NamingException ne) { /* nothing to do */ }
 
-		return map;
+				try
+				{
+					if(!isInterrupted()) pageQueue.put(END);
+				}
+				catch(InterruptedException ie) { /* reading has been stopped */ }
+			}
+		}
 	}
 
 	/**
-	 * Read and return the total number of records found in the data-source.
+	 * Read and return the total number of records found in the data-source. The counting strategy is selected
+	 * through <code>countmode</code> option:
+	 * <ul>
+	 * <li><b>walk</b> - the entries are counted walking through all search pages (default)</li>
+	 * <li><b>estimate</b> - the result size estimated by the server is used, if the server supplies it, otherwise
+	 * the entries are counted lazily</li>
+	 * <li><b>lazy</b> - the entries are counted during extraction, updating the total number of records of the action
+	 * after each page</li>
+	 * </ul>
 	 *
-	 * @return number of records found
+	 * @return number of records found or -1 if it is not known yet
 	 */
 	public int getDataCount()
 	{
+		String mode = getAction().getConfiguration().getString("countmode", "walk");
+
+		if(StringUtility.equalsIgnoreCase(mode, "estimate"))
+		{
+			int estimate = getEstimatedCount();
+
+			if(estimate > 0) return estimate;
+				else logger.debug("LDAP server doesn't supply the result size, the entries will be counted during extraction");
+		}
+
+		if(StringUtility.equalsIgnoreCase(mode, "estimate") || StringUtility.equalsIgnoreCase(mode, "lazy"))
+		{
+			lazyCount = true;
+			return -1;
+		}
+
 		int counter = 0;
 
 		try
@@ -332,6 +591,45 @@ public class LDAPSource extends AbstractSource
 		return counter;
 	}
 
+	/**
+	 * Get the result size estimated by the server through the paged results response control. Only the first
+	 * entry is requested from the server.
+	 *
+	 * @return estimated number of entries or 0 if the server doesn't supply it
+	 */
+	protected int getEstimatedCount()
+	{
+		int total = 0;
+
+		try
+		{
+			SearchControls ctls = new SearchControls();
+			ctls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+			ctls.setReturningObjFlag(false);
+			ctls.setReturningAttributes( new String[] { oidName } );
+
+			getContext().setRequestControls(new Control[] {	new PagedResultsControl(1, Control.NONCRITICAL) });
+			NamingEnumeration answer = getContext().search(getBaseDN(), getQualification(), ctls);
+
+			while(answer != null && answer.hasMore()) answer.next();
+
+			Control[] controls = getContext().getResponseControls();
+
+			for(int i = 0; controls != null && i < controls.length; i++)
+			{
+				if(controls[i] instanceof PagedResultsResponseControl) total = ((PagedResultsResponseControl)controls[i]).getResultSize();
+			}
+
+			if(answer != null) answer.close();
+		}
+		catch(Throwable th)
+		{
+			logger.debug("Error reading LDAP result size estimate: " + th.getMessage());
+		}
+
+		return total;
+	}
+
 	/**
 	 * Get qualification that could be an LDAP expression
 	 *
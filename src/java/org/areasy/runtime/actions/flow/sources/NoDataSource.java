@@ -13,6 +13,7 @@ package org.areasy.runtime.actions.flow.sources;
  * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
  */
 
+import org.areasy.common.data.NumberUtility;
 import org.areasy.runtime.engine.base.AREasyException;
 
 import java.util.HashMap;
@@ -97,4 +98,25 @@ public class NoDataSource extends AbstractSource
 	{
 		return numberOfRecords;
 	}
+
+	/**
+	 * Get the current data-source cursor, represented by the number of delivered records.
+	 *
+	 * @return data-source cursor
+	 */
+	public String getCheckpoint()
+	{
+		return String.valueOf(index);
+	}
+
+	/**
+	 * Position the data-source after the specified number of records.
+	 *
+	 * @param checkpoint number of records delivered in a previous execution
+	 * @throws AREasyException in case of any error will occur
+	 */
+	public void setCheckpoint(String checkpoint) throws AREasyException
+	{
+		if(checkpoint != null) index = NumberUtility.toInt(checkpoint, 0);
+	}
 }
@@ -16,6 +16,7 @@ package org.areasy.runtime.actions.flow.sources;
 import com.bmc.arsys.api.*;
 import org.areasy.common.data.NumberUtility;
 import org.areasy.runtime.RuntimeManager;
+import org.areasy.runtime.actions.flow.FlowWatermark;
 import org.areasy.runtime.engine.RuntimeLogger;
 import org.areasy.runtime.engine.base.AREasyException;
 import org.areasy.runtime.engine.base.ServerConnection;
@@ -149,6 +150,15 @@ public class RemedySource extends AbstractSource
 			//translate qualification
 			if(remoteQualification != null) remoteQualification = getAction().getTranslatedQualification(remoteQualification);
 
+			//build part of qualification for incremental mode
+			String watermarkQualification = getWatermarkQualification();
+
+			if(watermarkQualification != null)
+			{
+				if(remoteQualification != null) remoteQualification = "(" + remoteQualification + ") AND (" + watermarkQualification + ")";
+					else remoteQualification = watermarkQualification;
+			}
+
 			//build part of qualification which should delivered next chunks.
 			if(lastRequestId != null)
 			{
@@ -187,6 +197,10 @@ public class RemedySource extends AbstractSource
 			{
 				lastRequestId = source.getEntryId();
 
+				//track watermark value
+				FlowWatermark watermark = getAction().getWatermark("6");
+				if(watermark != null) watermark.update(source.getAttributeValue(watermark.getField()));
+
 				//validate sourceIndex
 				if(searchList.size() == sourceIndex)
 				{
@@ -297,6 +311,15 @@ public class RemedySource extends AbstractSource
 
 			try
 			{
+				//build part of qualification for incremental mode
+				String watermarkQualification = getWatermarkQualification();
+
+				if(watermarkQualification != null)
+				{
+					if(remoteQualification != null) remoteQualification = "(" + remoteQualification + ") AND (" + watermarkQualification + ")";
+						else remoteQualification = watermarkQualification;
+				}
+
 				numberOfRows = source.count(getTargetServerConnection(), remoteQualification);
 			}
 			catch(AREasyException are)
@@ -308,4 +331,45 @@ public class RemedySource extends AbstractSource
 
 		return numberOfRows;
 	}
+
+	/**
+	 * Build the qualification part which selects only entries changed since the last recorded watermark
+	 * (incremental mode). By default the watermark is based on "Modified Date" field.
+	 *
+	 * @return qualification part or null if incremental mode is not enabled or no watermark has been recorded yet
+	 * @throws AREasyException in case of any error will occur
+	 */
+	protected String getWatermarkQualification() throws AREasyException
+	{
+		FlowWatermark watermark = getAction().getWatermark("6");
+		if(watermark == null || watermark.getLowerBoundText() == null) return null;
+
+		String field = watermark.getField();
+		if(NumberUtility.isNumber(field)) field = "'" + field + "'";
+
+		return field + " >= " + watermark.getLowerBoundText();
+	}
+
+	/**
+	 * Get the current data-source cursor, represented by the request id of the last delivered entry.
+	 *
+	 * @return data-source cursor or null
+	 */
+	public String getCheckpoint()
+	{
+		return lastRequestId;
+	}
+
+	/**
+	 * Position the data-source after the entry identified by the specified request id.
+	 *
+	 * @param checkpoint request id recorded in a previous execution
+	 * @throws AREasyException in case of any error will occur
+	 */
+	public void setCheckpoint(String checkpoint) throws AREasyException
+	{
+		lastRequestId = checkpoint;
+		searchList = null;
+		sourceIndex = 0;
+	}
 }
@@ -375,6 +375,14 @@ public class ServerFileSource extends AbstractSource
 		config.setKey("parsertype","file");
 		config.setKey("parserfile",getFile().getPath());
 
+		//parser reading modes
+		String options[] = {"parserstreaming", "parsercount", "parserparallel", "parserthreads", "parserunordered", "parserchunksize", "parserstringsmemory"};
+
+		for (int i = 0; i < options.length; i++)
+		{
+			if (getAction().getConfiguration().containsKey(options[i])) config.setKey(options[i], getAction().getConfiguration().getString(options[i]));
+		}
+
 		try
 		{
 			//initialization
@@ -444,7 +452,9 @@ public class ServerFileSource extends AbstractSource
 			//initialize parser (if is not)
 			if (parser == null) initParser();
 
-			numberOfRows = 1 + parser.getEndIndex() - parser.getStartIndex();
+			//the number of rows is unknown when the file is read in streaming mode without counting
+			if (parser.getEndIndex() > 0) numberOfRows = 1 + parser.getEndIndex() - parser.getStartIndex();
+				else numberOfRows = -1;
 		}
 		catch (AREasyException are)
 		{
@@ -455,6 +465,34 @@ public class ServerFileSource extends AbstractSource
 		return numberOfRows;
 	}
 
+	/**
+	 * Get the current data-source cursor, represented by the parser index of the next record.
+	 *
+	 * @return data-source cursor or null if the parser is not initialized
+	 */
+	public String getCheckpoint()
+	{
+		if (parser != null && parser.isIsinit()) return String.valueOf(parser.getCurrentIndex());
+			else return null;
+	}
+
+	/**
+	 * Position the parser on the record index recorded in a previous execution.
+	 *
+	 * @param checkpoint parser index recorded in a previous execution
+	 * @throws AREasyException in case of any error will occur
+	 */
+	public void setCheckpoint(String checkpoint) throws AREasyException
+	{
+		if (checkpoint == null) return;
+
+		//initialize parser (if is not)
+		if (parser == null) initParser();
+
+		int index = NumberUtility.toInt(checkpoint, parser.getStartIndex());
+		if (index > parser.getStartIndex()) parser.setCurrentIndex(index);
+	}
+
 	static int checkAck(InputStream in) throws IOException
 	{
 		int b = in.read();
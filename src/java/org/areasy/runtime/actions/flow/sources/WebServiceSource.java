@@ -13,18 +13,70 @@ package org.areasy.runtime.actions.flow.sources;
  * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
  */
 
+import org.areasy.common.data.NumberUtility;
+import org.areasy.common.data.StringUtility;
+import org.areasy.common.data.workers.parsers.Base64;
+import org.areasy.common.logger.Logger;
+import org.areasy.common.logger.LoggerFactory;
+import org.areasy.common.parser.json.JsonReader;
+import org.areasy.runtime.engine.RuntimeLogger;
 import org.areasy.runtime.engine.base.AREasyException;
 
-import java.util.List;
-import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
 
 /**
- * todo - implementation.
- * This is a data-source that should read data structures and related data directly from a web service provided by an
- * URL.
+ * Dedicated data source to read records from a web service provided by an URL. The response (XML/SOAP or JSON)
+ * is parsed in streaming mode, through StAX or through an incremental JSON reader, and the records are delivered
+ * one by one, so only the current record is kept in memory, regardless the size of the response.
+ * <p>
+ * The record fields are identified by element (or member) names; nested elements are identified by names
+ * joined with dots and XML attributes by <code>@</code> prefixed names. Repeated fields are delivered as lists.
+ * <p>
+ * Multiple pages are read following a next-link (found in the response) or incrementing an offset parameter.
  */
 public class WebServiceSource extends AbstractSource
 {
+	/** Library logger */
+	protected static Logger logger = LoggerFactory.getLog(WebServiceSource.class);
+
+	private String url = null;
+	private String format = null;
+	private String method = "GET";
+	private String body = null;
+	private String user = null;
+	private String password = null;
+	private int timeout = 60000;
+
+	private String record = null;
+	private String nextLink = null;
+	private String total = null;
+	private String offsetParam = null;
+	private String limitParam = null;
+	private int pageSize = 100;
+	private int maxPages = 10000;
+
+	private XMLInputFactory factory = null;
+	private Page page = null;
+	private boolean started = false;
+	private int offset = 0;
+	private int recordIndex = 0;
+	private int skipRecords = 0;
+	private int dataCount = -1;
+
+	/** Number of requested pages, the largest page and the content signature of the previous page */
+	private int pages = 0;
+	private int largestPage = 0;
+	private int lastSignature = 0;
+
 	/**
 	 * Dedicated method that has to be used internally, to set and validate the data-source configuration (<code>CoreItem</code> structure)
 	 *
@@ -32,7 +84,32 @@ public class WebServiceSource extends AbstractSource
 	 */
 	public void init() throws AREasyException
 	{
+		url = getAction().getConfiguration().getString("wsurl", null);
+		if(StringUtility.isEmpty(url)) throw new AREasyException("Web service URL is not specified. Use 'wsurl' option");
+
+		format = getAction().getConfiguration().getString("wsformat", null);
+		body = getAction().getConfiguration().getString("wsbody", null);
+		method = getAction().getConfiguration().getString("wsmethod", body != null ? "POST" : "GET").toUpperCase();
+		user = getAction().getConfiguration().getString("wsuser", null);
+		password = getAction().getConfiguration().getString("wspassword", null);
+		timeout = getAction().getConfiguration().getInt("wstimeout", 60000);
+
+		record = getAction().getConfiguration().getString("wsrecord", "");
+		nextLink = getAction().getConfiguration().getString("wsnextlink", null);
+		total = getAction().getConfiguration().getString("wstotal", null);
+		offsetParam = getAction().getConfiguration().getString("wsoffsetparam", null);
+		limitParam = getAction().getConfiguration().getString("wslimitparam", null);
+		pageSize = Math.max(getAction().getConfiguration().getInt("wspagesize", 100), 1);
+		maxPages = getAction().getConfiguration().getInt("wsmaxpages", 10000);
+
+		if(format != null) format = format.toLowerCase();
+		if(format != null && !format.equals("xml") && !format.equals("json")) throw new AREasyException("Invalid web service format: " + format);
+
+		if("xml".equals(format) && StringUtility.isEmpty(record)) throw new AREasyException("Record element name is not specified. Use 'wsrecord' option");
 
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
 	}
 
 	/**
@@ -42,18 +119,48 @@ public class WebServiceSource extends AbstractSource
 	 */
 	public void release() throws AREasyException
 	{
+		if(page != null)
+		{
+			page.close();
+			page = null;
+		}
 
+		started = false;
 	}
 
 	/**
 	 * Take and deliver through a <code>Map</code> structure the data headers from the selected data-source.
+	 * The headers are the field names found in the first records of the first page.
 	 *
 	 * @return a <code>Map</code> with data-source headers.
 	 * @throws AREasyException in case of any error will occur
 	 */
 	public Map getHeaders() throws AREasyException
 	{
-		return null;
+		Map map = new Hashtable();
+		Page first = new Page(getPageURL(url, offset));
+
+		try
+		{
+			Map data;
+
+			for(int count = 0; count < 100 && (data = first.next()) != null; count++)
+			{
+				Iterator iterator = data.keySet().iterator();
+
+				while(iterator.hasNext())
+				{
+					Object key = iterator.next();
+					if(!map.containsKey(key)) map.put(key, key);
+				}
+			}
+		}
+		finally
+		{
+			first.close();
+		}
+
+		return map;
 	}
 
 	/**
@@ -66,17 +173,508 @@ public class WebServiceSource extends AbstractSource
 	 */
 	public Map getNextObject(List list) throws AREasyException
 	{
+		if(!started)
+		{
+			started = true;
+
+			//with offset paging the records read in a previous execution are not requested again
+			if(offsetParam != null && skipRecords > 0)
+			{
+				offset = skipRecords;
+				recordIndex = skipRecords;
+			}
+
+			page = new Page(getPageURL(url, offset));
+			pages = 1;
+			largestPage = 0;
+			lastSignature = 0;
+		}
+
+		while(page != null)
+		{
+			Map data = page.next();
+
+			if(data != null)
+			{
+				recordIndex++;
+
+				//skip records read in a previous execution
+				if(recordIndex <= skipRecords) continue;
+
+				Map map = new HashMap();
+
+				for(int i = 0; i < list.size(); i++)
+				{
+					String colName = (String) list.get(i);
+					if(colName != null) map.put(colName, data.get(colName));
+				}
+
+				return map;
+			}
+
+			page.close();
+
+			String next = getNextPage(page);
+
+			if(next != null && maxPages > 0 && pages >= maxPages)
+			{
+				RuntimeLogger.warn("Web service reading has been stopped after " + pages + " pages. Use 'wsmaxpages' option to read more pages");
+				next = null;
+			}
+
+			page = next != null ? new Page(next) : null;
+			if(page != null) pages++;
+		}
+
 		return null;
 	}
 
 	/**
-	 * Read and return the total number of records found in the data-source.
-	 * This input have to be optimized for long data-sources
+	 * Read and return the total number of records found in the data-source. The number is taken from the
+	 * response field specified by <code>wstotal</code> option; if the total is not published by the web
+	 * service the number of records is unknown.
 	 *
-	 * @return number of records found
+	 * @return number of records found or -1 if it is unknown
 	 */
 	public int getDataCount()
 	{
-		return 0;
+		if(dataCount < 0 && total != null)
+		{
+			Page first = null;
+
+			try
+			{
+				first = new Page(getPageURL(url, 0));
+				while(first.total < 0 && first.next() != null);
+
+				dataCount = first.total;
+			}
+			catch(AREasyException are)
+			{
+				logger.debug("Error reading web service total: " + are.getMessage());
+			}
+			finally
+			{
+				if(first != null) first.close();
+			}
+		}
+
+		return dataCount;
+	}
+
+	/**
+	 * Get the current data-source cursor, represented by the number of records read from the web service.
+	 *
+	 * @return data-source cursor
+	 */
+	public String getCheckpoint()
+	{
+		return String.valueOf(recordIndex);
+	}
+
+	/**
+	 * Position the data-source after the specified number of records. With offset paging the reading starts
+	 * directly from the checkpoint offset, otherwise the records are read and skipped.
+	 *
+	 * @param checkpoint number of records read in a previous execution
+	 * @throws AREasyException in case of any error will occur
+	 */
+	public void setCheckpoint(String checkpoint) throws AREasyException
+	{
+		skipRecords = NumberUtility.toInt(checkpoint, 0);
+	}
+
+	/**
+	 * Get the URL of the page starting with the specified offset, when offset paging is configured.
+	 *
+	 * @param base web service URL
+	 * @param start offset of the first record of the page
+	 * @return page URL
+	 */
+	protected String getPageURL(String base, int start)
+	{
+		if(offsetParam == null) return base;
+
+		StringBuffer buffer = new StringBuffer(base);
+		buffer.append(base.indexOf('?') < 0 ? '?' : '&').append(offsetParam).append('=').append(start);
+
+		if(limitParam != null) buffer.append('&').append(limitParam).append('=').append(pageSize);
+
+		return buffer.toString();
+	}
+
+	/**
+	 * Get the URL of the page following the specified (completed) page. With offset paging the reading stops
+	 * when the page is empty, shorter than the expected page size (the requested size, or the largest page
+	 * delivered when the size is not requested) or has the same content as the previous page (the web service
+	 * ignores the offset parameter).
+	 *
+	 * @param current completed page
+	 * @return next page URL or null if there is no other page
+	 * @throws AREasyException in case of any error will occur
+	 */
+	protected String getNextPage(Page current) throws AREasyException
+	{
+		if(current.total >= 0 && current.total != dataCount)
+		{
+			dataCount = current.total;
+			getAction().setDataCount(dataCount);
+		}
+
+		if(nextLink != null)
+		{
+			if(StringUtility.isEmpty(current.link)) return null;
+
+			try
+			{
+				String next = new URL(new URL(current.url), current.link).toString();
+				return !next.equals(current.url) ? next : null;
+			}
+			catch(Exception e)
+			{
+				throw new AREasyException("Invalid next page link: " + current.link, e);
+			}
+		}
+		else if(offsetParam != null)
+		{
+			boolean more = current.records > 0 && current.records >= (limitParam != null ? pageSize : largestPage);
+			if(more && dataCount >= 0 && offset + current.records >= dataCount) more = false;
+
+			if(more && pages > 1 && current.signature == lastSignature)
+			{
+				RuntimeLogger.warn("Web service delivered the same page for offset " + offset + ", the reading is stopped. Check 'wsoffsetparam' option");
+				more = false;
+			}
+
+			largestPage = Math.max(largestPage, current.records);
+			lastSignature = current.signature;
+			offset += current.records;
+
+			return more ? getPageURL(url, offset) : null;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Add a field value to a record; the values of a repeated field are collected in a list.
+	 *
+	 * @param data record structure
+	 * @param key field name
+	 * @param value field value
+	 */
+	private static void put(Map data, String key, Object value)
+	{
+		if(!data.containsKey(key)) data.put(key, value);
+		else
+		{
+			Object existing = data.get(key);
+
+			if(existing instanceof List) ((List)existing).add(value);
+			else
+			{
+				List values = new Vector();
+				values.add(existing);
+				values.add(value);
+
+				data.put(key, values);
+			}
+		}
+	}
+
+	/**
+	 * Web service response, parsed in streaming mode.
+	 */
+	protected class Page
+	{
+		private String url = null;
+		private HttpURLConnection connection = null;
+		private XMLStreamReader xml = null;
+		private JsonReader json = null;
+
+		/** JSON containers path and type (true for arrays) */
+		private LinkedList paths = new LinkedList();
+		private LinkedList arrays = new LinkedList();
+		private String member = null;
+
+		private String link = null;
+		private int total = -1;
+		private int records = 0;
+		private int signature = 0;
+
+		Page(String url) throws AREasyException
+		{
+			this.url = url;
+
+			try
+			{
+				connection = (HttpURLConnection) new URL(url).openConnection();
+				connection.setConnectTimeout(timeout);
+				connection.setReadTimeout(timeout);
+				connection.setRequestMethod(method);
+				connection.setRequestProperty("Accept-Encoding", "gzip");
+
+				if("json".equals(format)) connection.setRequestProperty("Accept", "application/json");
+					else if("xml".equals(format)) connection.setRequestProperty("Accept", "text/xml, application/xml, application/soap+xml");
+
+				if(user != null) connection.setRequestProperty("Authorization", "Basic " + Base64.encode2((user + ":" + (password != null ? password : "")).getBytes("UTF-8")));
+
+				if(body != null)
+				{
+					connection.setDoOutput(true);
+					connection.setRequestProperty("Content-Type", getAction().getConfiguration().getString("wscontenttype", "json".equals(format) ? "application/json; charset=UTF-8" : "text/xml; charset=UTF-8"));
+
+					String soapAction = getAction().getConfiguration().getString("wssoapaction", null);
+					if(soapAction != null) connection.setRequestProperty("SOAPAction", soapAction);
+
+					OutputStream output = connection.getOutputStream();
+					output.write(body.getBytes("UTF-8"));
+					output.close();
+				}
+
+				int code = connection.getResponseCode();
+
+				if(code >= 400)
+				{
+					String message = connection.getResponseMessage();
+					drain(connection.getErrorStream());
+
+					throw new AREasyException("Web service error HTTP " + code + ": " + message);
+				}
+
+				InputStream input = connection.getInputStream();
+				if("gzip".equalsIgnoreCase(connection.getContentEncoding())) input = new GZIPInputStream(input);
+
+				String type = connection.getContentType() != null ? connection.getContentType().toLowerCase() : "";
+				String charset = type.indexOf("charset=") >= 0 ? type.substring(type.indexOf("charset=") + 8).replaceAll("[\"';].*", "").trim() : null;
+
+				if("json".equals(format) || (format == null && type.indexOf("json") >= 0)) json = new JsonReader(new InputStreamReader(input, charset != null ? charset : "UTF-8"));
+					else xml = charset != null ? factory.createXMLStreamReader(input, charset) : factory.createXMLStreamReader(input);
+
+				if(xml != null && StringUtility.isEmpty(record)) throw new AREasyException("Record element name is not specified. Use 'wsrecord' option");
+
+				logger.debug("Web service page has been requested: " + url);
+			}
+			catch(AREasyException are)
+			{
+				close();
+				throw are;
+			}
+			catch(Throwable th)
+			{
+				close();
+				throw new AREasyException("Error calling web service '" + url + "': " + th.getMessage(), th);
+			}
+		}
+
+		/**
+		 * Read the next record of the page.
+		 *
+		 * @return record fields or null at the end of the page
+		 * @throws AREasyException in case of any error will occur
+		 */
+		Map next() throws AREasyException
+		{
+			try
+			{
+				Map data = json != null ? nextJson() : nextXml();
+
+				if(data != null)
+				{
+					records++;
+					signature = 31 * signature + data.hashCode();
+				}
+
+				return data;
+			}
+			catch(Throwable th)
+			{
+				throw new AREasyException("Error reading web service response: " + th.getMessage(), th);
+			}
+		}
+
+		/**
+		 * Read and close the error response, so the connection could be reused.
+		 *
+		 * @param error error stream (could be null)
+		 */
+		private void drain(InputStream error)
+		{
+			if(error == null) return;
+
+			try
+			{
+				byte buffer[] = new byte[4096];
+				while(error.read(buffer) >= 0);
+			}
+			catch(Exception e) { /* ignore read errors */ }
+			finally
+			{
+				try
+				{
+					error.close();
+				}
+				catch(Exception e) { /* ignore close errors */ }
+			}
+		}
+
+		void close()
+		{
+			try
+			{
+				if(xml != null) xml.close();
+				if(json != null) json.close();
+			}
+			catch(Exception e) { /* ignore close errors */ }
+
+			if(connection != null) connection.disconnect();
+
+			xml = null;
+			json = null;
+			connection = null;
+		}
+
+		private Map nextXml() throws Exception
+		{
+			while(xml != null && xml.hasNext())
+			{
+				if(xml.next() != XMLStreamConstants.START_ELEMENT) continue;
+
+				String name = xml.getLocalName();
+
+				if(name.equals(record))
+				{
+					Map data = new HashMap();
+					readXml(null, data);
+
+					return data;
+				}
+				else if(name.equals(nextLink))
+				{
+					String rel = xml.getAttributeValue(null, "rel");
+					String href = xml.getAttributeValue(null, "href");
+
+					if(rel == null || rel.equals("next")) link = href != null ? href : xml.getElementText().trim();
+				}
+				else if(name.equals(total)) total = NumberUtility.toInt(xml.getElementText().trim(), -1);
+			}
+
+			return null;
+		}
+
+		private void readXml(String key, Map data) throws Exception
+		{
+			for(int i = 0; i < xml.getAttributeCount(); i++)
+			{
+				put(data, (key != null ? key : "") + "@" + xml.getAttributeLocalName(i), xml.getAttributeValue(i));
+			}
+
+			StringBuffer text = new StringBuffer();
+			boolean children = false;
+
+			while(true)
+			{
+				int event = xml.next();
+
+				if(event == XMLStreamConstants.START_ELEMENT)
+				{
+					children = true;
+					readXml(key != null ? key + "." + xml.getLocalName() : xml.getLocalName(), data);
+				}
+				else if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) text.append(xml.getText());
+				else if(event == XMLStreamConstants.END_ELEMENT) break;
+			}
+
+			if(key != null && !children) put(data, key, text.toString().trim());
+		}
+
+		private Map nextJson() throws Exception
+		{
+			while(json != null)
+			{
+				int token = json.next();
+
+				String parent = paths.isEmpty() ? null : (String) paths.getLast();
+				boolean array = !arrays.isEmpty() && ((Boolean) arrays.getLast()).booleanValue();
+				String path = parent == null ? "" : (array ? parent : join(parent, member));
+
+				switch(token)
+				{
+					case JsonReader.END_DOCUMENT:
+						return null;
+
+					case JsonReader.NAME:
+						member = json.getName();
+						break;
+
+					case JsonReader.BEGIN_OBJECT:
+						//records array elements or the whole document, when no records path is set
+						if((array && parent.equals(record)) || (parent == null && record.length() == 0))
+						{
+							Map data = new HashMap();
+							readJson(null, data);
+
+							return data;
+						}
+
+						paths.add(path);
+						arrays.add(Boolean.FALSE);
+						break;
+
+					case JsonReader.BEGIN_ARRAY:
+						paths.add(path);
+						arrays.add(Boolean.TRUE);
+						break;
+
+					case JsonReader.END_OBJECT:
+					case JsonReader.END_ARRAY:
+						paths.removeLast();
+						arrays.removeLast();
+						break;
+
+					case JsonReader.VALUE:
+						if(path.equals(nextLink)) link = json.getValue() != null ? json.getValue().toString() : null;
+							else if(path.equals(total)) total = NumberUtility.toInt(String.valueOf(json.getValue()), -1);
+						break;
+				}
+			}
+
+			return null;
+		}
+
+		private void readJson(String key, Map data) throws Exception
+		{
+			String name = null;
+
+			while(true)
+			{
+				int token = json.next();
+
+				if(token == JsonReader.END_OBJECT || token == JsonReader.END_DOCUMENT) break;
+					else if(token == JsonReader.NAME) name = json.getName();
+					else if(token == JsonReader.BEGIN_OBJECT) readJson(join(key, name), data);
+					else if(token == JsonReader.BEGIN_ARRAY) readJsonArray(join(key, name), data);
+					else if(token == JsonReader.VALUE) put(data, join(key, name), json.getValue());
+			}
+		}
+
+		private void readJsonArray(String key, Map data) throws Exception
+		{
+			while(true)
+			{
+				int token = json.next();
+
+				if(token == JsonReader.END_ARRAY || token == JsonReader.END_DOCUMENT) break;
+					else if(token == JsonReader.BEGIN_OBJECT) readJson(key, data);
+					else if(token == JsonReader.BEGIN_ARRAY) readJsonArray(key, data);
+					else if(token == JsonReader.VALUE) put(data, key, json.getValue());
+			}
+		}
+
+		private String join(String parent, String name)
+		{
+			if(StringUtility.isEmpty(parent)) return name != null ? name : "";
+				else return name != null ? parent + "." + name : parent;
+		}
 	}
 }
@@ -41,4 +41,15 @@ public class MySQLSource extends DatabaseSource
 		setConnection(url, "com.mysql.jdbc.Driver", userName, userPassword);
 		setQualification( getSourceItem().getStringAttributeValue(536871019) );
 	}
+
+	/**
+	 * MySQL driver streams the rows one by one only when the fetch size is <code>Integer.MIN_VALUE</code>,
+	 * otherwise it loads the whole result in memory (unless <code>useCursorFetch=true</code> is set in connection string).
+	 *
+	 * @return default fetch size
+	 */
+	protected int getDefaultFetchSize()
+	{
+		return Integer.MIN_VALUE;
+	}
 }
@@ -43,4 +43,14 @@ public class OracleSource extends DatabaseSource
 		setConnection(url, "oracle.jdbc.driver.OracleDriver", userName, userPassword);
 		setQualification( getSourceItem().getStringAttributeValue(536871029) );
 	}
+
+	/**
+	 * Oracle driver fetches by default only 10 rows in one round trip.
+	 *
+	 * @return default fetch size
+	 */
+	protected int getDefaultFetchSize()
+	{
+		return 500;
+	}
 }
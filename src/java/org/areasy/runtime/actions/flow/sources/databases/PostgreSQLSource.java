@@ -17,12 +17,21 @@ import org.areasy.common.data.StringUtility;
 import org.areasy.runtime.actions.flow.sources.DatabaseSource;
 import org.areasy.runtime.engine.base.AREasyException;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 /**
  * Dedicated data source to process data from a PostgreSQL Server database.
  * The data-source uses <code>PostgreSQL</code> native driver and libraries.
  */
 public class PostgreSQLSource extends DatabaseSource
 {
+	/** Connections prepared for streaming mode, with their previous auto-commit mode (partitions use dedicated connections) */
+	private final Map streamed = Collections.synchronizedMap(new IdentityHashMap());
+
 	/**
 	 * Dedicated method that has to be used internally, to set and validate the data-source configuration (<code>CoreItem</code> structure)
 	 *
@@ -41,4 +50,43 @@ public class PostgreSQLSource extends DatabaseSource
 		setConnection(url, "org.postgresql.Driver", userName, userPassword);
 		setQualification( getSourceItem().getStringAttributeValue(536870961) );
 	}
+
+	/**
+	 * PostgreSQL driver uses database cursors (and fetch size) only when the auto-commit mode is disabled.
+	 * The previous auto-commit mode is saved to be restored when the connection is released.
+	 *
+	 * @param connection database connection
+	 * @throws SQLException in case of any database error will occur
+	 */
+	protected void prepareStreaming(Connection connection) throws SQLException
+	{
+		if(connection.getAutoCommit())
+		{
+			if(!streamed.containsKey(connection)) streamed.put(connection, Boolean.TRUE);
+			connection.setAutoCommit(false);
+		}
+	}
+
+	/**
+	 * End the transaction opened for streaming mode and restore the previous auto-commit mode of the connection.
+	 *
+	 * @param connection database connection
+	 * @throws SQLException in case of any database error will occur
+	 */
+	protected void releaseStreaming(Connection connection) throws SQLException
+	{
+		Boolean autoCommit = (Boolean) streamed.remove(connection);
+
+		if(autoCommit != null && !connection.isClosed())
+		{
+			try
+			{
+				connection.commit();
+			}
+			finally
+			{
+				connection.setAutoCommit(autoCommit.booleanValue());
+			}
+		}
+	}
 }
@@ -33,6 +33,9 @@ public abstract class AbstractUserEnrollment extends BaseData implements Runtime
 
 	public void open() throws AREasyException
 	{
+		//load foundation indexes (if requested)
+		initFoundationIndex();
+
 		//get usernames
 		String username = getConfiguration().getString("login", getConfiguration().getString("username", null));
 		usernames = getConfiguration().getVector("logins", getConfiguration().getVector("usernames", new Vector<String>()));
@@ -133,7 +136,7 @@ public abstract class AbstractUserEnrollment extends BaseData implements Runtime
 					setMultiPartForms(entry);
 
 					//execute transactions
-					((MultiPartItem) entry).commitParts(getServerConnection(), getMultiPartQueryFields(), getMultiPartDataFields());
+					((MultiPartItem) entry).commitParts(getServerConnection(), getMultiPartQueryFields(), getMultiPartDataFields(), getConfiguration().getBoolean("multipartbulk", false));
 				}
 			}
 			else if (entry.exists())
@@ -147,7 +150,7 @@ public abstract class AbstractUserEnrollment extends BaseData implements Runtime
 					setMultiPartForms(entry);
 
 					//execute transactions
-					((MultiPartItem) entry).commitParts(getServerConnection(), getMultiPartQueryFields(), getMultiPartDataFields());
+					((MultiPartItem) entry).commitParts(getServerConnection(), getMultiPartQueryFields(), getMultiPartDataFields(), getConfiguration().getBoolean("multipartbulk", false));
 				}
 			}
 		}
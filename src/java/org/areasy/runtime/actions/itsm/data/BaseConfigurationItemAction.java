@@ -29,10 +29,16 @@ import java.util.Vector;
  */
 public abstract class BaseConfigurationItemAction extends BaseData implements ConfigurationItemAction
 {
+	/** Flag to stop the processing of the identified CIs */
+	private boolean stopped = false;
+
 	public void run() throws AREasyException
 	{
 		getCron().start();
 
+		//load foundation indexes (if requested)
+		initFoundationIndex();
+
 		List items = null;
 		boolean loop = true;
 
@@ -82,7 +88,7 @@ public abstract class BaseConfigurationItemAction extends BaseData implements Co
 		//execute flow
 		if(items != null && items.size() > 0)
 		{
-			for (int i = 0; loop && i < items.size(); i++)
+			for (int i = 0; loop && !stopped && i < items.size(); i++)
 			{
 				//gte entry
 				ConfigurationItem item = (ConfigurationItem) items.get(i);
@@ -108,6 +114,8 @@ public abstract class BaseConfigurationItemAction extends BaseData implements Co
 				if (isInterrupted())
 				{
 					RuntimeLogger.warn("Execution interrupted by user");
+					complete();
+
 					return;
 				}
 			}
@@ -130,11 +138,33 @@ public abstract class BaseConfigurationItemAction extends BaseData implements Co
 			setRecordsCounter();
 		}
 
+		//complete the pending processing (e.g. the last batch) before stopping the cron control
+		complete();
 
 		//stop cron control
 		getCron().stop();
 	}
 
+	/**
+	 * Complete the processing of the identified CIs. This method is called at the end of the CIs loop (also when the
+	 * loop is stopped or interrupted), before stopping the cron control, so the actions processing the CIs in batches
+	 * could process the last (incomplete) batch.
+	 *
+	 * @throws AREasyException if any error will occur
+	 */
+	protected void complete() throws AREasyException
+	{
+		//nothing to do by default
+	}
+
+	/**
+	 * Stop the processing of the identified CIs, the same way as an error does for a not forced execution.
+	 */
+	protected void stop()
+	{
+		stopped = true;
+	}
+
 	protected Map getRelationKeyMap()
 	{
 		List peoplerelationkeyids = getConfiguration().getVector("peoplerelationkeyids", new Vector());
@@ -17,6 +17,7 @@ import org.areasy.common.data.StringUtility;
 import org.areasy.runtime.engine.RuntimeLogger;
 import org.areasy.runtime.engine.base.AREasyException;
 import org.areasy.runtime.engine.structures.data.cmdb.ConfigurationItem;
+import org.areasy.runtime.engine.structures.data.cmdb.units.RelationshipLoader;
 import org.areasy.runtime.engine.workflows.ProcessorLevel1Context;
 import org.areasy.runtime.engine.workflows.ProcessorLevel2CmdbApp;
 
@@ -30,6 +31,45 @@ import java.util.Vector;
  */
 public class RelationshipConfigurationItemCreateAction extends BaseConfigurationItemAction implements ConfigurationItemAction
 {
+	/** Bulk relationships loader, used when the relationships are processed in batches */
+	private RelationshipLoader loader = null;
+
+	/**
+	 * Execute the action for all identified CIs. When <code>relationshipbatch</code> option is greater than 1 the relationships
+	 * are collected and processed in batches, using bulk searches and transactions. The last batch is processed when the
+	 * CIs loop is completed or, if the execution fails, before leaving the action.
+	 *
+	 * @throws AREasyException if any error will occur
+	 */
+	public void run() throws AREasyException
+	{
+		int batchSize = getConfiguration().getInt("relationshipbatch", 0);
+		int chunkSize = getConfiguration().getInt("relationshipchunk", 50);
+
+		if(batchSize > 1) loader = new RelationshipLoader(getServerConnection(), batchSize, chunkSize);
+
+		try
+		{
+			super.run();
+		}
+		finally
+		{
+			//process the relationships left in the current batch by a failed execution
+			if(loader != null && loader.size() > 0) complete();
+			loader = null;
+		}
+	}
+
+	/**
+	 * Process the relationships left in the current batch.
+	 *
+	 * @throws AREasyException if any error will occur
+	 */
+	protected void complete() throws AREasyException
+	{
+		if(loader != null) report(loader.flush());
+	}
+
 	/**
 	 * Create a relationship between two CIs.
 	 *
@@ -106,10 +146,40 @@ public class RelationshipConfigurationItemCreateAction extends BaseConfiguration
 		else throw new AREasyException("CI relationship keys are not defined");
 
 		//process action
+		if(loader != null)
+		{
+			report(loader.add(item, item2, classrelationimpact, classrelationtype, isparent));
+			return;
+		}
+
 		boolean output = ProcessorLevel2CmdbApp.setConfigurationItemRelationship(getServerConnection(), item, item2, classrelationimpact, classrelationtype, isparent);
 		if(output) RuntimeLogger.debug("CI relationship has been created: " + item + " -> " + item2);
 	}
 
+	/**
+	 * Report the outcome of the relationships processed by the bulk loader. Like for the relationships processed one by
+	 * one, a failed relationship stops the execution, unless the execution is forced.
+	 *
+	 * @param rows processed relationships
+	 */
+	protected void report(List<RelationshipLoader.Row> rows)
+	{
+		for(int i = 0; i < rows.size(); i++)
+		{
+			RelationshipLoader.Row row = rows.get(i);
+
+			if(row.getOutcome() == RelationshipLoader.CREATED || row.getOutcome() == RelationshipLoader.UPDATED) RuntimeLogger.debug(row.getMessage());
+				else if(row.getOutcome() == RelationshipLoader.EXISTS) RuntimeLogger.warn(row.getMessage());
+			else
+			{
+				RuntimeLogger.error("Error running action for " + row.getPrimary() + ": " + row.getMessage());
+				setErrorsCounter();
+
+				if(!isForced()) stop();
+			}
+		}
+	}
+
 	protected Map getRelationKeyMap()
 	{
 		List cirelationkeyids = getConfiguration().getVector("cirelationkeyids", new Vector());
@@ -21,6 +21,7 @@ import org.areasy.common.data.type.buffer.BoundedFifoBuffer;
 import org.areasy.common.logger.Logger;
 import org.areasy.common.logger.LoggerFactory;
 import org.areasy.common.support.configuration.Configuration;
+import org.areasy.common.support.database.ConnectionPool;
 import org.areasy.runtime.RuntimeManager;
 import org.areasy.runtime.engine.base.AREasyException;
 import org.areasy.runtime.engine.services.cache.DataCache;
@@ -221,6 +222,9 @@ public class RuntimeServer extends RuntimeBase
 		//Release objects from cache
 		InitialObject.release();
 
+		//close pooled database connections
+		ConnectionPool.shutdown();
+
 		//removing object from cache layer
 		getCache().clear();
 
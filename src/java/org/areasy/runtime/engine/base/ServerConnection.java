@@ -44,6 +44,10 @@ public class ServerConnection extends InitialObject
 	private boolean overlay = false;
 	private String overlayGroup = null;
 
+	/** instance ids (GUIDs) generation mode: server, block or local */
+	private String guidMode = "server";
+	private int guidBlockSize = 1000;
+
 	private String encoding = "en_US.UTF8";
 	private String external = "";
 
@@ -92,6 +96,9 @@ public class ServerConnection extends InitialObject
 		int rpcqueue = connection.rpcQueue;
 		boolean overlay = connection.overlay;
 
+		this.guidMode = connection.guidMode;
+		this.guidBlockSize = connection.guidBlockSize;
+
 		if(!connection.impersonated) connect(arserver, aruser, arpassword, arport, rpcqueue, overlay, null);
 			else connect(arserver, aruser, arpassword, arport, rpcqueue, overlay, getUserName());
 	}
@@ -250,6 +257,8 @@ public class ServerConnection extends InitialObject
 	{
 		ServerConnection newconn = new ServerConnection();
 		newconn.connect(this.serverName, this.userName, this.userPassword, this.serverPort, this.rpcQueue, overlay, (getContext() != null ? getContext().getImpersonatedUser() : null));
+		newconn.setGuidMode(this.guidMode);
+		newconn.setGuidBlockSize(this.guidBlockSize);
 
 		return newconn;
 	}
@@ -446,6 +455,38 @@ public class ServerConnection extends InitialObject
 		return this.overlayGroup;
 	}
 
+	/**
+	 * Get instance ids (GUIDs) generation mode: <code>server</code> (each GUID is generated by the server),
+	 * <code>block</code> (GUIDs are derived locally from a GUID reserved on the server for a block of ids) or
+	 * <code>local</code> (GUIDs are generated locally, without server calls)
+	 *
+	 * @return GUID generation mode
+	 */
+	public String getGuidMode()
+	{
+		return this.guidMode;
+	}
+
+	public void setGuidMode(String guidMode)
+	{
+		if(guidMode != null) this.guidMode = guidMode;
+	}
+
+	/**
+	 * Get the number of instance ids (GUIDs) derived from one GUID reserved on the server, in <code>block</code> mode.
+	 *
+	 * @return block size
+	 */
+	public int getGuidBlockSize()
+	{
+		return this.guidBlockSize;
+	}
+
+	public void setGuidBlockSize(int guidBlockSize)
+	{
+		if(guidBlockSize > 0) this.guidBlockSize = guidBlockSize;
+	}
+
 	/**
 	 * Prepare AR System connection to be stored in cache layer and used to initialize all actions
 	 * to use it from there.
@@ -460,6 +501,9 @@ public class ServerConnection extends InitialObject
 		String arpassword = getManager().getConfiguration().getString("app.server.default.arsystem.user.password", null);
 		String mode = getManager().getConfiguration().getString("app.server.default.arsystem.mode", "base");
 
+		setGuidMode(getManager().getConfiguration().getString("app.server.default.arsystem.guid.mode", "server"));
+		setGuidBlockSize(getManager().getConfiguration().getInt("app.server.default.arsystem.guid.block", 1000));
+
 		connect(arserver, aruser, arpassword, arport, rpcqueue, mode);
 		logger.debug("Persistent AR System server connection: " + this);
 	}
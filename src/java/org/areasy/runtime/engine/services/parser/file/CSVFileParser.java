@@ -17,20 +17,32 @@ import org.areasy.common.parser.csv.CsvReader;
 import org.areasy.runtime.engine.services.parser.AbstractParser;
 import org.areasy.runtime.engine.services.parser.ParserException;
 
-import java.io.FileInputStream;
-import java.io.FileReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Specialized parser class to extract data from "comma separated value" files.
+ * <p>
+ * In streaming mode (<code>parserstreaming</code> option) the rows are read from the file on demand, only the rows
+ * located before the start index (i.e. headers) are kept in memory. The number of rows is found through a fast
+ * pre-scan of the file, that could be disabled through <code>parsercount</code> option, case in which the number
+ * of rows remains unknown.
+ * <p>
+ * In parallel mode (<code>parserparallel</code> option) the file is memory-mapped and tokenized in chunks by
+ * multiple threads, the rows being delivered on demand, like in streaming mode.
  */
 public class CSVFileParser extends AbstractParser
 {
 	private CsvReader reader = null;
 	private List lines = null;
 
+	private ParallelFileReader parallel = null;
+
+	private boolean streaming = false;
+	private List head = null;
+	private int readerIndex = 0;
+
 	/**
 	 * Initialize parser class
 	 *
@@ -40,13 +52,60 @@ public class CSVFileParser extends AbstractParser
 	{
 		String charset = null;
 		String file = getParserConfig().getString("parserfile", null);
+		int rows = -1;
 
         try
 		{
             if (getRuntimeConfig() != null) charset = getRuntimeConfig().getString("charset",null);
+			streaming = getParserConfig().getBoolean("parserstreaming", getRuntimeConfig() != null && getRuntimeConfig().getBoolean("app.runtime.parser.csv.streaming", false));
+
+			if(getParserConfig().getBoolean("parserparallel", getRuntimeConfig() != null && getRuntimeConfig().getBoolean("app.runtime.parser.csv.parallel", false)))
+			{
+				if(ParallelFileReader.isSupported(charset))
+				{
+					parallel = new ParallelFileReader(new File(file), charset, CsvReader.DEFAULT_QUOTE_CHARACTER,
+							getParserConfig().getInt("parserthreads", Runtime.getRuntime().availableProcessors()),
+							!getParserConfig().getBoolean("parserunordered", false),
+							getParserConfig().getInt("parserchunksize", ParallelFileReader.DEFAULT_CHUNK_SIZE / 1048576) * 1048576)
+					{
+						protected List parse(Reader input) throws IOException
+						{
+							return new CsvReader(input).readAll();
+						}
+					};
+
+					streaming = true;
+				}
+				else getLogger().warn("Parallel parsing is not supported for '" + charset + "' charset, the data file will be read sequentially");
+			}
+
+            if(parallel == null) reader = new CsvReader((charset != null) ? new InputStreamReader(new FileInputStream(file),charset) : new FileReader(file));
+
+			if(streaming)
+			{
+				head = new ArrayList();
+				readerIndex = 0;
 
-            reader = new CsvReader((charset != null) ? new InputStreamReader(new FileInputStream(file),charset) : new FileReader(file));
-			lines = reader.readAll();
+				//keep in memory only the rows located before the first data row (headers)
+				while(readerIndex < Math.max(getStartIndex(), 1))
+				{
+					String data[] = nextRow();
+					if(data == null) break;
+
+					head.add(data);
+					readerIndex++;
+				}
+
+				if(getParserConfig().getBoolean("parsercount", true)) rows = getRowsCount(file, charset);
+			}
+			else
+			{
+				//repeated values share the same instance while all rows are kept in memory
+				reader.setInternFields(true);
+
+				lines = reader.readAll();
+				rows = lines.size();
+			}
 		}
 		catch (Exception ex)
 		{
@@ -54,21 +113,70 @@ public class CSVFileParser extends AbstractParser
 		}
 
 		//validate EndIndex value
-		if(getEndIndex() == 0)
+		if(rows < 0)
+		{
+			getLogger().info("Data file is read in streaming mode, the number of rows is unknown");
+		}
+		else if(getEndIndex() == 0)
 		{
-			setEndIndex(lines.size());
-			getLogger().info("Found " + lines.size() + " rows in the data file");
+			setEndIndex(rows);
+			getLogger().info("Found " + rows + " rows in the data file");
 		}
 		else
 		{
-			if(lines.size() < getEndIndex())
+			if(rows < getEndIndex())
 			{
-				setEndIndex(lines.size());
-				getLogger().warn("Found only " + lines.size() + " rows in the data file that means 'startindex' parameter will be re-adapted");
+				setEndIndex(rows);
+				getLogger().warn("Found only " + rows + " rows in the data file that means 'startindex' parameter will be re-adapted");
 			}
 		}
 	}
 
+	/**
+	 * Count the rows of the data file, without parsing them. The new lines are counted through a single pass
+	 * over a characters buffer, ignoring the new lines found in quoted values.
+	 *
+	 * @param file data file
+	 * @param charset data file charset
+	 * @return number of rows
+	 * @throws IOException if any I/O error
+	 */
+	protected int getRowsCount(String file, String charset) throws IOException
+	{
+		Reader input = (charset != null) ? new InputStreamReader(new FileInputStream(file),charset) : new FileReader(file);
+
+		try
+		{
+			char buffer[] = new char[65536];
+			boolean quoted = false;
+			char last = '\n';
+			int count = 0;
+			int length;
+
+			while((length = input.read(buffer)) > 0)
+			{
+				for(int i = 0; i < length; i++)
+				{
+					char c = buffer[i];
+
+					if(c == CsvReader.DEFAULT_QUOTE_CHARACTER) quoted = !quoted;
+						else if(!quoted && (c == '\r' || (c == '\n' && last != '\r'))) count++;
+
+					last = c;
+				}
+			}
+
+			//last row without line terminator
+			if(last != '\n' && last != '\r') count++;
+
+			return count;
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+
 	/**
 	 * Execute parser class and return the output.
 	 *
@@ -77,7 +185,16 @@ public class CSVFileParser extends AbstractParser
 	 */
 	public String[] read() throws ParserException
 	{
-		if (lines != null && ((getEndIndex() == 0) || (getEndIndex() > 0 && getCurrentIndex() < getEndIndex())))
+		if(streaming)
+		{
+			if(getEndIndex() > 0 && getCurrentIndex() >= getEndIndex()) return null;
+
+			String data[] = next(getCurrentIndex());
+			if(data != null) setNextCursor();
+
+			return data;
+		}
+		else if (lines != null && ((getEndIndex() == 0) || (getEndIndex() > 0 && getCurrentIndex() < getEndIndex())))
 		{
 			String data[] = (String[]) lines.get(getCurrentIndex());
 			setNextCursor();
@@ -88,7 +205,58 @@ public class CSVFileParser extends AbstractParser
 	}
 
 	/**
-	 * Execute parser class and return the output from the specified index.
+	 * Read from the file the row having the specified index. The rows located between the last read row
+	 * and the requested one are skipped.
+	 *
+	 * @param index row index
+	 * @return an array with strings or null at the end of the file
+	 * @throws ParserException if any error will occur
+	 */
+	private String[] next(int index) throws ParserException
+	{
+		if(index < head.size()) return (String[]) head.get(index);
+		if(index < readerIndex) throw new ParserException("Row " + index + " has been already read in streaming mode");
+
+		if(index > readerIndex && parallel != null && !parallel.isOrdered())
+		{
+			getLogger().warn("Unordered parallel parsing can't skip rows, all rows will be processed");
+			readerIndex = index;
+		}
+
+		try
+		{
+			while(readerIndex < index)
+			{
+				if(nextRow() == null) return null;
+				readerIndex++;
+			}
+
+			String data[] = nextRow();
+			if(data != null) readerIndex++;
+
+			return data;
+		}
+		catch(IOException ioe)
+		{
+			throw new ParserException(ioe);
+		}
+	}
+
+	/**
+	 * Read the next row from the sequential or parallel reader.
+	 *
+	 * @return an array with strings or null at the end of the file
+	 * @throws IOException if any I/O error
+	 */
+	private String[] nextRow() throws IOException
+	{
+		if(parallel != null) return parallel.next();
+			else return reader.readNext();
+	}
+
+	/**
+	 * Execute parser class and return the output from the specified index. In streaming mode only the
+	 * rows located before the start index could be read.
 	 *
 	 * @param index reading index
 	 * @return an array with strings.
@@ -96,7 +264,12 @@ public class CSVFileParser extends AbstractParser
 	 */
 	public String[] read(int index) throws ParserException
 	{
-		if (lines != null && getStartIndex() >= index && index < getEndIndex())
+		if(streaming)
+		{
+			if(index >= 0 && index < head.size()) return (String[]) head.get(index);
+				else return null;
+		}
+		else if (lines != null && getStartIndex() >= index && index < getEndIndex())
 		{
 			return (String[]) lines.get(index);
 		}
@@ -110,7 +283,8 @@ public class CSVFileParser extends AbstractParser
 	 */
 	public int getNumberOfColumns()
 	{
-		if (lines != null) return ((String[]) lines.get(0)).length;
+		if (streaming && head != null && !head.isEmpty()) return ((String[]) head.get(0)).length;
+			else if (lines != null) return ((String[]) lines.get(0)).length;
 			else return -1;
 	}
 
@@ -121,12 +295,16 @@ public class CSVFileParser extends AbstractParser
 	{
 		try
 		{
-			lines.clear();
+			if(lines != null) lines.clear();
+			if(head != null) head.clear();
 			if(reader != null) reader.close();
+			if(parallel != null) parallel.close();
 
 			setCursor(0);
 			
 			lines = null;
+			parallel = null;
+			head = null;
 			reader = null;
 		}
 		catch (IOException ex)
@@ -134,4 +312,4 @@ public class CSVFileParser extends AbstractParser
 			//ignore it
 		}
 	}
-}
\ No newline at end of file
+}
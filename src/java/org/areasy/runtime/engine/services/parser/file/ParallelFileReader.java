@@ -0,0 +1,309 @@
+package org.areasy.runtime.engine.services.parser.file;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Parallel reader of large delimited files. The file is memory-mapped and split in chunks on record boundaries
+ * (new lines found outside quoted values) and the chunks are tokenized on a fork-join pool. The rows are delivered
+ * in file order or, in unordered mode, in the order in which the chunks are tokenized; the first chunk (containing
+ * the headers) is always delivered first.
+ * <p>
+ * The number of chunks tokenized in advance is limited to twice the number of threads, so the memory usage
+ * doesn't depend on the file size. The file is split at byte level, so only ASCII compatible charsets (i.e. UTF-8,
+ * ISO-8859-x, Windows-125x) are supported.
+ */
+public abstract class ParallelFileReader
+{
+	/** Default size of a chunk */
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private FileInputStream input = null;
+	private FileChannel channel = null;
+	private Charset charset = null;
+	private byte quote = 0;
+	private boolean ordered = true;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private long size = 0;
+	private long position = 0;
+
+	private ForkJoinPool pool = null;
+	private CompletionService completion = null;
+	private int window = 2;
+	private int active = 0;
+	private boolean first = true;
+
+	private LinkedList pending = new LinkedList();
+	private LinkedList ready = new LinkedList();
+	private Future head = null;
+	private Iterator rows = null;
+
+	/**
+	 * Create a parallel reader.
+	 *
+	 * @param file data file
+	 * @param charset data file charset or null for the default charset
+	 * @param quote quote character used for quoted values (that could contain new lines) or 0 if there are no quoted values
+	 * @param threads number of threads
+	 * @param ordered deliver the rows in file order
+	 * @param chunkSize size of a chunk (in bytes)
+	 * @throws IOException if any I/O error
+	 */
+	public ParallelFileReader(File file, String charset, char quote, int threads, boolean ordered, int chunkSize) throws IOException
+	{
+		this.charset = charset != null ? Charset.forName(charset) : Charset.defaultCharset();
+		this.quote = (byte)quote;
+		this.ordered = ordered;
+		this.chunkSize = Math.max(chunkSize, 1024);
+
+		this.input = new FileInputStream(file);
+		this.channel = input.getChannel();
+		this.size = channel.size();
+
+		this.pool = new ForkJoinPool(Math.max(threads, 1));
+		this.window = Math.max(threads, 1) * 2;
+
+		if(!ordered) completion = new ExecutorCompletionService(pool);
+	}
+
+	/**
+	 * Check if the specified charset could be used by the parallel reader: new line and quote characters
+	 * have to be encoded as single ASCII bytes.
+	 *
+	 * @param charset charset name or null for the default charset
+	 * @return true if the charset is supported
+	 */
+	public static boolean isSupported(String charset)
+	{
+		try
+		{
+			Charset cs = charset != null ? Charset.forName(charset) : Charset.defaultCharset();
+			return Arrays.equals("\n\"".getBytes(cs.name()), new byte[] { '\n', '"' });
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Tokenize the rows of a chunk.
+	 *
+	 * @param reader reader of the chunk characters
+	 * @return list of rows (string arrays)
+	 * @throws IOException if any error will occur
+	 */
+	protected abstract List parse(Reader reader) throws IOException;
+
+	/**
+	 * Check if the rows are delivered in file order.
+	 *
+	 * @return true if the rows are delivered in file order
+	 */
+	public boolean isOrdered()
+	{
+		return ordered;
+	}
+
+	/**
+	 * Get the next row.
+	 *
+	 * @return an array with strings or null at the end of the file
+	 * @throws IOException if any error will occur
+	 */
+	public String[] next() throws IOException
+	{
+		while(rows == null || !rows.hasNext())
+		{
+			List chunk = nextChunk();
+
+			if(chunk == null) return null;
+			rows = chunk.iterator();
+		}
+
+		return (String[]) rows.next();
+	}
+
+	/**
+	 * Stop the parsing and release the file.
+	 */
+	public void close()
+	{
+		pool.shutdownNow();
+
+		pending.clear();
+		ready.clear();
+		rows = null;
+
+		try
+		{
+			channel.close();
+			input.close();
+		}
+		catch(IOException ioe) { /* ignore close errors */ }
+	}
+
+	/**
+	 * Get the rows of the next tokenized chunk, keeping the tokenizing window full.
+	 *
+	 * @return list of rows or null if there are no other chunks
+	 * @throws IOException if any error will occur
+	 */
+	private List nextChunk() throws IOException
+	{
+		while(active < window && submit());
+		if(active == 0) return null;
+
+		try
+		{
+			Future future;
+
+			if(ordered) future = (Future) pending.removeFirst();
+			else if(first)
+			{
+				//wait for the first chunk, keeping the other completed chunks for later
+				while((future = completion.take()) != head) ready.add(future);
+			}
+			else if(!ready.isEmpty()) future = (Future) ready.removeFirst();
+			else future = completion.take();
+
+			first = false;
+			active--;
+
+			return (List) future.get();
+		}
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Parallel parsing has been interrupted");
+		}
+		catch(ExecutionException ee)
+		{
+			Throwable cause = ee.getCause() != null ? ee.getCause() : ee;
+
+			if(cause instanceof IOException) throw (IOException) cause;
+				else throw new IOException("Error parsing file chunk: " + cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Map the next chunk, up to the last record boundary, and submit it to be tokenized.
+	 *
+	 * @return true if a chunk has been submitted or false at the end of the file
+	 * @throws IOException if any I/O error
+	 */
+	private boolean submit() throws IOException
+	{
+		if(position >= size) return false;
+
+		long length = Math.min(chunkSize, size - position);
+		MappedByteBuffer map;
+		int end;
+
+		while(true)
+		{
+			map = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			end = getBoundary(map, position + length >= size);
+
+			if(end > 0) break;
+
+			//a record is longer than the chunk
+			length = Math.min(length * 2, size - position);
+		}
+
+		ByteBuffer chunk = map.duplicate();
+		chunk.limit(end);
+		position += end;
+
+		Callable task = new ChunkTask(chunk);
+
+		if(ordered) pending.add(pool.submit(task));
+		else
+		{
+			Future future = completion.submit(task);
+			if(head == null) head = future;
+		}
+
+		active++;
+		return true;
+	}
+
+	/**
+	 * Find the end of the last complete record of a mapped region. Chunks always start outside quoted values,
+	 * so the quotes found since the region start tell if a new line is a record boundary.
+	 *
+	 * @param map mapped region
+	 * @param last true if the region is the end of the file
+	 * @return the position after the last record boundary or 0 if the region doesn't contain a complete record
+	 */
+	private int getBoundary(ByteBuffer map, boolean last)
+	{
+		int length = map.limit();
+		if(last) return length;
+
+		boolean quoted = false;
+		int boundary = 0;
+
+		for(int i = 0; i < length; i++)
+		{
+			byte b = map.get(i);
+
+			if(quote != 0 && b == quote) quoted = !quoted;
+				else if(b == '\n' && !quoted) boundary = i + 1;
+		}
+
+		return boundary;
+	}
+
+	/**
+	 * Chunk decoding and tokenizing task.
+	 */
+	private class ChunkTask implements Callable
+	{
+		private ByteBuffer chunk = null;
+
+		ChunkTask(ByteBuffer chunk)
+		{
+			this.chunk = chunk;
+		}
+
+		public Object call() throws Exception
+		{
+			CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+			CharBuffer chars = decoder.decode(chunk);
+
+			chunk = null;
+
+			return parse(new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()));
+		}
+	}
+}
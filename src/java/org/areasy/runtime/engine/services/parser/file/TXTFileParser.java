@@ -24,11 +24,30 @@ import java.util.List;
 
 /**
  * Specialized parser class to extract data from "comma separated value" files.
+ * <p>
+ * The lines are found and split directly in a characters buffer, the separator being matched through its
+ * precompiled characters, without creating intermediate line strings.
+ * <p>
+ * In streaming mode (<code>parserstreaming</code> option) the rows are read from the file on demand, like a cursor,
+ * only the rows located before the start index (i.e. headers) are kept in memory. In parallel mode
+ * (<code>parserparallel</code> option) the file is memory-mapped and tokenized in chunks by multiple threads,
+ * the rows being delivered on demand, like in streaming mode.
  */
 public class TXTFileParser extends AbstractParser
 {
 	private List lines = null;
 
+	private boolean useSignatureFormat = false;
+	private String separator = null;
+	private char separatorChars[] = null;
+
+	private RowReader reader = null;
+	private ParallelFileReader parallel = null;
+
+	private boolean streaming = false;
+	private List head = null;
+	private int readerIndex = 0;
+
 	/**
 	 * Initialize parser class
 	 *
@@ -38,63 +57,216 @@ public class TXTFileParser extends AbstractParser
 	{
 		String charset = null;
 		String file = getParserConfig().getString("parserfile", null);
-		boolean useSignatureFormat = getParserConfig().getBoolean("parserobjsigformat", false);
-		String separator = getParserConfig().getString("parserseparator", null);
-		BufferedReader buffer = null; // buffered for readLine()
+		int rows = -1;
+
+		useSignatureFormat = getParserConfig().getBoolean("parserobjsigformat", false);
+		separator = getParserConfig().getString("parserseparator", "@#$");
+		separatorChars = StringUtility.isNotEmpty(separator) ? separator.toCharArray() : null;
 
         try
 		{
             if (getRuntimeConfig() != null) charset = getRuntimeConfig().getString("charset",null);
+			streaming = getParserConfig().getBoolean("parserstreaming", getRuntimeConfig() != null && getRuntimeConfig().getBoolean("app.runtime.parser.txt.streaming", false));
 
-			String line;
-			buffer = new BufferedReader((charset != null) ? new InputStreamReader(new FileInputStream(file),charset) : new InputStreamReader(new FileInputStream(file)));
+			if(getParserConfig().getBoolean("parserparallel", getRuntimeConfig() != null && getRuntimeConfig().getBoolean("app.runtime.parser.txt.parallel", false)))
+			{
+				if(ParallelFileReader.isSupported(charset))
+				{
+					parallel = new ParallelFileReader(new File(file), charset, (char)0,
+							getParserConfig().getInt("parserthreads", Runtime.getRuntime().availableProcessors()),
+							!getParserConfig().getBoolean("parserunordered", false),
+							getParserConfig().getInt("parserchunksize", ParallelFileReader.DEFAULT_CHUNK_SIZE / 1048576) * 1048576)
+					{
+						protected List parse(Reader input) throws IOException
+						{
+							return readAll(new RowReader(input));
+						}
+					};
 
-			if (buffer != null)
+					streaming = true;
+				}
+				else getLogger().warn("Parallel parsing is not supported for '" + charset + "' charset, the data file will be read sequentially");
+			}
+
+			if(parallel == null) reader = new RowReader((charset != null) ? new InputStreamReader(new FileInputStream(file),charset) : new InputStreamReader(new FileInputStream(file)));
+
+			if(streaming)
 			{
-				lines = new ArrayList();
+				head = new ArrayList();
+				readerIndex = 0;
 
-				while ((line = buffer.readLine()) != null)
+				//keep in memory only the rows located before the first data row (headers)
+				while(readerIndex < Math.max(getStartIndex(), 1))
 				{
-					String data[] = null;
-
-					if(useSignatureFormat) data = StringUtility.split(line, ":", 1);
-						else if(separator != null) data = StringUtility.splitByWholeSeparator(line, separator);
-							else data = StringUtility.splitByWholeSeparator(line, "@#$");
+					String data[] = nextRow();
+					if(data == null) break;
 
-					if (data != null && data.length >0) lines.add(data);
+					head.add(data);
+					readerIndex++;
 				}
+
+				if(getParserConfig().getBoolean("parsercount", true)) rows = getRowsCount(file, charset);
+			}
+			else
+			{
+				lines = readAll(reader);
+				rows = lines.size();
+
+				reader.close();
+				reader = null;
 			}
 		}
 		catch (Exception ex)
 		{
 			throw new ParserException(ex);
 		}
-		finally
+
+		//validate EndIndex value
+		if(rows < 0)
 		{
-			if (buffer != null)
+			getLogger().info("Data file is read in streaming mode, the number of rows is unknown");
+		}
+		else if(getEndIndex() == 0)
+		{
+			setEndIndex(rows);
+			getLogger().info("Found " + rows + " rows in the data file");
+		}
+		else
+		{
+			if(rows < getEndIndex())
 			{
-				try
-				{
-					buffer.close();
-				}
-				catch (Throwable t)
-				{ /* ensure close happens */ }
+				setEndIndex(rows);
+				getLogger().warn("Found only " + rows + " rows in the data file that means 'startindex' parameter will be re-adapted");
 			}
 		}
+	}
 
-		//validate EndIndex value
-		if(getEndIndex() == 0)
+	/**
+	 * Read all rows delivered by the specified reader.
+	 *
+	 * @param input rows reader
+	 * @return list of rows (string arrays)
+	 * @throws IOException if any I/O error
+	 */
+	protected List readAll(RowReader input) throws IOException
+	{
+		List rows = new ArrayList();
+		String data[];
+
+		while ((data = input.next()) != null)
 		{
-			setEndIndex(lines.size());
-			getLogger().info("Found " + lines.size() + " rows in the data file");
+			rows.add(data);
 		}
-		else
+
+		return rows;
+	}
+
+	/**
+	 * Split a line, found in a characters buffer, in values. The values are delimited by the whole separator
+	 * (adjacent separators are treated as one separator) or, for signature format, by the first colon.
+	 *
+	 * @param buffer characters buffer
+	 * @param start line start
+	 * @param end line end
+	 * @return an array with strings
+	 */
+	protected String[] split(char buffer[], int start, int end)
+	{
+		if(start == end) return new String[0];
+
+		if(useSignatureFormat) return StringUtility.split(new String(buffer, start, end - start), ":", 1);
+			else if(separatorChars == null) return StringUtility.splitByWholeSeparator(new String(buffer, start, end - start), separator);
+
+		List values = new ArrayList();
+		int begin = start;
+
+		while(true)
 		{
-			if(lines.size() < getEndIndex())
+			int index = indexOf(buffer, begin, end);
+
+			if(index < 0)
 			{
-				setEndIndex(lines.size());
-				getLogger().warn("Found only " + lines.size() + " rows in the data file that means 'startindex' parameter will be re-adapted");
+				values.add(new String(buffer, begin, end - begin));
+				break;
 			}
+
+			if(index > begin) values.add(new String(buffer, begin, index - begin));
+			begin = index + separatorChars.length;
+		}
+
+		return (String[]) values.toArray(new String[values.size()]);
+	}
+
+	/**
+	 * Find the separator in a characters buffer, comparing the separator characters only where
+	 * the first one matches.
+	 *
+	 * @param buffer characters buffer
+	 * @param start search start
+	 * @param end search end
+	 * @return separator position or -1 if it is not found
+	 */
+	private int indexOf(char buffer[], int start, int end)
+	{
+		char first = separatorChars[0];
+		int max = end - separatorChars.length;
+
+		for(int i = start; i <= max; i++)
+		{
+			if(buffer[i] != first) continue;
+
+			int j = 1;
+			while(j < separatorChars.length && buffer[i + j] == separatorChars[j]) j++;
+
+			if(j == separatorChars.length) return i;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Count the rows of the data file, without parsing them: the non empty lines are counted through
+	 * a single pass over a characters buffer.
+	 *
+	 * @param file data file
+	 * @param charset data file charset
+	 * @return number of rows
+	 * @throws IOException if any I/O error
+	 */
+	protected int getRowsCount(String file, String charset) throws IOException
+	{
+		Reader input = (charset != null) ? new InputStreamReader(new FileInputStream(file),charset) : new InputStreamReader(new FileInputStream(file));
+
+		try
+		{
+			char buffer[] = new char[65536];
+			boolean empty = true;
+			int count = 0;
+			int length;
+
+			while((length = input.read(buffer)) > 0)
+			{
+				for(int i = 0; i < length; i++)
+				{
+					char c = buffer[i];
+
+					if(c == '\n' || c == '\r')
+					{
+						if(!empty) count++;
+						empty = true;
+					}
+					else empty = false;
+				}
+			}
+
+			//last row without line terminator
+			if(!empty) count++;
+
+			return count;
+		}
+		finally
+		{
+			input.close();
 		}
 	}
 
@@ -106,7 +278,16 @@ public class TXTFileParser extends AbstractParser
 	 */
 	public String[] read() throws ParserException
 	{
-		if (lines != null && ((getEndIndex() == 0) || (getEndIndex() > 0 && getCurrentIndex() < getEndIndex())))
+		if(streaming)
+		{
+			if(getEndIndex() > 0 && getCurrentIndex() >= getEndIndex()) return null;
+
+			String data[] = next(getCurrentIndex());
+			if(data != null) setNextCursor();
+
+			return data;
+		}
+		else if (lines != null && ((getEndIndex() == 0) || (getEndIndex() > 0 && getCurrentIndex() < getEndIndex())))
 		{
 			String data[] = (String[]) lines.get(getCurrentIndex());
 			setNextCursor();
@@ -117,7 +298,58 @@ public class TXTFileParser extends AbstractParser
 	}
 
 	/**
-	 * Execute parser class and return the output from the specified index.
+	 * Read from the file the row having the specified index. The rows located between the last read row
+	 * and the requested one are skipped.
+	 *
+	 * @param index row index
+	 * @return an array with strings or null at the end of the file
+	 * @throws ParserException if any error will occur
+	 */
+	private String[] next(int index) throws ParserException
+	{
+		if(index < head.size()) return (String[]) head.get(index);
+		if(index < readerIndex) throw new ParserException("Row " + index + " has been already read in streaming mode");
+
+		if(index > readerIndex && parallel != null && !parallel.isOrdered())
+		{
+			getLogger().warn("Unordered parallel parsing can't skip rows, all rows will be processed");
+			readerIndex = index;
+		}
+
+		try
+		{
+			while(readerIndex < index)
+			{
+				if(nextRow() == null) return null;
+				readerIndex++;
+			}
+
+			String data[] = nextRow();
+			if(data != null) readerIndex++;
+
+			return data;
+		}
+		catch(IOException ioe)
+		{
+			throw new ParserException(ioe);
+		}
+	}
+
+	/**
+	 * Read the next row from the sequential or parallel reader.
+	 *
+	 * @return an array with strings or null at the end of the file
+	 * @throws IOException if any I/O error
+	 */
+	private String[] nextRow() throws IOException
+	{
+		if(parallel != null) return parallel.next();
+			else return reader.next();
+	}
+
+	/**
+	 * Execute parser class and return the output from the specified index. In streaming mode only the
+	 * rows located before the start index could be read.
 	 *
 	 * @param index reading index
 	 * @return an array with strings.
@@ -125,7 +357,12 @@ public class TXTFileParser extends AbstractParser
 	 */
 	public String[] read(int index) throws ParserException
 	{
-		if (lines != null && getStartIndex() >= index && index < getEndIndex())
+		if(streaming)
+		{
+			if(index >= 0 && index < head.size()) return (String[]) head.get(index);
+				else return null;
+		}
+		else if (lines != null && getStartIndex() >= index && index < getEndIndex())
 		{
 			return (String[]) lines.get(index);
 		}
@@ -139,7 +376,8 @@ public class TXTFileParser extends AbstractParser
 	 */
 	public int getNumberOfColumns()
 	{
-		if (lines != null) return ((String[]) lines.get(0)).length;
+		if (streaming && head != null && !head.isEmpty()) return ((String[]) head.get(0)).length;
+			else if (lines != null) return ((String[]) lines.get(0)).length;
 			else return -1;
 	}
 
@@ -150,14 +388,149 @@ public class TXTFileParser extends AbstractParser
 	{
 		try
 		{
-			lines.clear();
+			if(lines != null) lines.clear();
+			if(head != null) head.clear();
+			if(reader != null) reader.close();
+			if(parallel != null) parallel.close();
+
 			setCursor(0);
 			
 			lines = null;
+			head = null;
+			reader = null;
+			parallel = null;
 		}
 		catch (Exception ex)
 		{
 			//ignore it
 		}
 	}
+
+	/**
+	 * Reader of the data file rows. The lines are delimited directly in a characters buffer and split
+	 * in values; the empty lines are ignored.
+	 */
+	protected class RowReader
+	{
+		private Reader input = null;
+		private char buffer[] = new char[65536];
+		private int pos = 0;
+		private int limit = 0;
+		private boolean eof = false;
+		private boolean skipLF = false;
+
+		RowReader(Reader input)
+		{
+			this.input = input;
+		}
+
+		/**
+		 * Read the next row.
+		 *
+		 * @return an array with strings or null at the end of the file
+		 * @throws IOException if any I/O error
+		 */
+		String[] next() throws IOException
+		{
+			int scan = pos;
+
+			while(true)
+			{
+				if(scan >= limit)
+				{
+					int scanned = scan - pos;
+
+					if(eof || !fill())
+					{
+						if(pos >= limit) return null;
+
+						String data[] = split(buffer, pos, limit);
+						pos = limit;
+
+						if(data.length > 0) return data;
+							else return null;
+					}
+
+					scan = pos + scanned;
+					continue;
+				}
+
+				char c = buffer[scan];
+
+				//"\r\n" line end split by a buffer fill
+				if(skipLF && scan == pos && c == '\n')
+				{
+					pos++;
+					scan++;
+					skipLF = false;
+					continue;
+				}
+
+				skipLF = false;
+
+				if(c == '\n' || c == '\r')
+				{
+					String data[] = split(buffer, pos, scan);
+
+					pos = scan + 1;
+					if(c == '\r')
+					{
+						if(pos < limit && buffer[pos] == '\n') pos++;
+							else if(pos >= limit) skipLF = true;
+					}
+
+					if(data.length > 0) return data;
+
+					scan = pos;
+					continue;
+				}
+
+				scan++;
+			}
+		}
+
+		/**
+		 * Move the current line at the beginning of the buffer (growing it if the line is longer than
+		 * the buffer) and read more characters.
+		 *
+		 * @return true if more characters have been read
+		 * @throws IOException if any I/O error
+		 */
+		private boolean fill() throws IOException
+		{
+			int length = limit - pos;
+
+			if(length == buffer.length)
+			{
+				char temp[] = new char[buffer.length * 2];
+				System.arraycopy(buffer, pos, temp, 0, length);
+				buffer = temp;
+			}
+			else if(pos > 0) System.arraycopy(buffer, pos, buffer, 0, length);
+
+			pos = 0;
+			limit = length;
+
+			int count;
+			do
+			{
+				count = input.read(buffer, limit, buffer.length - limit);
+			}
+			while(count == 0);
+
+			if(count < 0)
+			{
+				eof = true;
+				return false;
+			}
+
+			limit += count;
+			return true;
+		}
+
+		void close() throws IOException
+		{
+			input.close();
+		}
+	}
 }
@@ -18,15 +18,21 @@ import org.areasy.common.parser.excel.Cell;
 import org.areasy.common.parser.excel.Sheet;
 import org.areasy.common.parser.excel.Workbook;
 import org.areasy.common.parser.excel.WorkbookSettings;
+import org.areasy.common.parser.excel.read.biff.SheetRowReader;
 import org.areasy.runtime.engine.services.parser.AbstractParser;
 import org.areasy.runtime.engine.services.parser.ParserException;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Vector;
 
 /**
  * Specialized parser class to extract data from excel files.
+ * <p>
+ * In streaming mode (<code>parserstreaming</code> option) the cells of the selected sheet are decoded row by row,
+ * through a sheet row reader, instead of building the cells of the whole sheet. Only the rows located before the
+ * start index (i.e. headers) are kept in memory and the number of rows is given by the sheet dimension record.
  */
 public class XLSFileParser extends AbstractParser
 {
@@ -35,6 +41,11 @@ public class XLSFileParser extends AbstractParser
 
 	private int pageIndex = 0;
 
+	private SheetRowReader reader = null;
+	private List head = null;
+	private int readerIndex = 0;
+	private int columns = 0;
+
 	/**
 	 * Initialize parser class
 	 *
@@ -53,22 +64,50 @@ public class XLSFileParser extends AbstractParser
 			//get workbook
 			workbook = Workbook.getWorkbook(new File(file));
 			Sheet sheets[] = workbook.getSheets();
+			int rows;
 
 			if(sheets == null) throw new ParserException("Workbook is null or corrupted: " + file);
-				else sheet = workbook.getSheets()[getPageIndex()];
+
+			if(getParserConfig().getBoolean("parserstreaming", getRuntimeConfig() != null && getRuntimeConfig().getBoolean("app.runtime.parser.xls.streaming", false)))
+			{
+				reader = workbook.getRowReader(getPageIndex());
+				columns = Math.max(reader.getNumberOfColumns(), 0);
+				rows = reader.getNumberOfRows();
+
+				head = new ArrayList();
+				readerIndex = 0;
+
+				//keep in memory only the rows located before the first data row (headers)
+				while(readerIndex < Math.max(getStartIndex(), 1))
+				{
+					String data[] = nextRow();
+					if(data == null) break;
+
+					head.add(data);
+				}
+			}
+			else
+			{
+				sheet = sheets[getPageIndex()];
+				rows = sheet.getRows();
+			}
 
 			//validate EndIndex value
-			if(getEndIndex() == 0)
+			if(rows < 0)
+			{
+				getLogger().info("Excel sheet has no dimension record, the number of rows is unknown");
+			}
+			else if(getEndIndex() == 0)
 			{
-				setEndIndex(sheet.getRows());
-				getLogger().info("Found " + sheet.getRows() + " rows in the excel file");
+				setEndIndex(rows);
+				getLogger().info("Found " + rows + " rows in the excel file");
 			}
 			else
 			{
-				if(sheet.getRows() < getEndIndex())
+				if(rows < getEndIndex())
 				{
-					setEndIndex(sheet.getRows());
-					getLogger().warn("Found only " + sheet.getRows() + " rows in the excel file that means 'startindex' parameter will be re-adapted");
+					setEndIndex(rows);
+					getLogger().warn("Found only " + rows + " rows in the excel file that means 'startindex' parameter will be re-adapted");
 				}
 			}
 
@@ -84,8 +123,13 @@ public class XLSFileParser extends AbstractParser
 	 */
 	public void close()
 	{
+		if(reader != null) reader.close();
+		if(head != null) head.clear();
+
 		workbook.close();
 		workbook = null;
+		reader = null;
+		head = null;
 
 		setCursor(0);
 	}
@@ -98,7 +142,16 @@ public class XLSFileParser extends AbstractParser
 	 */
 	public String[] read() throws ParserException
 	{
-		if (sheet != null && ((getEndIndex() == 0) || (getEndIndex() >= 0 && getCurrentIndex() < getEndIndex())))
+		if(reader != null)
+		{
+			if(getEndIndex() > 0 && getCurrentIndex() >= getEndIndex()) return null;
+
+			String data[] = next(getCurrentIndex());
+			if(data != null) setNextCursor();
+
+			return data;
+		}
+		else if (sheet != null && ((getEndIndex() == 0) || (getEndIndex() >= 0 && getCurrentIndex() < getEndIndex())))
 		{
 			List output =  new Vector();
 			int columns = sheet.getColumns();
@@ -121,6 +174,48 @@ public class XLSFileParser extends AbstractParser
 		else return null;
 	}
 
+	/**
+	 * Read from the sheet the row having the specified index. The rows located between the last read row
+	 * and the requested one are skipped, without formatting their cells.
+	 *
+	 * @param index row index
+	 * @return an array with strings or null at the end of the sheet
+	 * @throws ParserException if any error will occur
+	 */
+	private String[] next(int index) throws ParserException
+	{
+		if(index < head.size()) return (String[]) head.get(index);
+		if(index < readerIndex) throw new ParserException("Row " + index + " has been already read in streaming mode");
+
+		readerIndex = index;
+
+		return nextRow();
+	}
+
+	/**
+	 * Read the next row from the sheet row reader. The rows without cells are delivered as empty rows.
+	 *
+	 * @return an array with strings or null at the end of the sheet
+	 */
+	private String[] nextRow()
+	{
+		boolean found = reader.getRow() >= readerIndex;
+		while(!found && reader.next()) found = reader.getRow() >= readerIndex;
+
+		String data[];
+
+		if(found && reader.getRow() == readerIndex) data = reader.getContents(columns);
+		else if(found || readerIndex < reader.getNumberOfRows())
+		{
+			data = new String[columns];
+			for(int i = 0; i < columns; i++) data[i] = "";
+		}
+		else return null;
+
+		readerIndex++;
+		return data;
+	}
+
 	/**
 	 * Execute parser class and return the output from the specified index.
 	 *
@@ -130,7 +225,12 @@ public class XLSFileParser extends AbstractParser
 	 */
 	public String[] read(int index) throws ParserException
 	{
-		if (sheet!= null && getStartIndex() >= index && index < getEndIndex())
+		if(reader != null)
+		{
+			if(index >= 0 && index < head.size()) return (String[]) head.get(index);
+				else return null;
+		}
+		else if (sheet!= null && getStartIndex() >= index && index < getEndIndex())
 		{
 			List output =  new Vector();
 			int columns = sheet.getColumns();
@@ -158,7 +258,8 @@ public class XLSFileParser extends AbstractParser
 	 */
 	public int getNumberOfColumns()
 	{
-		if (sheet != null) return sheet.getColumns();
+		if (reader != null) return columns;
+			else if (sheet != null) return sheet.getColumns();
 			else return -1;
 	}
 
@@ -0,0 +1,862 @@
+package org.areasy.runtime.engine.services.parser.file;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import org.areasy.common.parser.excel.biff.FormatRecord;
+import org.areasy.runtime.RuntimeManager;
+import org.areasy.runtime.engine.services.parser.AbstractParser;
+import org.areasy.runtime.engine.services.parser.ParserException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.DateFormat;
+import java.text.DecimalFormat;
+import java.text.Format;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Specialized parser class to extract data from Excel 2007+ (OOXML) files. The workbook parts are read directly
+ * from the zip archive, through StAX: the rows of the selected sheet are streamed on demand, only the rows located
+ * before the start index (i.e. headers) being kept in memory, and the shared strings are resolved through a compact
+ * index that is spilled to disk when it exceeds the configured memory (<code>parserstringsmemory</code> option, in MB).
+ * <p>
+ * The cell values are formatted like in the XLS parser: numbers and dates use the java equivalent of the cell
+ * number format, the rows without cells are delivered as empty rows.
+ */
+public class XLSXFileParser extends AbstractParser
+{
+	/** Default memory used for the shared strings, in MB */
+	public static final int DEFAULT_STRINGS_MEMORY = 64;
+
+	private static final String RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+	/** Built in date formats */
+	private static final int dateFormats[] = {0xe, 0xf, 0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x2d, 0x2e, 0x2f};
+
+	/** Java equivalents of the built in date formats */
+	private static final DateFormat javaDateFormats[] = {SimpleDateFormat.getDateInstance(DateFormat.SHORT), SimpleDateFormat.getDateInstance(DateFormat.MEDIUM),
+			new SimpleDateFormat("d-MMM"), new SimpleDateFormat("MMM-yy"), new SimpleDateFormat("h:mm a"), new SimpleDateFormat("h:mm:ss a"),
+			new SimpleDateFormat("H:mm"), new SimpleDateFormat("H:mm:ss"), new SimpleDateFormat("M/d/yy H:mm"), new SimpleDateFormat("mm:ss"),
+			new SimpleDateFormat("H:mm:ss"), new SimpleDateFormat("mm:ss.S")};
+
+	/** Built in number formats */
+	private static final int numberFormats[] = {0x1, 0x2, 0x3, 0x4, 0x5, 0x6, 0x7, 0x8, 0x9, 0xa, 0xb, 0x25, 0x26, 0x27, 0x28, 0x29, 0x2a, 0x2b, 0x2c, 0x30};
+
+	/** Java equivalents of the built in number formats */
+	private static final String javaNumberFormats[] = {"0", "0.00", "#,##0", "#,##0.00", "$#,##0;($#,##0)", "$#,##0;($#,##0)", "$#,##0.00;($#,##0.00)",
+			"$#,##0.00;($#,##0.00)", "0%", "0.00%", "0.00E00", "#,##0;(#,##0)", "#,##0;(#,##0)", "#,##0.00;(#,##0.00)",
+			"#,##0.00;(#,##0.00)", "#,##0;(#,##0)", "$#,##0;($#,##0)", "#,##0.00;(#,##0.00)", "$#,##0.00;($#,##0.00)", "##0.0E0"};
+
+	/** Date format patterns used to identify custom date formats */
+	private static final String dateStrings[] = {"dd", "mm", "yy", "hh", "ss", "m/", "/d"};
+
+	private ZipFile zip = null;
+	private XMLInputFactory factory = null;
+	private InputStream input = null;
+	private XMLStreamReader reader = null;
+
+	private XLSXSharedStrings strings = null;
+	private Format styles[] = new Format[0];
+	private boolean nineteenFour = false;
+	private DecimalFormat defaultFormat = new DecimalFormat("#.###");
+
+	private int pageIndex = 0;
+	private int columns = 0;
+	private int rows = -1;
+
+	private List head = null;
+	private int readerIndex = 0;
+
+	private int rowNumber = -1;
+	private List rowData = new ArrayList();
+	private boolean finished = false;
+
+	private StringBuffer text = new StringBuffer();
+
+	/**
+	 * Initialize parser class
+	 *
+	 * @throws ParserException if any error will occur
+	 */
+	public void open() throws ParserException
+	{
+		String file = getParserConfig().getString("parserfile", null);
+		setPageIndex(getParserConfig().getInt("pageindex", 0));
+
+		try
+		{
+			zip = new ZipFile(file);
+
+			factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+
+			String workbook = getWorkbookPart();
+			Map parts = getRelationships(workbook);
+			String sheet = getSheetPart(workbook, parts);
+
+			if(sheet == null) throw new ParserException("Sheet " + getPageIndex() + " couldn't be found in the excel file: " + file);
+
+			if(parts.containsKey("styles")) readStyles((String) parts.get("styles"));
+			if(parts.containsKey("sharedStrings")) readSharedStrings((String) parts.get("sharedStrings"));
+
+			//open sheet and read its dimension
+			input = getPart(sheet);
+			reader = factory.createXMLStreamReader(input);
+
+			while(reader.hasNext() && !finished)
+			{
+				if(reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+
+				if(reader.getLocalName().equals("dimension")) readDimension(reader.getAttributeValue(null, "ref"));
+					else if(reader.getLocalName().equals("sheetData")) break;
+			}
+
+			if(rows < 0 && getParserConfig().getBoolean("parsercount", true)) rows = getRowsCount(sheet);
+
+			head = new ArrayList();
+			readerIndex = 0;
+
+			//keep in memory only the rows located before the first data row (headers)
+			while(readerIndex < Math.max(getStartIndex(), 1))
+			{
+				String data[] = nextRow();
+				if(data == null) break;
+
+				head.add(data);
+			}
+		}
+		catch(ParserException pe)
+		{
+			throw pe;
+		}
+		catch(Exception e)
+		{
+			throw new ParserException(e);
+		}
+
+		//validate EndIndex value
+		if(rows < 0)
+		{
+			getLogger().info("Excel sheet has no dimension, the number of rows is unknown");
+		}
+		else if(getEndIndex() == 0)
+		{
+			setEndIndex(rows);
+			getLogger().info("Found " + rows + " rows in the excel file");
+		}
+		else
+		{
+			if(rows < getEndIndex())
+			{
+				setEndIndex(rows);
+				getLogger().warn("Found only " + rows + " rows in the excel file that means 'startindex' parameter will be re-adapted");
+			}
+		}
+	}
+
+	/**
+	 * Close and dispose parser class
+	 */
+	public void close()
+	{
+		try
+		{
+			if(reader != null) reader.close();
+			if(input != null) input.close();
+			if(zip != null) zip.close();
+		}
+		catch(Exception e)
+		{
+			getLogger().debug("Error closing excel file: " + e.getMessage());
+		}
+
+		if(strings != null) strings.close();
+		if(head != null) head.clear();
+
+		reader = null;
+		input = null;
+		zip = null;
+		strings = null;
+		head = null;
+
+		setCursor(0);
+	}
+
+	/**
+	 * Execute parser class and return the output.
+	 *
+	 * @return an array with strings.
+	 * @throws ParserException if any error will occur
+	 */
+	public String[] read() throws ParserException
+	{
+		if(head == null) return null;
+		if(getEndIndex() > 0 && getCurrentIndex() >= getEndIndex()) return null;
+
+		String data[] = next(getCurrentIndex());
+		if(data != null) setNextCursor();
+
+		return data;
+	}
+
+	/**
+	 * Execute parser class and return the output from the specified index. Only the rows located before
+	 * the start index could be read.
+	 *
+	 * @param index reading index
+	 * @return an array with strings.
+	 * @throws ParserException if any error will occur
+	 */
+	public String[] read(int index) throws ParserException
+	{
+		if(head != null && index >= 0 && index < head.size()) return (String[]) head.get(index);
+			else return null;
+	}
+
+	/**
+	 * Get total number of columns that will be delivered by the XLSX parser
+	 *
+	 * @return number of columns found in the source file or -1
+	 */
+	public int getNumberOfColumns()
+	{
+		if(columns > 0) return columns;
+			else if(head != null && !head.isEmpty()) return ((String[]) head.get(0)).length;
+			else return -1;
+	}
+
+	public int getPageIndex()
+	{
+		return pageIndex;
+	}
+
+	public void setPageIndex(int pageIndex)
+	{
+		this.pageIndex = pageIndex;
+	}
+
+	/**
+	 * Read from the sheet the row having the specified index. The rows located between the last read row
+	 * and the requested one are skipped, without formatting their cells.
+	 *
+	 * @param index row index
+	 * @return an array with strings or null at the end of the sheet
+	 * @throws ParserException if any error will occur
+	 */
+	private String[] next(int index) throws ParserException
+	{
+		if(index < head.size()) return (String[]) head.get(index);
+		if(index < readerIndex) throw new ParserException("Row " + index + " has been already read");
+
+		readerIndex = index;
+
+		try
+		{
+			return nextRow();
+		}
+		catch(Exception e)
+		{
+			throw new ParserException(e);
+		}
+	}
+
+	/**
+	 * Read the next row from the sheet. The rows without cells are delivered as empty rows.
+	 *
+	 * @return an array with strings or null at the end of the sheet
+	 * @throws XMLStreamException if the sheet couldn't be parsed
+	 * @throws IOException if the shared strings couldn't be read
+	 */
+	private String[] nextRow() throws XMLStreamException, IOException
+	{
+		boolean found = rowNumber >= readerIndex;
+		while(!found && readRow()) found = rowNumber >= readerIndex;
+
+		String data[];
+
+		if(found && rowNumber == readerIndex)
+		{
+			data = new String[Math.max(columns, rowData.size())];
+
+			for(int i = 0; i < data.length; i++)
+			{
+				String value = i < rowData.size() ? (String) rowData.get(i) : null;
+				data[i] = value != null ? value : "";
+			}
+		}
+		else if(found || readerIndex < rows)
+		{
+			data = new String[columns];
+			for(int i = 0; i < columns; i++) data[i] = "";
+		}
+		else return null;
+
+		readerIndex++;
+		return data;
+	}
+
+	/**
+	 * Read the next <code>row</code> element of the sheet data. The cells of the rows located before the reading
+	 * index are not decoded.
+	 *
+	 * @return true if a row has been read or false at the end of the sheet data
+	 * @throws XMLStreamException if the sheet couldn't be parsed
+	 * @throws IOException if the shared strings couldn't be read
+	 */
+	private boolean readRow() throws XMLStreamException, IOException
+	{
+		rowData.clear();
+
+		while(!finished && reader.hasNext())
+		{
+			int event = reader.next();
+
+			if(event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("row"))
+			{
+				String number = reader.getAttributeValue(null, "r");
+				rowNumber = number != null ? Integer.parseInt(number) - 1 : rowNumber + 1;
+
+				boolean decode = rowNumber >= readerIndex;
+				int column = -1;
+
+				while(reader.hasNext())
+				{
+					event = reader.next();
+
+					if(event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("c"))
+					{
+						String ref = reader.getAttributeValue(null, "r");
+						column = ref != null ? getColumnIndex(ref) : column + 1;
+
+						if(decode)
+						{
+							String value = readCell();
+
+							while(rowData.size() <= column) rowData.add(null);
+							rowData.set(column, value);
+						}
+					}
+					else if(event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("row")) break;
+				}
+
+				return true;
+			}
+			else if(event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("sheetData")) finished = true;
+		}
+
+		finished = true;
+		rowNumber = -1;
+
+		return false;
+	}
+
+	/**
+	 * Read the current <code>c</code> element and format its value.
+	 *
+	 * @return cell contents
+	 * @throws XMLStreamException if the sheet couldn't be parsed
+	 * @throws IOException if the shared strings couldn't be read
+	 */
+	private String readCell() throws XMLStreamException, IOException
+	{
+		String type = reader.getAttributeValue(null, "t");
+		String style = reader.getAttributeValue(null, "s");
+		String value = null;
+
+		text.setLength(0);
+
+		while(reader.hasNext())
+		{
+			int event = reader.next();
+
+			if(event == XMLStreamConstants.START_ELEMENT)
+			{
+				//value or inline string text
+				if(reader.getLocalName().equals("v") || reader.getLocalName().equals("t")) text.append(reader.getElementText());
+					else if(reader.getLocalName().equals("rPh")) skipElement();
+			}
+			else if(event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("c")) break;
+		}
+
+		if(text.length() == 0) return null;
+
+		if(type == null || type.equals("n")) value = getNumber(text.toString(), style);
+			else if(type.equals("s")) value = strings != null ? strings.get(Integer.parseInt(text.toString().trim())) : null;
+			else if(type.equals("b")) value = text.toString().trim().equals("1") ? "true" : "false";
+			else value = text.toString();
+
+		return value;
+	}
+
+	/**
+	 * Format a numeric cell value, using the number or date format of the cell style.
+	 *
+	 * @param text numeric value
+	 * @param style cell style index or null
+	 * @return formatted value
+	 */
+	private String getNumber(String text, String style)
+	{
+		double number;
+
+		try
+		{
+			number = Double.parseDouble(text);
+		}
+		catch(NumberFormatException nfe)
+		{
+			return text;
+		}
+
+		int xf = style != null ? Integer.parseInt(style) : 0;
+		Format format = xf >= 0 && xf < styles.length ? styles[xf] : null;
+
+		if(format instanceof DateFormat) return format.format(getDate(number));
+			else if(format != null) return format.format(new Double(number));
+			else return defaultFormat.format(number);
+	}
+
+	/**
+	 * Convert an excel date value to a java date.
+	 *
+	 * @param number number of days since the workbook base date
+	 * @return java date
+	 */
+	private Date getDate(double number)
+	{
+		// Excel consider 1900 a leap year, so the dates before 1st of March 1900 are shifted by one day
+		if(!nineteenFour && Math.abs(number) >= 1 && number < 61) number += 1;
+
+		double days = number - (nineteenFour ? 24107 : 25569);
+
+		return new Date(Math.round(days * 86400) * 1000);
+	}
+
+	/**
+	 * Read the sheet dimension (i.e. <code>A1:H100</code>).
+	 *
+	 * @param ref dimension reference
+	 */
+	private void readDimension(String ref)
+	{
+		if(ref == null) return;
+
+		String last = ref.substring(ref.indexOf(':') + 1);
+		int index = 0;
+
+		while(index < last.length() && Character.isLetter(last.charAt(index))) index++;
+
+		try
+		{
+			columns = getColumnIndex(last) + 1;
+			rows = index < last.length() ? Integer.parseInt(last.substring(index)) : -1;
+		}
+		catch(NumberFormatException nfe)
+		{
+			rows = -1;
+		}
+	}
+
+	/**
+	 * Count the rows of the sheet, through a fast pre-scan of the sheet data, when the sheet has no dimension.
+	 *
+	 * @param sheet sheet part name
+	 * @return number of rows
+	 * @throws Exception if the sheet couldn't be read
+	 */
+	private int getRowsCount(String sheet) throws Exception
+	{
+		InputStream stream = getPart(sheet);
+		XMLStreamReader scanner = factory.createXMLStreamReader(stream);
+		int count = 0;
+
+		try
+		{
+			while(scanner.hasNext())
+			{
+				if(scanner.next() == XMLStreamConstants.START_ELEMENT && scanner.getLocalName().equals("row"))
+				{
+					String number = scanner.getAttributeValue(null, "r");
+					count = number != null ? Integer.parseInt(number) : count + 1;
+				}
+			}
+		}
+		finally
+		{
+			scanner.close();
+			stream.close();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Get zero based column index from a cell reference (i.e. <code>B12</code>).
+	 *
+	 * @param ref cell reference
+	 * @return column index
+	 */
+	private static int getColumnIndex(String ref)
+	{
+		int column = 0;
+
+		for(int i = 0; i < ref.length(); i++)
+		{
+			char c = ref.charAt(i);
+
+			if(c >= 'A' && c <= 'Z') column = column * 26 + (c - 'A' + 1);
+				else if(c >= 'a' && c <= 'z') column = column * 26 + (c - 'a' + 1);
+				else break;
+		}
+
+		return column - 1;
+	}
+
+	/**
+	 * Find the workbook part, through the package relationships.
+	 *
+	 * @return workbook part name
+	 * @throws Exception if the package relationships couldn't be read
+	 */
+	private String getWorkbookPart() throws Exception
+	{
+		String workbook = "xl/workbook.xml";
+
+		if(zip.getEntry("_rels/.rels") == null) return workbook;
+
+		InputStream stream = getPart("_rels/.rels");
+		XMLStreamReader xml = factory.createXMLStreamReader(stream);
+
+		try
+		{
+			while(xml.hasNext())
+			{
+				if(xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("Relationship"))
+				{
+					String type = xml.getAttributeValue(null, "Type");
+					if(type != null && type.endsWith("/officeDocument")) workbook = getPartName("", xml.getAttributeValue(null, "Target"));
+				}
+			}
+		}
+		finally
+		{
+			xml.close();
+			stream.close();
+		}
+
+		return workbook;
+	}
+
+	/**
+	 * Read the relationships of the workbook part.
+	 *
+	 * @param workbook workbook part name
+	 * @return map having relationship ids and types (<code>styles</code>, <code>sharedStrings</code>) as keys
+	 * and part names as values
+	 * @throws Exception if the relationships couldn't be read
+	 */
+	private Map getRelationships(String workbook) throws Exception
+	{
+		Map parts = new HashMap();
+		String folder = workbook.substring(0, workbook.lastIndexOf('/') + 1);
+		String rels = folder + "_rels/" + workbook.substring(folder.length()) + ".rels";
+
+		if(zip.getEntry(rels) == null) return parts;
+
+		InputStream stream = getPart(rels);
+		XMLStreamReader xml = factory.createXMLStreamReader(stream);
+
+		try
+		{
+			while(xml.hasNext())
+			{
+				if(xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("Relationship"))
+				{
+					String type = xml.getAttributeValue(null, "Type");
+					String part = getPartName(folder, xml.getAttributeValue(null, "Target"));
+
+					parts.put(xml.getAttributeValue(null, "Id"), part);
+
+					if(type != null && type.endsWith("/styles")) parts.put("styles", part);
+						else if(type != null && type.endsWith("/sharedStrings")) parts.put("sharedStrings", part);
+				}
+			}
+		}
+		finally
+		{
+			xml.close();
+			stream.close();
+		}
+
+		return parts;
+	}
+
+	/**
+	 * Find the part of the selected sheet and read the workbook properties.
+	 *
+	 * @param workbook workbook part name
+	 * @param parts workbook relationships
+	 * @return sheet part name or null if the sheet doesn't exist
+	 * @throws Exception if the workbook couldn't be read
+	 */
+	private String getSheetPart(String workbook, Map parts) throws Exception
+	{
+		String sheet = null;
+		int index = 0;
+
+		InputStream stream = getPart(workbook);
+		XMLStreamReader xml = factory.createXMLStreamReader(stream);
+
+		try
+		{
+			while(xml.hasNext())
+			{
+				if(xml.next() != XMLStreamConstants.START_ELEMENT) continue;
+
+				if(xml.getLocalName().equals("workbookPr"))
+				{
+					String date1904 = xml.getAttributeValue(null, "date1904");
+					nineteenFour = "1".equals(date1904) || "true".equalsIgnoreCase(date1904);
+				}
+				else if(xml.getLocalName().equals("sheet"))
+				{
+					if(index++ == getPageIndex())
+					{
+						String id = xml.getAttributeValue(RELATIONSHIPS, "id");
+						sheet = (String) parts.get(id);
+
+						getLogger().debug("Reading excel sheet '" + xml.getAttributeValue(null, "name") + "' from part: " + sheet);
+					}
+				}
+			}
+		}
+		finally
+		{
+			xml.close();
+			stream.close();
+		}
+
+		return sheet;
+	}
+
+	/**
+	 * Read the number formats of the cell styles.
+	 *
+	 * @param part styles part name
+	 * @throws Exception if the styles couldn't be read
+	 */
+	private void readStyles(String part) throws Exception
+	{
+		Map custom = new HashMap();
+		List formats = new ArrayList();
+		boolean cellXfs = false;
+
+		InputStream stream = getPart(part);
+		XMLStreamReader xml = factory.createXMLStreamReader(stream);
+
+		try
+		{
+			while(xml.hasNext())
+			{
+				int event = xml.next();
+
+				if(event == XMLStreamConstants.START_ELEMENT)
+				{
+					if(xml.getLocalName().equals("numFmt"))
+					{
+						custom.put(xml.getAttributeValue(null, "numFmtId"), xml.getAttributeValue(null, "formatCode"));
+					}
+					else if(xml.getLocalName().equals("cellXfs")) cellXfs = true;
+					else if(cellXfs && xml.getLocalName().equals("xf"))
+					{
+						String id = xml.getAttributeValue(null, "numFmtId");
+						formats.add(getFormat(id != null ? Integer.parseInt(id) : 0, (String) custom.get(id)));
+					}
+				}
+				else if(event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("cellXfs")) cellXfs = false;
+			}
+		}
+		finally
+		{
+			xml.close();
+			stream.close();
+		}
+
+		styles = (Format[]) formats.toArray(new Format[formats.size()]);
+	}
+
+	/**
+	 * Get the java equivalent of a number format.
+	 *
+	 * @param id number format id
+	 * @param code custom format code or null for built in formats
+	 * @return date or number format, or null for the general format
+	 */
+	private Format getFormat(int id, final String code)
+	{
+		Format format = null;
+
+		if(code != null)
+		{
+			FormatRecord record = new FormatRecord()
+			{
+				{
+					setFormatString(code);
+				}
+			};
+
+			for(int i = 0; i < dateStrings.length && format == null; i++)
+			{
+				if(code.indexOf(dateStrings[i]) != -1 || code.indexOf(dateStrings[i].toUpperCase()) != -1) format = record.getDateFormat();
+			}
+
+			if(format == null && (code.indexOf('#') != -1 || code.indexOf('0') != -1)) format = record.getNumberFormat();
+		}
+		else
+		{
+			for(int i = 0; i < dateFormats.length && format == null; i++)
+			{
+				if(id == dateFormats[i]) format = (Format) javaDateFormats[i].clone();
+			}
+
+			for(int i = 0; i < numberFormats.length && format == null; i++)
+			{
+				if(id == numberFormats[i]) format = new DecimalFormat(javaNumberFormats[i]);
+			}
+		}
+
+		// dates are not adjusted to the local timezone
+		if(format instanceof DateFormat) ((DateFormat) format).setTimeZone(TimeZone.getTimeZone("GMT"));
+
+		return format;
+	}
+
+	/**
+	 * Read the shared strings table into the compact strings index.
+	 *
+	 * @param part shared strings part name
+	 * @throws Exception if the shared strings couldn't be read
+	 */
+	private void readSharedStrings(String part) throws Exception
+	{
+		int memory = getParserConfig().getInt("parserstringsmemory", getRuntimeConfig() != null ? getRuntimeConfig().getInt("app.runtime.parser.xlsx.stringsmemory", DEFAULT_STRINGS_MEMORY) : DEFAULT_STRINGS_MEMORY);
+		strings = new XLSXSharedStrings(RuntimeManager.getWorkingDirectory(), (int) Math.min(memory * 524288L, Integer.MAX_VALUE));
+
+		InputStream stream = getPart(part);
+		XMLStreamReader xml = factory.createXMLStreamReader(stream);
+		StringBuffer value = new StringBuffer();
+
+		try
+		{
+			while(xml.hasNext())
+			{
+				int event = xml.next();
+
+				if(event == XMLStreamConstants.START_ELEMENT)
+				{
+					if(xml.getLocalName().equals("si")) value.setLength(0);
+						else if(xml.getLocalName().equals("t")) value.append(xml.getElementText());
+						else if(xml.getLocalName().equals("rPh")) skipElement(xml);
+				}
+				else if(event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("si")) strings.add(value);
+			}
+		}
+		finally
+		{
+			xml.close();
+			stream.close();
+		}
+
+		strings.finish();
+
+		getLogger().debug("Found " + strings.size() + " shared strings in the excel file" + (strings.isSpilled() ? ", spilled to disk" : ""));
+	}
+
+	/**
+	 * Skip the current element of the sheet (i.e. phonetic runs).
+	 *
+	 * @throws XMLStreamException if the sheet couldn't be parsed
+	 */
+	private void skipElement() throws XMLStreamException
+	{
+		skipElement(reader);
+	}
+
+	/**
+	 * Skip the current element, including its children.
+	 *
+	 * @param xml XML reader positioned on a start element
+	 * @throws XMLStreamException if the document couldn't be parsed
+	 */
+	private static void skipElement(XMLStreamReader xml) throws XMLStreamException
+	{
+		int depth = 1;
+
+		while(depth > 0 && xml.hasNext())
+		{
+			int event = xml.next();
+
+			if(event == XMLStreamConstants.START_ELEMENT) depth++;
+				else if(event == XMLStreamConstants.END_ELEMENT) depth--;
+		}
+	}
+
+	/**
+	 * Open a part of the workbook package.
+	 *
+	 * @param name part name
+	 * @return part input stream
+	 * @throws IOException if the part doesn't exist or couldn't be opened
+	 */
+	private InputStream getPart(String name) throws IOException
+	{
+		ZipEntry entry = zip.getEntry(name);
+		if(entry == null) throw new IOException("Excel file part couldn't be found: " + name);
+
+		return zip.getInputStream(entry);
+	}
+
+	/**
+	 * Resolve the target of a relationship to a part name.
+	 *
+	 * @param folder folder of the source part
+	 * @param target relationship target
+	 * @return part name
+	 */
+	private static String getPartName(String folder, String target)
+	{
+		if(target == null) return null;
+		if(target.startsWith("/")) return target.substring(1);
+
+		String name = folder + target;
+
+		//resolve parent references (i.e. ../)
+		int index;
+		while((index = name.indexOf("/../")) > 0)
+		{
+			int start = name.lastIndexOf('/', index - 1);
+			name = name.substring(0, start + 1) + name.substring(index + 4);
+		}
+
+		return name;
+	}
+}
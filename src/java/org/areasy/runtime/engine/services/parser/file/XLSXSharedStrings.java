@@ -0,0 +1,222 @@
+package org.areasy.runtime.engine.services.parser.file;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Compact index of the shared strings table of an OOXML workbook. The strings are stored as characters in a
+ * single pool, addressed through an offsets array, instead of separate <code>String</code> objects. When the
+ * pool exceeds the memory limit the characters are spilled to a temporary file and the strings are read back
+ * from disk on demand.
+ * <p>
+ * The last resolved strings are kept in a small direct-mapped cache, so repeated values share the same instance.
+ */
+class XLSXSharedStrings
+{
+	/** Number of cached strings (power of 2) */
+	private static final int CACHE_SIZE = 4096;
+
+	private File directory = null;
+	private int limit = 0;
+
+	private char pool[] = new char[8192];
+	private int size = 0;
+
+	private long offsets[] = new long[1024];
+	private int count = 0;
+
+	private File file = null;
+	private DataOutputStream output = null;
+	private RandomAccessFile input = null;
+	private long length = 0;
+	private byte buffer[] = new byte[256];
+
+	private String cache[] = new String[CACHE_SIZE];
+	private int cacheKeys[] = new int[CACHE_SIZE];
+
+	/**
+	 * Create the shared strings index.
+	 *
+	 * @param directory directory of the temporary file or null for the default temporary directory
+	 * @param limit maximum number of characters kept in memory
+	 */
+	XLSXSharedStrings(File directory, int limit)
+	{
+		this.directory = directory;
+		this.limit = Math.max(limit, pool.length);
+
+		Arrays.fill(cacheKeys, -1);
+	}
+
+	/**
+	 * Add a string to the table.
+	 *
+	 * @param text string value
+	 * @throws IOException if the string couldn't be spilled to disk
+	 */
+	void add(CharSequence text) throws IOException
+	{
+		if(count + 1 >= offsets.length)
+		{
+			long temp[] = new long[offsets.length * 2];
+			System.arraycopy(offsets, 0, temp, 0, count + 1);
+			offsets = temp;
+		}
+
+		int chars = text.length();
+
+		if(output == null && size + chars > limit) spill();
+
+		if(output != null)
+		{
+			for(int i = 0; i < chars; i++) output.writeChar(text.charAt(i));
+			length += chars;
+		}
+		else
+		{
+			if(size + chars > pool.length)
+			{
+				char temp[] = new char[Math.max(pool.length * 2, size + chars)];
+				System.arraycopy(pool, 0, temp, 0, size);
+				pool = temp;
+			}
+
+			for(int i = 0; i < chars; i++) pool[size + i] = text.charAt(i);
+			size += chars;
+			length = size;
+		}
+
+		offsets[++count] = length;
+	}
+
+	/**
+	 * Complete the table, after all strings have been added.
+	 *
+	 * @throws IOException if the spilled strings couldn't be opened for reading
+	 */
+	void finish() throws IOException
+	{
+		if(output != null)
+		{
+			output.close();
+			output = null;
+
+			input = new RandomAccessFile(file, "r");
+		}
+		else if(pool.length > size)
+		{
+			char temp[] = new char[size];
+			System.arraycopy(pool, 0, temp, 0, size);
+			pool = temp;
+		}
+	}
+
+	/**
+	 * Get a string from the table.
+	 *
+	 * @param index string index
+	 * @return string value or null if the index is not valid
+	 * @throws IOException if the string couldn't be read from disk
+	 */
+	String get(int index) throws IOException
+	{
+		if(index < 0 || index >= count) return null;
+
+		int slot = index & (CACHE_SIZE - 1);
+		String text = cache[slot];
+
+		if(cacheKeys[slot] == index) return text;
+
+		long start = offsets[index];
+		int chars = (int)(offsets[index + 1] - start);
+
+		if(input == null) text = new String(pool, (int)start, chars);
+		else
+		{
+			if(buffer.length < chars * 2) buffer = new byte[chars * 2];
+
+			input.seek(start * 2);
+			input.readFully(buffer, 0, chars * 2);
+
+			text = new String(buffer, 0, chars * 2, "UTF-16BE");
+		}
+
+		cache[slot] = text;
+		cacheKeys[slot] = index;
+
+		return text;
+	}
+
+	/**
+	 * Get the number of strings.
+	 *
+	 * @return number of strings
+	 */
+	int size()
+	{
+		return count;
+	}
+
+	/**
+	 * Check if the strings have been spilled to disk.
+	 *
+	 * @return true if the strings are read from a temporary file
+	 */
+	boolean isSpilled()
+	{
+		return file != null;
+	}
+
+	/**
+	 * Release the table and delete the temporary file.
+	 */
+	void close()
+	{
+		try
+		{
+			if(output != null) output.close();
+			if(input != null) input.close();
+		}
+		catch(IOException ioe) { /* ignore close errors */ }
+
+		if(file != null) file.delete();
+
+		output = null;
+		input = null;
+		file = null;
+		pool = null;
+		offsets = null;
+		cache = null;
+		cacheKeys = null;
+	}
+
+	/**
+	 * Move the characters from memory to a temporary file.
+	 *
+	 * @throws IOException if any I/O error
+	 */
+	private void spill() throws IOException
+	{
+		file = File.createTempFile("xlsx-strings-", ".tmp", directory != null && directory.isDirectory() ? directory : null);
+		file.deleteOnExit();
+
+		output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+		for(int i = 0; i < size; i++) output.writeChar(pool[i]);
+
+		pool = new char[0];
+		size = 0;
+	}
+}
@@ -977,6 +977,21 @@ public class CoreItem implements ARDictionary
 	 * @return <code>ListEntryObject</code> structure which includes the list of entries and the fields list of the specified form.
 	 */
 	protected List getObjectsList(ServerConnection arsession, QualifierInfo qualInfo, int maxlimit) throws AREasyException
+	{
+		return getObjectsList(arsession, qualInfo, maxlimit, new OutputInteger());
+	}
+
+	/**
+	 * Get an exact search using a specific qualification criteria
+	 *
+	 * @param arsession user session
+	 * @param qualInfo specific qualification criteria
+	 * @param maxlimit maximum limit for search
+	 * @param nMatches output structure filled with the total number of entries matching the qualification criteria
+	 * @throws AREasyException if any error will occur.
+	 * @return <code>ListEntryObject</code> structure which includes the list of entries and the fields list of the specified form.
+	 */
+	protected List getObjectsList(ServerConnection arsession, QualifierInfo qualInfo, int maxlimit, OutputInteger nMatches) throws AREasyException
 	{
 		if(getFormName() == null) throw new AREasyException("Form name is not specified");
 
@@ -984,8 +999,6 @@ public class CoreItem implements ARDictionary
 		{
 			try
 			{
-				OutputInteger nMatches = new OutputInteger();
-
 				List<SortInfo> sortOrder = new ArrayList<SortInfo>();
 				sortOrder.add(getSortInfo());
 
@@ -1647,6 +1660,22 @@ public class CoreItem implements ARDictionary
 	 * @throws AREasyException if any error will occur
 	 */
 	public List search(ServerConnection arsession, String qualification, int maxlimit) throws AREasyException
+	{
+		return search(arsession, qualification, maxlimit, new OutputInteger());
+	}
+
+	/**
+	 * Search all core item structures in the ARS server using a string format of the qualification string. The total
+	 * number of matching entries is returned as well, to detect if the list has been truncated by the server.
+	 *
+	 * @param arsession user session
+	 * @param qualification qualification string
+	 * @param maxlimit maximum limit for search
+	 * @param nMatches output structure filled with the total number of entries matching the qualification
+	 * @return a list with all found <code>CoreItem</code> instances.
+	 * @throws AREasyException if any error will occur
+	 */
+	public List search(ServerConnection arsession, String qualification, int maxlimit, OutputInteger nMatches) throws AREasyException
 	{
 		List<Field> fields = null;
 		QualifierInfo qualInfo = null;
@@ -1670,7 +1699,7 @@ public class CoreItem implements ARDictionary
 		}
 
 		//search data
-		return search(arsession, qualInfo, maxlimit);
+		return search(arsession, qualInfo, maxlimit, nMatches);
 	}
 
 	/**
@@ -1683,6 +1712,21 @@ public class CoreItem implements ARDictionary
 	 * @throws AREasyException if any error will occur
 	 */
 	protected List<CoreItem> search(ServerConnection arsession, QualifierInfo qualInfo, int maxlimit) throws AREasyException
+	{
+		return search(arsession, qualInfo, maxlimit, new OutputInteger());
+	}
+
+	/**
+	 * Search all core item structures in the ARS server using this core item template and specified qualification
+	 *
+	 * @param arsession user session
+	 * @param qualInfo qualification criteria
+	 * @param maxlimit maximum limit for search
+	 * @param nMatches output structure filled with the total number of entries matching the qualification criteria
+	 * @return a list with all found <code>CoreItem</code> instances.
+	 * @throws AREasyException if any error will occur
+	 */
+	protected List<CoreItem> search(ServerConnection arsession, QualifierInfo qualInfo, int maxlimit, OutputInteger nMatches) throws AREasyException
 	{
 		//validate associated form name.
 		if(getFormName() == null) throw new AREasyException("Associated form name is null");
@@ -1690,7 +1734,7 @@ public class CoreItem implements ARDictionary
 		try
 		{
 			//get record data
-			List objects = getObjectsList(arsession, qualInfo, maxlimit);
+			List objects = getObjectsList(arsession, qualInfo, maxlimit, nMatches);
 
 			return fetch(arsession, objects);
 		}
@@ -1865,6 +1909,208 @@ public class CoreItem implements ARDictionary
 		create(arsession, collection);
 	}
 
+	/**
+	 * Create many entry records in the ARS server through a single bulk transaction. Unlike <code>create</code> method
+	 * the new entries are not read back, so the core item instances are not changed (they don't receive an entry id).
+	 * The items which can't be part of a bulk transaction (see <code>prepareBulk</code> method) are created one by one.
+	 *
+	 * @param arsession user session
+	 * @param items list of <code>CoreItem</code> structures to be created
+	 * @return the error message for each item which couldn't be created or null for the created items
+	 * @throws AREasyException if the bulk transaction failed (none of the bulk entries has been created)
+	 */
+	public static String[] create(ServerConnection arsession, List items) throws AREasyException
+	{
+		return bulk(arsession, items, false);
+	}
+
+	/**
+	 * Create or update (depending if they exist or not) many entry records in the ARS server through a single bulk
+	 * transaction. Like <code>create(ServerConnection, List)</code> method the new entries are not read back.
+	 * The items which can't be part of a bulk transaction (see <code>prepareBulk</code> method) are committed one by one.
+	 *
+	 * @param arsession user session
+	 * @param items list of <code>CoreItem</code> structures to be committed
+	 * @return the error message for each item which couldn't be committed or null for the committed items
+	 * @throws AREasyException if the bulk transaction failed (none of the bulk entries has been committed)
+	 */
+	public static String[] commit(ServerConnection arsession, List items) throws AREasyException
+	{
+		return bulk(arsession, items, true);
+	}
+
+	/**
+	 * Prepare the item structure to be written through a bulk transaction. The bulk transactions write the entries
+	 * directly, without calling <code>create</code> or <code>update</code> methods, so the structures having their
+	 * own create or update logic have to overwrite this method, to prepare the entry or to exclude it from the bulk
+	 * transaction.
+	 *
+	 * @param arsession user session
+	 * @param create true if the entry will be created, false if it will be updated
+	 * @return true if the item could be written through a bulk transaction, false if it has to be written by itself
+	 * @throws AREasyException if any error will occur
+	 */
+	protected boolean prepareBulk(ServerConnection arsession, boolean create) throws AREasyException
+	{
+		return true;
+	}
+
+	/**
+	 * Create (and update if <code>commit</code> flag is true) the specified items through a single bulk transaction.
+	 *
+	 * @param arsession user session
+	 * @param items list of <code>CoreItem</code> structures
+	 * @param commit update the existing items instead of creating them
+	 * @return the error message for each item which couldn't be written or null for the written items
+	 * @throws AREasyException if the bulk transaction failed
+	 */
+	private static String[] bulk(ServerConnection arsession, List items, boolean commit) throws AREasyException
+	{
+		String errors[] = new String[items != null ? items.size() : 0];
+		if(items == null || items.isEmpty()) return errors;
+
+		List<Integer> bulk = new ArrayList<Integer>();
+		List<Integer> sent = new ArrayList<Integer>();
+		boolean transaction = false;
+
+		//write one by one the items that can't be part of the bulk transaction
+		for(int i = 0; i < items.size(); i++)
+		{
+			CoreItem item = (CoreItem) items.get(i);
+			boolean create = !commit || !item.exists();
+
+			try
+			{
+				if(item.prepareBulk(arsession, create)) bulk.add(Integer.valueOf(i));
+				else
+				{
+					if(create) item.create(arsession);
+						else item.update(arsession);
+				}
+			}
+			catch(Throwable th)
+			{
+				errors[i] = th.getMessage() != null ? th.getMessage() : th.toString();
+			}
+		}
+
+		try
+		{
+			if(bulk.size() > 1)
+			{
+				arsession.getContext().beginBulkEntryTransaction();
+				transaction = true;
+			}
+
+			for(int i = 0; i < bulk.size(); i++)
+			{
+				int index = bulk.get(i).intValue();
+				CoreItem item = (CoreItem) items.get(index);
+
+				try
+				{
+					if(writeEntry(arsession, item, commit && item.exists())) sent.add(Integer.valueOf(index));
+				}
+				catch(Throwable th)
+				{
+					//the entries are only queued in a bulk transaction, so an error means the transaction is not usable
+					if(transaction) throw th;
+					errors[index] = th.getMessage() != null ? th.getMessage() : th.toString();
+				}
+			}
+
+			if(transaction)
+			{
+				transaction = false;
+				List<BulkEntryReturn> returns = arsession.getContext().endBulkEntryTransaction(Constants.AR_BULK_ENTRY_ACTION_SEND);
+
+				for(int i = 0; returns != null && i < returns.size() && i < sent.size(); i++)
+				{
+					String error = getBulkError(returns.get(i));
+					if(error != null) errors[sent.get(i).intValue()] = error;
+				}
+			}
+		}
+		catch(Throwable th)
+		{
+			if(transaction)
+			{
+				try
+				{
+					arsession.getContext().endBulkEntryTransaction(Constants.AR_BULK_ENTRY_ACTION_CANCEL);
+				}
+				catch(Throwable th2) { /* nothing to do */ }
+			}
+
+			if(th instanceof AREasyException) throw (AREasyException) th;
+				else throw new AREasyException("Error " + (commit ? "committing" : "creating") + " bulk data entries (" + bulk.size() + " records)" + (th.getMessage() != null ? ". " + th.getMessage() : ""), th);
+		}
+
+		return errors;
+	}
+
+	/**
+	 * Get the error message of a bulk transaction entry.
+	 *
+	 * @param result bulk transaction entry result
+	 * @return error message or null if the entry has been written
+	 */
+	private static String getBulkError(BulkEntryReturn result)
+	{
+		List<StatusInfo> statuses = result != null ? result.getStatusList() : null;
+
+		for(int i = 0; statuses != null && i < statuses.size(); i++)
+		{
+			StatusInfo status = statuses.get(i);
+
+			if(status.getMessageType() == Constants.AR_RETURN_ERROR || status.getMessageType() == Constants.AR_RETURN_FATAL)
+			{
+				return "ERROR (" + status.getMessageNum() + "): " + status.getMessageText() + (status.getAppendedText() != null ? "; " + status.getAppendedText() : "");
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Create or update the entry record of the specified core item without reading it back (used by bulk transactions).
+	 *
+	 * @param arsession user session
+	 * @param item <code>CoreItem</code> structure to be written
+	 * @param update update the existing entry instead of creating a new one
+	 * @return true if the entry has been sent to the server, false if there was nothing to write (or in simulation mode)
+	 * @throws Exception if any error will occur
+	 */
+	private static boolean writeEntry(ServerConnection arsession, CoreItem item, boolean update) throws Exception
+	{
+		if(item.getFormName() == null) throw new AREasyException("Associated form name is null");
+		if(update && StringUtility.isEmpty(item.getEntryId())) throw new AREasyException("This item instance could be updated because doesn't have an entry id");
+
+		Collection collection = item.ignoreUnchangedValues() ? item.getChangedAttributes() : item.getAttributes();
+		if(collection == null || collection.isEmpty()) return false;
+
+		Entry entry = new Entry();
+		Iterator iterator = collection.iterator();
+
+		while(iterator != null && iterator.hasNext())
+		{
+			Attribute attr = (Attribute) iterator.next();
+
+			if ((item.ignoreNullValues() && attr != null && attr.getValue() != null) || (!item.ignoreNullValues() && attr != null))  entry.put(attr.getFieldIdFormat(), attr.getValueFormat());
+		}
+
+		boolean sent = !item.simulation;
+
+		if(!sent) RuntimeLogger.info((update ? "UPDATE: " : "CREATE: ") + item.toFullString());
+			else if(update) arsession.getContext().setEntry(item.getFormName(), item.getEntryId(), entry, null, 0);
+				else arsession.getContext().createEntry(item.getFormName(), entry);
+
+		//mark unchanged all used fields
+		if(update) item.setAttributesUnchanged();
+
+		return sent;
+	}
+
 
     /**
 	 * Update the current core item instance based on specified attributes.
@@ -688,6 +688,21 @@ public class MultiPartItem extends CoreItem
 		}
 	}
 
+	/**
+	 * Update or create the current multipart core item instance based on changed attributes. When <code>bulk</code>
+	 * flag is true the parts are committed in dependency order: the parts that are not referred by other parts are
+	 * written in one bulk transaction for each dependency level.
+	 *
+	 * @param arsession user session
+	 * @param bulk commit independent parts through bulk transactions
+	 * @throws AREasyException if any error will occur
+	 */
+	public void commitParts(ServerConnection arsession, boolean bulk) throws AREasyException
+	{
+		if(bulk) commitParts(arsession, null, new HashMap(), true);
+			else commitParts(arsession);
+	}
+
 	/**
 	 * Process list of parts (read and commit) of a multipart core item instance based on changed attributes.
 	 *
@@ -708,19 +723,7 @@ public class MultiPartItem extends CoreItem
 			//process input parameters and read part item structure
 			if(read != null)
 			{
-				Iterator readit = read.keySet().iterator();
-
-				while(readit.hasNext())
-				{
-					String key = (String) readit.next();
-					if( key != null && key.startsWith(part + partSeparator) && key.length() > part.length() + 1)
-					{
-						String fid = key.substring((part + partSeparator).length());
-						Object fvalue = read.get(key);
-
-						item.setAttribute(fid, fvalue);
-					}
-				}
+				setPartAttributes(part, item, read);
 
 				interpolate(item);
 				item.read(arsession);
@@ -729,19 +732,7 @@ public class MultiPartItem extends CoreItem
 			//read output parameters and commit part item structure
 			if(commit != null)
 			{
-				Iterator commitit = commit.keySet().iterator();
-
-				while(commitit.hasNext())
-				{
-					String key = (String) commitit.next();
-					if( key != null && key.startsWith(part + partSeparator) && key.length() > part.length() + 1)
-					{
-						String fid = key.substring((part + partSeparator).length());
-						Object fvalue = commit.get(key);
-
-						item.setAttribute(fid, fvalue);
-					}
-				}
+				setPartAttributes(part, item, commit);
 
 				interpolate(item);
 				if(item.exists()) item.update(arsession);
@@ -750,6 +741,207 @@ public class MultiPartItem extends CoreItem
 		}
 	}
 
+	/**
+	 * Process list of parts (read and commit) of a multipart core item instance based on changed attributes. When
+	 * <code>bulk</code> flag is true the parts are grouped in dependency levels (a part referring <code>${part@fieldid}</code>
+	 * values of another part is processed after it). For each level all parts are read first and then the parts which
+	 * are not referred by other parts are committed in one bulk transaction, while the referred parts are committed one
+	 * by one in order to read back their entry ids. Circular references are processed like the standard commit.
+	 *
+	 * @param arsession user session
+	 * @param commit map containing parameters for commit action
+	 * @param read map containing parameters for read action
+	 * @param bulk commit independent parts through bulk transactions
+	 * @throws AREasyException if any error will occur
+	 */
+	public void commitParts(ServerConnection arsession, Map read, Map commit, boolean bulk) throws AREasyException
+	{
+		List levels = bulk ? getPartLevels(read, commit) : null;
+
+		if(levels == null)
+		{
+			commitParts(arsession, read, commit);
+			return;
+		}
+
+		Set referred = getReferredParts(read, commit);
+
+		for(int i = 0; i < levels.size(); i++)
+		{
+			List parts = (List) levels.get(i);
+			List items = new Vector();
+
+			//process input parameters and read all part item structures of this level
+			for(int x = 0; read != null && x < parts.size(); x++)
+			{
+				String part = (String) parts.get(x);
+				CoreItem item = getPartInstance(part);
+
+				setPartAttributes(part, item, read);
+
+				interpolate(item);
+				item.read(arsession);
+			}
+
+			//read output parameters and commit part item structures
+			for(int x = 0; commit != null && x < parts.size(); x++)
+			{
+				String part = (String) parts.get(x);
+				CoreItem item = getPartInstance(part);
+
+				setPartAttributes(part, item, commit);
+				interpolate(item);
+
+				if(referred.contains(part))
+				{
+					if(item.exists()) item.update(arsession);
+						else item.create(arsession);
+				}
+				else items.add(item);
+			}
+
+			String errors[] = CoreItem.commit(arsession, items);
+
+			for(int x = 0; x < errors.length; x++)
+			{
+				if(errors[x] != null) throw new AREasyException("Error committing data entry in '" + ((CoreItem) items.get(x)).getFormName() + "' form, for '" + items.get(x) + "' data structure. " + errors[x]);
+			}
+		}
+	}
+
+	/**
+	 * Set part attributes from the specified parameters map. The keys of the map have the format <code>part@fieldid</code>.
+	 *
+	 * @param part part code
+	 * @param item part structure
+	 * @param data parameters map
+	 */
+	protected void setPartAttributes(String part, CoreItem item, Map data)
+	{
+		Iterator iterator = data.keySet().iterator();
+
+		while(iterator.hasNext())
+		{
+			String key = (String) iterator.next();
+			if( key != null && key.startsWith(part + partSeparator) && key.length() > part.length() + 1)
+			{
+				String fid = key.substring((part + partSeparator).length());
+				Object fvalue = data.get(key);
+
+				item.setAttribute(fid, fvalue);
+			}
+		}
+	}
+
+	/**
+	 * Get the parts referred by the specified part through <code>${part@fieldid}</code> values, found in part attributes or
+	 * in the read and commit parameters.
+	 *
+	 * @param part part code
+	 * @param read map containing parameters for read action
+	 * @param commit map containing parameters for commit action
+	 * @return set of referred part codes
+	 */
+	protected Set getPartDependencies(String part, Map read, Map commit)
+	{
+		Set dependencies = new HashSet();
+		List values = new Vector();
+
+		Iterator iterator = getPartInstance(part).getAttributes().iterator();
+		while(iterator.hasNext()) values.add(((Attribute) iterator.next()).getValue());
+
+		for(int i = 0; i < 2; i++)
+		{
+			Map data = i == 0 ? read : commit;
+			if(data == null) continue;
+
+			iterator = data.keySet().iterator();
+
+			while(iterator.hasNext())
+			{
+				Object key = iterator.next();
+				if(key instanceof String && ((String)key).startsWith(part + partSeparator)) values.add(data.get(key));
+			}
+		}
+
+		for(int i = 0; i < values.size(); i++)
+		{
+			Object value = values.get(i);
+
+			if(value instanceof String && ((String)value).startsWith(partVarStart) && ((String)value).indexOf(partSeparator, 0) > 0 && ((String)value).endsWith(partVarEnd))
+			{
+				String label = (String) value;
+				String refpart = label.substring(partVarStart.length(), label.indexOf(partSeparator));
+
+				if(!StringUtility.equalsIgnoreCase(refpart, "base") && !StringUtility.equals(refpart, part) && getPartInstance(refpart) != null) dependencies.add(refpart);
+			}
+		}
+
+		return dependencies;
+	}
+
+	/**
+	 * Get the parts referred by other parts.
+	 *
+	 * @param read map containing parameters for read action
+	 * @param commit map containing parameters for commit action
+	 * @return set of referred part codes
+	 */
+	protected Set getReferredParts(Map read, Map commit)
+	{
+		Set referred = new HashSet();
+		Iterator iterator = getPartCodes();
+
+		while(iterator != null && iterator.hasNext())
+		{
+			referred.addAll(getPartDependencies((String) iterator.next(), read, commit));
+		}
+
+		return referred;
+	}
+
+	/**
+	 * Group parts in dependency levels: each level contains parts referring only parts from the previous levels.
+	 *
+	 * @param read map containing parameters for read action
+	 * @param commit map containing parameters for commit action
+	 * @return list of levels (lists of part codes) or null if the parts have circular references
+	 */
+	protected List getPartLevels(Map read, Map commit)
+	{
+		List levels = new Vector();
+		Map dependencies = new LinkedHashMap();
+		Iterator iterator = getPartCodes();
+
+		while(iterator != null && iterator.hasNext())
+		{
+			String part = (String) iterator.next();
+			dependencies.put(part, getPartDependencies(part, read, commit));
+		}
+
+		Set done = new HashSet();
+
+		while(!dependencies.isEmpty())
+		{
+			List level = new Vector();
+			iterator = dependencies.keySet().iterator();
+
+			while(iterator.hasNext())
+			{
+				String part = (String) iterator.next();
+				if(done.containsAll((Set) dependencies.get(part))) level.add(part);
+			}
+
+			if(level.isEmpty()) return null;
+
+			for(int i = 0; i < level.size(); i++) dependencies.remove(level.get(i));
+			done.addAll(level);
+			levels.add(level);
+		}
+
+		return levels;
+	}
+
     /**
 	 * Get string representation of the current multi part item structure.
 	 *
@@ -13,6 +13,7 @@ package org.areasy.runtime.engine.structures.data.cmdb;
  * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
  */
 
+import com.bmc.arsys.api.OutputInteger;
 import org.areasy.common.data.StringUtility;
 import org.areasy.common.logger.Logger;
 import org.areasy.common.logger.LoggerFactory;
@@ -826,6 +827,32 @@ public class ConfigurationItem extends MultiPartItem
 		}		
 	}
 
+	/**
+	 * Prepare the CI structure to be written through a bulk transaction: set and validate the class form and, for
+	 * the new CIs, set the 'Instance Id' and the default dataset (like <code>create</code> method does).
+	 *
+	 * @param arsession user session
+	 * @param create true if the CI will be created, false if it will be updated
+	 * @return true because the CI could be written through a bulk transaction
+	 * @throws AREasyException if any error will occur
+	 */
+	protected boolean prepareBulk(ServerConnection arsession, boolean create) throws AREasyException
+	{
+		//set and validate the class form
+		if(getClassForm(arsession) == null) throw new AREasyException("Associated class form wasn't discovered and the CI couldn't be detected using specified criteria");
+
+		if(create)
+		{
+			//set anf force the 'Instance Id' value (if is not already configured)
+			if(getInstanceId() == null) setInstanceId(ProcessorLevel2CmdbApp.getStringInstanceId(arsession, "AG"));
+
+			//set default dataset value
+			if(getDatasetId() == null) setDatasetId(ProcessorLevel1Context.DEFAULTDATASET);
+		}
+
+		return true;
+	}
+
 	/**
 	 * Search all configuration item structures in the ARS server using this core item template and specified attribute's collection for searching
 	 *
@@ -878,16 +905,32 @@ public class ConfigurationItem extends MultiPartItem
 	 *
 	 * @param arsession user session
 	 * @param qualification qualification string
-	 * @return a list with all found <code>CoreItem</code> instances.
 	 * @param maxlimit maximum limit for search
+	 * @param nMatches output structure filled with the total number of entries matching the qualification
+	 * @return a list with all found <code>CoreItem</code> instances.
 	 * @throws AREasyException if any error will occur
 	 */
-	public List search(ServerConnection arsession, String qualification, int maxlimit) throws AREasyException
+	public List search(ServerConnection arsession, String qualification, int maxlimit, OutputInteger nMatches) throws AREasyException
 	{
 		//set and validate the class form
 		getClassForm(arsession);
 
-		return super.search(arsession, qualification, maxlimit);
+		return super.search(arsession, qualification, maxlimit, nMatches);
+	}
+
+	/**
+	 * Get data field ids of the class form, taken from the class metadata cache of the server connection so they
+	 * are not read again for each CI structure.
+	 *
+	 * @param arsession user session
+	 * @return data field ids
+	 * @throws AREasyException if any error will occur
+	 */
+	public int[] getEntryFieldIds(ServerConnection arsession) throws AREasyException
+	{
+		if(getEntryFieldIds() == null && getFormName() != null) setEntryFieldIds(ProcessorLevel1Context.getFormFieldIds(arsession, getFormName()));
+
+		return super.getEntryFieldIds(arsession);
 	}
 
 	public String toString()
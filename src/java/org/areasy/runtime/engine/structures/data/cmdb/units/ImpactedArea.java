@@ -93,6 +93,18 @@ public class ImpactedArea extends CoreItem
 		super.create(arsession, collection);
 	}
 
+	/**
+	 * Impacted area structure has to be written by itself, in order to validate (and create) its foundation structures first.
+	 *
+	 * @param arsession user session
+	 * @param create true if the entry will be created, false if it will be updated
+	 * @return false because the structure can't be written through a bulk transaction
+	 */
+	protected boolean prepareBulk(ServerConnection arsession, boolean create)
+	{
+		return false;
+	}
+
     /**
 	 * Update the current core item instance based on specified attributes.
 	 *
@@ -85,34 +85,7 @@ public class Relationship extends CoreItem
 
 		if(!isRealFormName)
 		{
-			String formName = null;
-			CoreItem item = new CoreItem();
-
-			try
-			{
-				item.setFormName(ProcessorLevel1Context.FORM_SHRSCHEMANAMES);
-				item.setAttribute(230000009, relationKeyword);
-
-				item.read(arsession);
-
-				if(item.exists()) formName = item.getStringAttributeValue(301170700);
-			}
-			catch(Throwable th)
-			{
-				logger.debug("Error reading form definition using Asset Management dictionary: " + th.getMessage());
-			}
-
-			if(formName == null)
-			{
-				item = new CoreItem();
-				item.setFormName(ProcessorLevel1Context.FORM_OBJSTRCLASS);
-				item.setAttribute(179, relationKeyword);
-
-				item.read(arsession);
-
-				if(item.exists()) formName = item.getStringAttributeValue(400130800);
-			}
-
+			String formName = ProcessorLevel1Context.getClassMetadata(arsession).getRelationshipFormName(relationKeyword);
 
 			if(formName == null) throw new AREasyException("Relationship type '" + relationKeyword + "' does not have dedicated AR form");
 			else
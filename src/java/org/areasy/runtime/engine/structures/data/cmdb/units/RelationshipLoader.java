@@ -0,0 +1,438 @@
+package org.areasy.runtime.engine.structures.data.cmdb.units;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import org.areasy.common.logger.Logger;
+import org.areasy.common.logger.LoggerFactory;
+import org.areasy.runtime.engine.base.ARDictionary;
+import org.areasy.runtime.engine.base.AREasyException;
+import org.areasy.runtime.engine.base.ServerConnection;
+import org.areasy.runtime.engine.structures.CoreItem;
+import org.areasy.runtime.engine.structures.data.cmdb.ConfigurationItem;
+import org.areasy.runtime.engine.workflows.ProcessorLevel1Context;
+
+import java.util.*;
+
+/**
+ * Bulk loader of CI relationships. The relationships are collected in batches and for each batch the relationship
+ * classes are resolved from the class metadata cache, the existing relationships are found through a few searches
+ * (chunked OR qualifications, one chunk for each relationship class form) and the new relationships are created
+ * in bulk transactions. The outcome of each relationship is reported in its <code>Row</code> structure.
+ * <p>
+ * The existing relationships are processed like <code>ProcessorLevel2CmdbApp.setConfigurationItemRelationship</code>
+ * method does: they are updated only to set or to clear the impact details.
+ */
+public class RelationshipLoader implements ARDictionary
+{
+	/** Library logger */
+	protected static Logger logger = LoggerFactory.getLog(RelationshipLoader.class);
+
+	/** Relationship is waiting to be processed */
+	public static final int PENDING = 0;
+
+	/** Relationship has been created */
+	public static final int CREATED = 1;
+
+	/** Existing relationship has been updated */
+	public static final int UPDATED = 2;
+
+	/** Relationship already exists and nothing has been changed */
+	public static final int EXISTS = 3;
+
+	/** Relationship couldn't be processed */
+	public static final int FAILED = 4;
+
+	/** Server connection */
+	private ServerConnection arsession = null;
+
+	/** Number of relationships processed in one batch */
+	private int batchSize = 100;
+
+	/** Number of relationships checked with one search */
+	private int chunkSize = 50;
+
+	/** Pending relationships */
+	private List<Row> rows = new ArrayList<Row>();
+
+	/**
+	 * Create a new relationship loader.
+	 *
+	 * @param arsession server connection
+	 * @param batchSize number of relationships processed in one batch
+	 * @param chunkSize number of relationships checked with one search
+	 */
+	public RelationshipLoader(ServerConnection arsession, int batchSize, int chunkSize)
+	{
+		this.arsession = arsession;
+		this.batchSize = Math.max(batchSize, 1);
+		this.chunkSize = Math.max(chunkSize, 1);
+	}
+
+	/**
+	 * Add a relationship to the loader. When the batch is complete all pending relationships are processed.
+	 *
+	 * @param primary configuration item which will register the requested relationship
+	 * @param secondary configuration item which will be used to define this relationship
+	 * @param impact relationship impact or null
+	 * @param relationClass relationship class name or class id
+	 * @param isparent specify if the primary CI is parent in this relation
+	 * @return list of processed relationships if the batch has been completed, otherwise an empty list
+	 * @throws AREasyException if any error will occur
+	 */
+	public List<Row> add(ConfigurationItem primary, ConfigurationItem secondary, String impact, String relationClass, boolean isparent) throws AREasyException
+	{
+		rows.add(new Row(primary, secondary, impact, relationClass, isparent));
+
+		if(rows.size() >= batchSize) return flush();
+			else return new ArrayList<Row>();
+	}
+
+	/**
+	 * Get number of pending relationships.
+	 *
+	 * @return number of relationships waiting to be processed
+	 */
+	public int size()
+	{
+		return rows.size();
+	}
+
+	/**
+	 * Process all pending relationships.
+	 *
+	 * @return processed relationships, having the outcome filled in
+	 * @throws AREasyException if any error will occur
+	 */
+	public List<Row> flush() throws AREasyException
+	{
+		List<Row> batch = rows;
+		rows = new ArrayList<Row>();
+
+		if(batch.isEmpty()) return batch;
+
+		ProcessorLevel1Context.ClassMetadata metadata = ProcessorLevel1Context.getClassMetadata(arsession);
+		Map<String, List<Row>> forms = new LinkedHashMap<String, List<Row>>();
+
+		//resolve classes and validate CIs
+		for(int i = 0; i < batch.size(); i++)
+		{
+			Row row = batch.get(i);
+			String details[] = metadata.getRelationshipClass(row.relationClass);
+
+			if(details == null || details[0] == null) row.setOutcome(FAILED, "Invalid relationship class: " + row.relationClass);
+				else if(row.primary == null || !row.primary.exists()) row.setOutcome(FAILED, "Primary relationship CI doesn't exist: " + row.primary);
+					else if(row.secondary == null || !row.secondary.exists()) row.setOutcome(FAILED, "Secondary relationship CI doesn't exist: " + row.secondary);
+			else
+			{
+				row.setRelationship(details);
+
+				List<Row> list = forms.get(details[1]);
+
+				if(list == null)
+				{
+					list = new ArrayList<Row>();
+					forms.put(details[1], list);
+				}
+
+				list.add(row);
+			}
+		}
+
+		Iterator<String> iterator = forms.keySet().iterator();
+
+		while(iterator.hasNext())
+		{
+			String formName = iterator.next();
+			List<Row> list = forms.get(formName);
+
+			for(int i = 0; i < list.size(); i += chunkSize)
+			{
+				process(formName, list.subList(i, Math.min(i + chunkSize, list.size())));
+			}
+		}
+
+		return batch;
+	}
+
+	/**
+	 * Process a chunk of relationships having the same class form.
+	 *
+	 * @param formName relationship class form
+	 * @param chunk relationships
+	 * @throws AREasyException if any error will occur
+	 */
+	protected void process(String formName, List<Row> chunk) throws AREasyException
+	{
+		Map<String, List<CoreItem>> existing = new HashMap<String, List<CoreItem>>();
+		StringBuffer qualification = new StringBuffer();
+
+		for(int i = 0; i < chunk.size(); i++)
+		{
+			if(qualification.length() > 0) qualification.append(" OR ");
+			qualification.append("(").append(chunk.get(i).getQualification()).append(")");
+		}
+
+		//find existing relationships
+		CoreItem search = new CoreItem();
+		search.setFormName(formName);
+
+		List list = search.search(arsession, qualification.toString(), 0);
+
+		for(int i = 0; list != null && i < list.size(); i++)
+		{
+			CoreItem item = (CoreItem) list.get(i);
+			String key = getKey(item.getStringAttributeValue(CRL_SRC_INSTANCEID), item.getStringAttributeValue(CRL_SRC_DATASETID), item.getStringAttributeValue(CRL_DEST_INSTANCEID), item.getStringAttributeValue(CRL_DEST_DATASETID));
+
+			List<CoreItem> items = existing.get(key);
+
+			if(items == null)
+			{
+				items = new ArrayList<CoreItem>();
+				existing.put(key, items);
+			}
+
+			items.add(item);
+		}
+
+		List<CoreItem> creates = new ArrayList<CoreItem>();
+		List<Row> created = new ArrayList<Row>();
+		Set<String> queued = new HashSet<String>();
+
+		for(int i = 0; i < chunk.size(); i++)
+		{
+			Row row = chunk.get(i);
+			List<CoreItem> items = existing.get(row.getKey());
+
+			try
+			{
+				if(items != null && items.size() == 1)
+				{
+					CoreItem item = items.get(0);
+
+					if(row.impact != null)
+					{
+						item.setAttribute(CRL_HASIMPACT, "Yes");
+						item.setAttribute(CRL_IMPACTDIR, row.impact);
+
+						item.setIgnoreUnchangedValues(true);
+						item.update(arsession);
+						row.setOutcome(UPDATED, "CI relationship already exists but it has been updated to set the impact details: " + row.impact);
+					}
+					else if(item.getAttributeValue(CRL_HASIMPACT) != null && 10 == (Integer)item.getAttributeValue(CRL_HASIMPACT))
+					{
+						item.setAttribute(CRL_HASIMPACT, "No");
+						item.setNullAttribute(CRL_IMPACTDIR);
+
+						item.setIgnoreUnchangedValues(true);
+						item.update(arsession);
+						row.setOutcome(UPDATED, "CI relationship already exists but it has been updated to make null the impact details");
+					}
+					else row.setOutcome(EXISTS, "CI relationship already exists: " + item);
+				}
+				else if(items != null && items.size() > 1) row.setOutcome(EXISTS, "Multiple CI relationships found for the specified relationship: " + row);
+				else if(queued.contains(row.getKey())) row.setOutcome(EXISTS, "CI relationship is already requested in the same batch: " + row);
+				else
+				{
+					queued.add(row.getKey());
+
+					creates.add(row.getStructure());
+					created.add(row);
+				}
+			}
+			catch(Throwable th)
+			{
+				row.setOutcome(FAILED, "Error updating CI relationship: " + th.getMessage());
+			}
+		}
+
+		create(created, creates);
+	}
+
+	/**
+	 * Create new relationships in a bulk transaction. The relationships rejected by the server are marked as failed and,
+	 * if the whole transaction fails, the relationships are created one by one in order to identify the failed ones.
+	 *
+	 * @param rows relationships
+	 * @param items relationship structures
+	 */
+	protected void create(List<Row> rows, List<CoreItem> items)
+	{
+		if(items.isEmpty()) return;
+
+		try
+		{
+			String errors[] = CoreItem.create(arsession, items);
+
+			for(int i = 0; i < rows.size(); i++)
+			{
+				if(errors[i] == null) rows.get(i).setOutcome(CREATED, "CI relationship has been created: " + rows.get(i));
+					else rows.get(i).setOutcome(FAILED, "Error creating CI relationship: " + errors[i]);
+			}
+		}
+		catch(Throwable th)
+		{
+			logger.debug("Bulk creation of CI relationships failed, they will be created one by one: " + th.getMessage());
+
+			for(int i = 0; i < rows.size(); i++)
+			{
+				try
+				{
+					items.get(i).create(arsession);
+					rows.get(i).setOutcome(CREATED, "CI relationship has been created: " + rows.get(i));
+				}
+				catch(Throwable th2)
+				{
+					rows.get(i).setOutcome(FAILED, "Error creating CI relationship: " + th2.getMessage());
+				}
+			}
+		}
+	}
+
+	private static String getKey(String sourceInstanceId, String sourceDatasetId, String destinationInstanceId, String destinationDatasetId)
+	{
+		return sourceInstanceId + "|" + sourceDatasetId + "|" + destinationInstanceId + "|" + destinationDatasetId;
+	}
+
+	/**
+	 * CI relationship requested to the loader, including its outcome.
+	 */
+	public static class Row
+	{
+		private ConfigurationItem primary = null;
+		private ConfigurationItem secondary = null;
+		private String impact = null;
+		private String relationClass = null;
+		private boolean isparent = false;
+
+		private String relationClassId = null;
+		private String relationClassForm = null;
+		private String relationClassName = null;
+
+		private int outcome = PENDING;
+		private String message = null;
+
+		protected Row(ConfigurationItem primary, ConfigurationItem secondary, String impact, String relationClass, boolean isparent)
+		{
+			this.primary = primary;
+			this.secondary = secondary;
+			this.impact = impact;
+			this.relationClass = relationClass;
+			this.isparent = isparent;
+		}
+
+		protected void setRelationship(String details[])
+		{
+			this.relationClassId = details[0];
+			this.relationClassForm = details[1];
+			this.relationClassName = details[2];
+		}
+
+		protected void setOutcome(int outcome, String message)
+		{
+			this.outcome = outcome;
+			this.message = message;
+		}
+
+		public ConfigurationItem getPrimary()
+		{
+			return this.primary;
+		}
+
+		public ConfigurationItem getSecondary()
+		{
+			return this.secondary;
+		}
+
+		/**
+		 * Get relationship outcome: <code>PENDING</code>, <code>CREATED</code>, <code>UPDATED</code>,
+		 * <code>EXISTS</code> or <code>FAILED</code>.
+		 *
+		 * @return outcome code
+		 */
+		public int getOutcome()
+		{
+			return this.outcome;
+		}
+
+		/**
+		 * Get outcome message.
+		 *
+		 * @return outcome message
+		 */
+		public String getMessage()
+		{
+			return this.message;
+		}
+
+		public boolean isFailed()
+		{
+			return this.outcome == FAILED;
+		}
+
+		protected ConfigurationItem getSource()
+		{
+			return isparent ? secondary : primary;
+		}
+
+		protected ConfigurationItem getDestination()
+		{
+			return isparent ? primary : secondary;
+		}
+
+		protected String getKey()
+		{
+			return RelationshipLoader.getKey(getSource().getInstanceId(), primary.getDatasetId(), getDestination().getInstanceId(), secondary.getDatasetId());
+		}
+
+		protected String getQualification()
+		{
+			return "'" + CRL_SRC_INSTANCEID + "' = \"" + getSource().getInstanceId() + "\" AND '" + CRL_SRC_DATASETID + "' = \"" + primary.getDatasetId() +
+					"\" AND '" + CRL_DEST_INSTANCEID + "' = \"" + getDestination().getInstanceId() + "\" AND '" + CRL_DEST_DATASETID + "' = \"" + secondary.getDatasetId() + "\"";
+		}
+
+		protected CoreItem getStructure()
+		{
+			CoreItem item = new CoreItem();
+			item.setFormName(relationClassForm);
+
+			item.setAttribute(CRL_DATASETID, primary.getDatasetId());
+			item.setAttribute(CRL_TYPE, relationClassId);
+			item.setAttribute(CRL_SRC_CLSID, getSource().getClassId());
+			item.setAttribute(CRL_SRC_DATASETID, primary.getDatasetId());
+			item.setAttribute(CRL_SRC_INSTANCEID, getSource().getInstanceId());
+			item.setAttribute(CRL_SRC_RECONCILIATIONID, getSource().getReconciliationId());
+			item.setAttribute(CRL_DEST_CLSID, getDestination().getClassId());
+			item.setAttribute(CRL_DEST_DATASETID, secondary.getDatasetId());
+			item.setAttribute(CRL_DEST_INSTANCEID, getDestination().getInstanceId());
+			item.setAttribute(CRL_DEST_RECONCILIATIONID, getDestination().getReconciliationId());
+			item.setAttribute(CRL_NAME, relationClassName);
+
+			if(impact != null)
+			{
+				item.setAttribute(CRL_HASIMPACT, "Yes");
+				item.setAttribute(CRL_IMPACTDIR, impact);
+			}
+
+			item.setIgnoreUnchangedValues(true);
+			item.setIgnoreNullValues(true);
+
+			return item;
+		}
+
+		public String toString()
+		{
+			return getSource() + " -> " + getDestination() + " (" + relationClass + ")";
+		}
+	}
+}
@@ -0,0 +1,525 @@
+package org.areasy.runtime.engine.structures.data.itsm.foundation;
+
+/*
+ * Copyright (c) 2007-2020 AREasy Runtime
+ *
+ * This library, AREasy Runtime and API for BMC Remedy AR System, is free software ("Licensed Software");
+ * you can redistribute it and/or modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either version 2.1 of the License,
+ * or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * including but not limited to, the implied warranty of MERCHANTABILITY, NONINFRINGEMENT,
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ */
+
+import com.bmc.arsys.api.Timestamp;
+import org.areasy.common.data.StringUtility;
+import org.areasy.common.logger.Logger;
+import org.areasy.common.logger.LoggerFactory;
+import org.areasy.runtime.engine.RuntimeLogger;
+import org.areasy.runtime.engine.base.ARDictionary;
+import org.areasy.runtime.engine.base.AREasyException;
+import org.areasy.runtime.engine.base.ServerConnection;
+import org.areasy.runtime.engine.structures.Attribute;
+import org.areasy.runtime.engine.structures.CoreItem;
+
+import java.util.*;
+
+/**
+ * In-memory indexes of the Foundation layer data (companies, sites, regions, organisations, support groups and people)
+ * from ITSM application suite. The indexes are loaded in bulk (page by page) for a server connection and then they are
+ * refreshed incrementally, reading only the entries modified since the last load. Foundation structures resolve
+ * their <code>read</code> calls from these indexes when the search criteria match one of the indexed keys, and
+ * fall back to a server read for any other criteria, for ambiguous keys and for keys not found in memory.
+ * <p>
+ * Each index keeps one array of values per entry and maps the keys (names, ids and login ids) to entry ids, so the
+ * same entry is never stored twice. Entries deleted on the server are not detected by the incremental refresh.
+ */
+public class FoundationIndex implements ARDictionary
+{
+	/** Library logger */
+	protected static Logger logger = LoggerFactory.getLog(FoundationIndex.class);
+
+	/** Indexes registered for server connections */
+	private static Map<ServerConnection, FoundationIndex> instances = new WeakHashMap<ServerConnection, FoundationIndex>();
+
+	/** Marker of the keys shared by more than one entry */
+	private static final String AMBIGUOUS = "";
+
+	/** Characters signaling a qualification operator in a criteria value */
+	private static final String operatorStrings[] = { "%", ">", "<", "!=" };
+
+	/** Form indexes */
+	private Map<String, FormIndex> forms = new Hashtable<String, FormIndex>();
+
+	/** Number of entries read in one call */
+	private int pageSize = 5000;
+
+	/** Time of the last load or refresh */
+	private long refreshTime = 0;
+
+	/**
+	 * Create Foundation indexes definition.
+	 *
+	 * @param pageSize number of entries read in one call
+	 */
+	protected FoundationIndex(int pageSize)
+	{
+		this.pageSize = pageSize > 0 ? pageSize : 5000;
+
+		addFormIndex(new Company(), new int[][] { {COM_COMPANYNAME} });
+		addFormIndex(new Site(), new int[][] { {SIT_SITENAME} });
+		addFormIndex(new Region(), new int[][] { {CTM_COMPANYNAME, CTM_REGIONNAME}, {CTM_REGIONNAME} });
+		addFormIndex(new Organisation(), new int[][] { {POR_COMPANYNAME, POR_ORGANISATIONNAME, POR_DEPARTMENTNAME}, {POR_COMPANYNAME, POR_ORGANISATIONNAME} });
+		addFormIndex(new SupportGroup(), new int[][] { {CTM_INSTANCEID}, {CTM_COMPANYNAME, CTM_SGRORGANISATION, CTM_GROUPNAME}, {CTM_COMPANYNAME, CTM_GROUPNAME}, {CTM_GROUPNAME} });
+		addFormIndex(new People(), new int[][] { {CTM_LOGINID}, {CTM_INSTANCEID}, {CTM_CORPORATEID}, {CTM_HRID}, {CTM_FULLNAME}, {1000000048} });
+	}
+
+	/**
+	 * Get Foundation indexes registered for the specified server connection.
+	 *
+	 * @param arsession server connection
+	 * @return <code>FoundationIndex</code> instance or null if no index has been loaded for this connection
+	 */
+	public static FoundationIndex getInstance(ServerConnection arsession)
+	{
+		if(arsession == null) return null;
+
+		synchronized(instances)
+		{
+			return instances.get(arsession);
+		}
+	}
+
+	/**
+	 * Load Foundation indexes for the specified server connection. If the indexes have been already loaded they are
+	 * refreshed with the entries modified since the last load, when the refresh interval has been elapsed.
+	 *
+	 * @param arsession server connection
+	 * @param pageSize number of entries read in one call
+	 * @param refresh refresh interval in seconds
+	 * @return <code>FoundationIndex</code> instance
+	 * @throws AREasyException if any error will occur
+	 */
+	public static FoundationIndex load(ServerConnection arsession, int pageSize, int refresh) throws AREasyException
+	{
+		FoundationIndex index;
+
+		synchronized(instances)
+		{
+			index = instances.get(arsession);
+
+			if(index == null)
+			{
+				index = new FoundationIndex(pageSize);
+				instances.put(arsession, index);
+			}
+		}
+
+		if(index.refreshTime == 0 || System.currentTimeMillis() - index.refreshTime >= 1000L * refresh) index.refresh(arsession);
+
+		return index;
+	}
+
+	/**
+	 * Remove Foundation indexes registered for the specified server connection.
+	 *
+	 * @param arsession server connection
+	 */
+	public static void release(ServerConnection arsession)
+	{
+		synchronized(instances)
+		{
+			instances.remove(arsession);
+		}
+	}
+
+	/**
+	 * Resolve the read operation of a Foundation structure using the indexes registered for the server connection.
+	 *
+	 * @param arsession server connection
+	 * @param item Foundation structure
+	 * @return true if the structure has been resolved from memory, false if it has to be read from the server
+	 */
+	public static boolean read(ServerConnection arsession, CoreItem item)
+	{
+		FoundationIndex index = getInstance(arsession);
+
+		if(index != null) return index.resolve(item);
+			else return false;
+	}
+
+	/**
+	 * Update the index entry of a Foundation structure created or updated through the specified server connection,
+	 * so the next reads resolve the current entry data.
+	 *
+	 * @param arsession server connection
+	 * @param item Foundation structure
+	 */
+	public static void write(ServerConnection arsession, CoreItem item)
+	{
+		FoundationIndex index = getInstance(arsession);
+		if(index != null) index.update(arsession, item);
+	}
+
+	private void addFormIndex(CoreItem template, int keys[][])
+	{
+		forms.put(template.getFormName(), new FormIndex(template, keys));
+	}
+
+	/**
+	 * Load (or refresh) all form indexes.
+	 *
+	 * @param arsession server connection
+	 * @throws AREasyException if any error will occur
+	 */
+	public synchronized void refresh(ServerConnection arsession) throws AREasyException
+	{
+		long start = System.currentTimeMillis();
+		Iterator<FormIndex> iterator = forms.values().iterator();
+
+		while(iterator.hasNext())
+		{
+			FormIndex index = iterator.next();
+			int count = index.refresh(arsession, pageSize);
+
+			logger.debug("Foundation index '" + index.template.getFormName() + "' " + (refreshTime == 0 ? "loaded" : "refreshed") + ": " + count + " entries read, " + index.size() + " entries indexed");
+		}
+
+		RuntimeLogger.debug("Foundation indexes " + (refreshTime == 0 ? "loaded" : "refreshed") + " in " + (System.currentTimeMillis() - start) + " ms: " + this);
+		refreshTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Resolve a Foundation structure from memory. The structure is resolved only if its search criteria include one
+	 * of the indexed keys (or the entry id) and the indexed entry matches all the other criteria.
+	 *
+	 * @param item Foundation structure
+	 * @return true if the structure has been filled in with the indexed entry data
+	 */
+	public boolean resolve(CoreItem item)
+	{
+		FormIndex index = item != null ? forms.get(item.getFormName()) : null;
+		if(index == null) return false;
+
+		Map<Integer, String> criteria = getCriteria(item);
+		if(criteria == null || criteria.isEmpty()) return false;
+
+		Map data = index.find(criteria);
+		if(data == null) return false;
+
+		item.setDefaultData(data);
+		return true;
+	}
+
+	/**
+	 * Update the index entry of a written Foundation structure, reading the entry again from the server. If the
+	 * entry can't be read it is removed from the index, so it will be read from the server when it is requested.
+	 *
+	 * @param arsession server connection
+	 * @param item Foundation structure
+	 */
+	public void update(ServerConnection arsession, CoreItem item)
+	{
+		FormIndex index = item != null ? forms.get(item.getFormName()) : null;
+		if(index == null || StringUtility.isEmpty(item.getEntryId())) return;
+
+		try
+		{
+			CoreItem entry = index.template.getInstance();
+			entry.setFormName(index.template.getFormName());
+			entry.readById(arsession, item.getEntryId());
+
+			if(entry.exists()) index.put(entry);
+				else index.remove(item.getEntryId());
+		}
+		catch(Throwable th)
+		{
+			logger.debug("Error updating Foundation index entry for '" + item + "': " + th.getMessage());
+			index.remove(item.getEntryId());
+		}
+	}
+
+	/**
+	 * Get search criteria of a structure, the same way as <code>read</code> method does. If the criteria can not
+	 * be evaluated in memory (null values or qualification operators) the output is null.
+	 *
+	 * @param item data structure
+	 * @return search criteria or null
+	 */
+	protected Map<Integer, String> getCriteria(CoreItem item)
+	{
+		Map<Integer, String> criteria = new HashMap<Integer, String>();
+		Collection attributes = item.ignoreUnchangedValues() ? item.getChangedAttributes() : item.getAttributes();
+
+		for(Iterator iterator = attributes != null ? attributes.iterator() : null; iterator != null && iterator.hasNext(); )
+		{
+			Attribute attr = (Attribute) iterator.next();
+			if(attr == null || (item.ignoreNullValues() && attr.getValue() == null)) continue;
+
+			String value = attr.getStringValue();
+			if(attr.getValue() == null || value == null) return null;
+
+			for(int i = 0; i < operatorStrings.length; i++)
+			{
+				if(value.indexOf(operatorStrings[i]) >= 0) return null;
+			}
+
+			criteria.put(attr.getFieldIdFormat(), value);
+		}
+
+		if(StringUtility.isNotEmpty(item.getEntryId())) criteria.put(1, item.getEntryId());
+
+		return criteria;
+	}
+
+	public String toString()
+	{
+		StringBuffer buffer = new StringBuffer();
+		Iterator<FormIndex> iterator = forms.values().iterator();
+
+		while(iterator.hasNext())
+		{
+			FormIndex index = iterator.next();
+
+			if(buffer.length() > 0) buffer.append(", ");
+			buffer.append(index.template.getFormName()).append(" = ").append(index.size());
+		}
+
+		return "FoundationIndex [" + buffer + "]";
+	}
+
+	/**
+	 * Index of one Foundation form.
+	 */
+	protected static class FormIndex
+	{
+		/** Form structure template */
+		private CoreItem template = null;
+
+		/** Indexed keys definition */
+		private int keys[][] = null;
+
+		/** Field ids in the order of the values arrays */
+		private List<Integer> fields = new ArrayList<Integer>();
+
+		/** Position of each field id in the values arrays */
+		private Map<Integer, Integer> slots = new HashMap<Integer, Integer>();
+
+		/** Entry values by entry id */
+		private Map<String, Object[]> entries = new HashMap<String, Object[]>();
+
+		/** Entry ids by key */
+		private Map<String, String> index = new HashMap<String, String>();
+
+		/** The highest modified date (in seconds) of the indexed entries */
+		private long modified = 0;
+
+		protected FormIndex(CoreItem template, int keys[][])
+		{
+			this.template = template;
+			this.keys = keys;
+		}
+
+		/**
+		 * Get number of indexed entries.
+		 *
+		 * @return number of entries
+		 */
+		public synchronized int size()
+		{
+			return entries.size();
+		}
+
+		/**
+		 * Read the entries modified since the last refresh, page by page in the entry id order. The paging stops only
+		 * when a page comes back empty, because the server could deliver less entries than the page size (GetList limit).
+		 *
+		 * @param arsession server connection
+		 * @param pageSize number of entries read in one call
+		 * @return number of entries read
+		 * @throws AREasyException if any error will occur
+		 */
+		protected int refresh(ServerConnection arsession, int pageSize) throws AREasyException
+		{
+			String lastId = null;
+			long since = modified;
+			int count = 0;
+			List list;
+
+			do
+			{
+				String qualification = since > 0 ? "'6' >= " + since : null;
+				if(lastId != null) qualification = (qualification != null ? qualification + " AND " : "") + "'1' > \"" + lastId + "\"";
+
+				CoreItem search = template.getInstance();
+				search.setFormName(template.getFormName());
+				list = search.search(arsession, qualification, pageSize);
+
+				for(int i = 0; list != null && i < list.size(); i++)
+				{
+					CoreItem item = (CoreItem) list.get(i);
+					put(item);
+
+					lastId = item.getEntryId();
+					count++;
+				}
+			}
+			while(list != null && !list.isEmpty());
+
+			return count;
+		}
+
+		/**
+		 * Add or replace an entry in the index.
+		 *
+		 * @param item entry structure
+		 */
+		protected synchronized void put(CoreItem item)
+		{
+			String entryId = item.getEntryId();
+			if(entryId == null) return;
+
+			//remove the keys of the previous entry version
+			Object previous[] = entries.get(entryId);
+			if(previous != null) unindex(entryId, previous);
+
+			List ids = item.getAttributeIds();
+			Object values[] = new Object[Math.max(fields.size(), ids.size())];
+
+			for(int i = 0; i < ids.size(); i++)
+			{
+				Integer fieldId = Attribute.getFieldIdFormat(String.valueOf(ids.get(i)));
+				Integer slot = slots.get(fieldId);
+
+				if(slot == null)
+				{
+					slot = fields.size();
+					fields.add(fieldId);
+					slots.put(fieldId, slot);
+				}
+
+				if(slot >= values.length) values = Arrays.copyOf(values, fields.size());
+				values[slot] = item.getAttributeValue(fieldId.intValue());
+			}
+
+			entries.put(entryId, values);
+
+			for(int i = 0; i < keys.length; i++)
+			{
+				String key = getKey(i, values);
+				if(key == null) continue;
+
+				String current = index.get(key);
+
+				if(current == null || StringUtility.equals(current, entryId)) index.put(key, entryId);
+					else index.put(key, AMBIGUOUS);
+			}
+
+			Object value = getValue(values, 6);
+			long time = value instanceof Timestamp ? ((Timestamp)value).toDate().getTime() / 1000 : (value instanceof Date ? ((Date)value).getTime() / 1000 : 0);
+			if(time > modified) modified = time;
+		}
+
+		/**
+		 * Remove an entry from the index.
+		 *
+		 * @param entryId entry id
+		 */
+		protected synchronized void remove(String entryId)
+		{
+			Object previous[] = entries.remove(entryId);
+			if(previous != null) unindex(entryId, previous);
+		}
+
+		private void unindex(String entryId, Object values[])
+		{
+			for(int i = 0; i < keys.length; i++)
+			{
+				String key = getKey(i, values);
+				if(key != null && StringUtility.equals(index.get(key), entryId)) index.remove(key);
+			}
+		}
+
+		/**
+		 * Find the entry matching all the specified criteria.
+		 *
+		 * @param criteria search criteria (field id and value)
+		 * @return entry data or null if the criteria can't be resolved from the index
+		 */
+		protected synchronized Map find(Map<Integer, String> criteria)
+		{
+			String entryId = criteria.get(1);
+
+			for(int i = 0; entryId == null && i < keys.length; i++)
+			{
+				boolean covered = true;
+				StringBuffer key = new StringBuffer().append(i);
+
+				for(int x = 0; covered && x < keys[i].length; x++)
+				{
+					String value = criteria.get(keys[i][x]);
+
+					if(value == null) covered = false;
+						else key.append('|').append(value);
+				}
+
+				if(covered)
+				{
+					entryId = index.get(key.toString());
+					if(entryId == null || entryId == AMBIGUOUS) return null;
+				}
+			}
+
+			Object values[] = entryId != null ? entries.get(entryId) : null;
+			if(values == null) return null;
+
+			//check all the other criteria
+			Iterator<Integer> iterator = criteria.keySet().iterator();
+
+			while(iterator.hasNext())
+			{
+				Integer fieldId = iterator.next();
+				if(fieldId == 1) continue;
+
+				Object value = getValue(values, fieldId);
+				if(value == null || !StringUtility.equals(String.valueOf(value), criteria.get(fieldId))) return null;
+			}
+
+			Map data = new HashMap();
+
+			for(int i = 0; i < values.length; i++)
+			{
+				if(values[i] != null) data.put(String.valueOf(fields.get(i)), values[i]);
+			}
+
+			data.put("1", entryId);
+
+			return data;
+		}
+
+		private String getKey(int definition, Object values[])
+		{
+			StringBuffer key = new StringBuffer().append(definition);
+
+			for(int x = 0; x < keys[definition].length; x++)
+			{
+				Object value = getValue(values, keys[definition][x]);
+
+				if(value == null) return null;
+					else key.append('|').append(value);
+			}
+
+			return key.toString();
+		}
+
+		private Object getValue(Object values[], int fieldId)
+		{
+			Integer slot = slots.get(fieldId);
+
+			if(slot != null && slot < values.length) return values[slot];
+				else return null;
+		}
+	}
+}
@@ -14,8 +14,11 @@ package org.areasy.runtime.engine.structures.data.itsm.foundation;
  */
 
 import org.areasy.common.data.StringUtility;
+import org.areasy.runtime.engine.base.AREasyException;
+import org.areasy.runtime.engine.base.ServerConnection;
 import org.areasy.runtime.engine.structures.MultiPartItem;
 
+import java.util.Collection;
 import java.util.Date;
 
 /**
@@ -497,6 +500,55 @@ public class People extends MultiPartItem
         setAttribute(6, new Date());
     }
 
+	/**
+	 * Read data structure, resolving it from Foundation indexes when they are loaded for the server connection.
+	 *
+	 * @param arsession user session
+	 * @throws AREasyException if any error will occur.
+	 */
+	public void read(ServerConnection arsession) throws AREasyException
+	{
+		if(!FoundationIndex.read(arsession, this)) super.read(arsession);
+	}
+
+	/**
+	 * Create an entry record and update the Foundation indexes (if they are loaded for the server connection).
+	 *
+	 * @param arsession user session
+	 * @param collection attribute's collection
+	 * @throws AREasyException if any error will occur
+	 */
+	protected void create(ServerConnection arsession, Collection collection) throws AREasyException
+	{
+		super.create(arsession, collection);
+		FoundationIndex.write(arsession, this);
+	}
+
+	/**
+	 * Update the entry record and the Foundation indexes (if they are loaded for the server connection).
+	 *
+	 * @param arsession user session
+	 * @param collection attribute's collection
+	 * @throws AREasyException if any error will occur
+	 */
+	protected void update(ServerConnection arsession, Collection collection) throws AREasyException
+	{
+		super.update(arsession, collection);
+		FoundationIndex.write(arsession, this);
+	}
+
+	/**
+	 * When Foundation indexes are loaded the structure is written by itself, in order to update the indexes.
+	 *
+	 * @param arsession user session
+	 * @param create true if the entry will be created, false if it will be updated
+	 * @return true if the structure could be written through a bulk transaction
+	 */
+	protected boolean prepareBulk(ServerConnection arsession, boolean create)
+	{
+		return FoundationIndex.getInstance(arsession) == null;
+	}
+
 	public String toString()
 	{
 		return "People [First Name = " + getFirstName() + ", Last Name = " + getLastName() +
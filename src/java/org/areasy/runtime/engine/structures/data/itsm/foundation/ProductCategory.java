@@ -318,6 +318,18 @@ public class ProductCategory extends MultiPartItem
 		}
 	}
 
+	/**
+	 * Product category structure has to be written by itself, in order to process its parts and company relationship.
+	 *
+	 * @param arsession user session
+	 * @param create true if the entry will be created, false if it will be updated
+	 * @return false because the structure can't be written through a bulk transaction
+	 */
+	protected boolean prepareBulk(ServerConnection arsession, boolean create)
+	{
+		return false;
+	}
+
 	public void update(ServerConnection arsession) throws AREasyException
 	{
 		String company = getCompanyName();
@@ -26,8 +26,12 @@ import org.areasy.runtime.engine.base.ServerConnection;
 import org.areasy.runtime.engine.structures.data.itsm.foundation.ProductCategory;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Workflow processor: reader and modifier for data and workflows from an AR server, speaking about
@@ -47,76 +51,112 @@ public abstract class ProcessorLevel1Context extends ProcessorLevel0Reader
 
 	public static String DEFAULTDATASET 		= "BMC.ASSET";
 
+	/** Time to live (in seconds) of class metadata cache */
+	public static int METADATATTL 				= 3600;
+
+	/** Class metadata caches, for each server connection */
+	private static Map<ServerConnection, ClassMetadata> metadataCache = new WeakHashMap<ServerConnection, ClassMetadata>();
+
 	static
 	{
 		DEFAULTDATASET			= System.getProperty("DEFAULTDATASET", DEFAULTDATASET);
 		FORM_BASEELEMENT 		= System.getProperty("BASEELEMENT", FORM_BASEELEMENT);
 		FORM_BASERELATIONSHIP 	= System.getProperty("BASERELATIONSHIP", FORM_BASERELATIONSHIP);
+		METADATATTL				= NumberUtility.toInt(System.getProperty("METADATATTL"), METADATATTL);
 	}
 
+	/**
+	 * Get the form name of a class from Asset Management dictionary (<code>SHR:SchemaNames</code> form) or from CMDB
+	 * dictionary if the class is not registered in Asset Management. The dictionaries are read from the class metadata
+	 * cache of the server connection.
+	 *
+	 * @param arsession server connection
+	 * @param formKeyword form keyword or class id
+	 * @return form name or null if the class is not found
+	 * @throws AREasyException if any error will occur
+	 */
 	public static String getSharedFormName(ServerConnection arsession, String formKeyword) throws AREasyException
 	{
 		String schemaname = null;
-		
+
 		if(formKeyword != null)
 		{
-			ArithmeticOrRelationalOperand opLeft = new ArithmeticOrRelationalOperand( 230000009 );
-			ArithmeticOrRelationalOperand opRight = new ArithmeticOrRelationalOperand(new Value( formKeyword ));
-			QualifierInfo qualInfo = new QualifierInfo( new RelationalOperationInfo(Constants.AR_REL_OP_EQUAL, opLeft, opRight) );
+			ClassMetadata metadata = getClassMetadata(arsession);
 
-			boolean searchResult = false;
-			int[] fieldIds = {1, 230000000};
-
-			try
-			{
-				//Retrieve all entries
-				List<Entry> entries = arsession.getContext().getListEntryObjects(FORM_SHRSCHEMANAMES, qualInfo, 0, 0, null, fieldIds, true, null);
-				if(entries != null && entries.size() > 0)
-				{
-					schemaname = entries.get(0).get(230000000).toString();
-					searchResult = true;
-				}
-			}
-			catch(ARException are)
-			{
-				searchResult = true;
-				logger.debug("Error reading form definition for Asset Management dictionary: " + are.getMessage());
-
-				schemaname = getCmdbFormName(arsession, formKeyword);
-			}
+			schemaname = metadata.getSharedFormName(formKeyword);
 
 			//int case of the form wasn't found and form keyword is a classId value search also in CMDB dictionary
-			if(!searchResult) schemaname = getCmdbFormName(arsession, formKeyword);
+			if(schemaname == null) schemaname = metadata.getCmdbFormName(formKeyword);
 		}
 
 		return schemaname;
 	}
 
+	/**
+	 * Get the form name of a class from CMDB dictionary (<code>OBJSTR:Class</code> form), using the class metadata
+	 * cache of the server connection.
+	 *
+	 * @param arsession server connection
+	 * @param classId class id
+	 * @return form name or null if the class is not found
+	 * @throws AREasyException if any error will occur
+	 */
 	public static String getCmdbFormName(ServerConnection arsession, String classId) throws AREasyException
 	{
-		String schemaname = null;
+		if(classId != null) return getClassMetadata(arsession).getCmdbFormName(classId);
+			else return null;
+	}
 
-		if(classId != null)
+	/**
+	 * Get class metadata cache of the specified server connection. The cache is loaded once for each server
+	 * connection and it is reloaded when it is older than <code>METADATATTL</code> seconds.
+	 *
+	 * @param arsession server connection
+	 * @return <code>ClassMetadata</code> structure
+	 * @throws AREasyException if any error will occur
+	 */
+	public static ClassMetadata getClassMetadata(ServerConnection arsession) throws AREasyException
+	{
+		synchronized(metadataCache)
 		{
-			ArithmeticOrRelationalOperand opLeft = new ArithmeticOrRelationalOperand(179);
-			ArithmeticOrRelationalOperand opRight = new ArithmeticOrRelationalOperand(new Value( classId ));
-			QualifierInfo qualInfo = new QualifierInfo( new RelationalOperationInfo(Constants.AR_REL_OP_EQUAL, opLeft, opRight) );
-
-			int[] fieldIds = {1, 400130800};
+			ClassMetadata metadata = metadataCache.get(arsession);
 
-			try
-			{
-				//Retrieve all entries
-				List<Entry> entries = arsession.getContext().getListEntryObjects(FORM_OBJSTRCLASS, qualInfo, 0, 0, null, fieldIds, true, null);
-				if(entries != null && entries.size() > 0) schemaname = entries.get(0).get(400130800).toString();
-			}
-			catch(ARException are)
+			if(metadata == null || metadata.isExpired())
 			{
-				throw new AREasyException(are);
+				metadata = new ClassMetadata();
+				metadata.load(arsession);
+
+				metadataCache.put(arsession, metadata);
 			}
+
+			return metadata;
 		}
+	}
 
-		return schemaname;
+	/**
+	 * Remove class metadata cache of the specified server connection.
+	 *
+	 * @param arsession server connection
+	 */
+	public static void resetClassMetadata(ServerConnection arsession)
+	{
+		synchronized(metadataCache)
+		{
+			metadataCache.remove(arsession);
+		}
+	}
+
+	/**
+	 * Get data field ids of a (class) form, using the class metadata cache of the server connection.
+	 *
+	 * @param arsession server connection
+	 * @param formName form name
+	 * @return data field ids
+	 * @throws AREasyException if any error will occur
+	 */
+	public static int[] getFormFieldIds(ServerConnection arsession, String formName) throws AREasyException
+	{
+		return getClassMetadata(arsession).getFormFieldIds(arsession, formName);
 	}
 
 	public static ProductCategory getProductCategoryFromMapping(Map map)
@@ -384,4 +424,232 @@ public abstract class ProcessorLevel1Context extends ProcessorLevel0Reader
 			throw new AREasyException(th);
 		}
 	}
+
+	/**
+	 * Class metadata cache: form names of Asset Management and CMDB classes, relationship classes and data fields
+	 * of class forms. Class dictionaries are read in bulk, with one call for each dictionary form. The names are
+	 * case-insensitive (like the server searches), so they are cached as lower case keys.
+	 */
+	public static class ClassMetadata
+	{
+		/** Form names by form keyword, from Asset Management dictionary */
+		private Map<String, String> sharedForms = new HashMap<String, String>();
+
+		/** Class form names by form keyword, from Asset Management dictionary */
+		private Map<String, String> sharedClassForms = new HashMap<String, String>();
+
+		/** Form names by class id, from CMDB dictionary */
+		private Map<String, String> cmdbForms = new HashMap<String, String>();
+
+		/** Relationship classes details (class id, form name and class name) by class name */
+		private Map<String, String[]> relationClasses = new HashMap<String, String[]>();
+
+		/** Data field ids by form name */
+		private Map<String, int[]> formFields = new Hashtable<String, int[]>();
+
+		/** Load time */
+		private long time = 0;
+
+		/**
+		 * Load class dictionaries.
+		 *
+		 * @param arsession server connection
+		 * @throws AREasyException if any error will occur
+		 */
+		protected void load(ServerConnection arsession) throws AREasyException
+		{
+			try
+			{
+				int[] fieldIds = {1, 230000009, 230000000, 301170700, 260000000, 490001100};
+				List<Entry> entries = getAllEntries(arsession, FORM_SHRSCHEMANAMES, fieldIds);
+
+				for(int i = 0; entries != null && i < entries.size(); i++)
+				{
+					Entry entry = entries.get(i);
+
+					String keyword = getValue(entry, 230000009);
+					String details[] = { keyword, getValue(entry, 301170700), getValue(entry, 260000000) };
+
+					if(keyword != null && getValue(entry, 230000000) != null && !sharedForms.containsKey(getKey(keyword))) sharedForms.put(getKey(keyword), getValue(entry, 230000000));
+					if(keyword != null && details[1] != null && !sharedClassForms.containsKey(getKey(keyword))) sharedClassForms.put(getKey(keyword), details[1]);
+
+					if(details[2] != null && !relationClasses.containsKey(getKey(details[2]))) relationClasses.put(getKey(details[2]), details);
+					if(getValue(entry, 490001100) != null && !relationClasses.containsKey(getKey(getValue(entry, 490001100)))) relationClasses.put(getKey(getValue(entry, 490001100)), details);
+				}
+			}
+			catch(ARException are)
+			{
+				logger.debug("Error reading Asset Management dictionary: " + are.getMessage());
+			}
+
+			try
+			{
+				int[] fieldIds = {1, 179, 400130800, 490001100, 490021100};
+				List<Entry> entries = getAllEntries(arsession, FORM_OBJSTRCLASS, fieldIds);
+
+				for(int i = 0; entries != null && i < entries.size(); i++)
+				{
+					Entry entry = entries.get(i);
+
+					String classId = getValue(entry, 179);
+					String details[] = { classId, getValue(entry, 400130800), getValue(entry, 490021100) };
+
+					if(details[2] == null) details[2] = classId;
+
+					if(classId != null && details[1] != null && !cmdbForms.containsKey(getKey(classId))) cmdbForms.put(getKey(classId), details[1]);
+					if(getValue(entry, 490001100) != null && !relationClasses.containsKey(getKey(getValue(entry, 490001100)))) relationClasses.put(getKey(getValue(entry, 490001100)), details);
+				}
+			}
+			catch(ARException are)
+			{
+				throw new AREasyException(are);
+			}
+
+			time = System.currentTimeMillis();
+			logger.debug("Class metadata loaded: " + sharedForms.size() + " Asset Management classes, " + cmdbForms.size() + " CMDB classes, " + relationClasses.size() + " class names");
+		}
+
+		/**
+		 * Check if the metadata is older than <code>METADATATTL</code> seconds.
+		 *
+		 * @return true if the metadata has to be loaded again
+		 */
+		public boolean isExpired()
+		{
+			return METADATATTL > 0 && System.currentTimeMillis() - time > 1000L * METADATATTL;
+		}
+
+		/**
+		 * Get form name from Asset Management dictionary.
+		 *
+		 * @param formKeyword form keyword or class id
+		 * @return form name or null
+		 */
+		public String getSharedFormName(String formKeyword)
+		{
+			return sharedForms.get(getKey(formKeyword));
+		}
+
+		/**
+		 * Get form name from CMDB dictionary.
+		 *
+		 * @param classId class id
+		 * @return form name or null
+		 */
+		public String getCmdbFormName(String classId)
+		{
+			return cmdbForms.get(getKey(classId));
+		}
+
+		/**
+		 * Get the class form of a relationship keyword, from Asset Management dictionary or from CMDB dictionary.
+		 *
+		 * @param keyword relationship keyword (class id)
+		 * @return form name or null
+		 */
+		public String getRelationshipFormName(String keyword)
+		{
+			String formName = sharedClassForms.get(getKey(keyword));
+
+			if(formName == null) formName = cmdbForms.get(getKey(keyword));
+
+			return formName;
+		}
+
+		/**
+		 * Get relationship class details: class id, class form name and class name.
+		 *
+		 * @param relationClass class name or class id
+		 * @return class details or null if the class is not found
+		 */
+		public String[] getRelationshipClass(String relationClass)
+		{
+			return relationClasses.get(getKey(relationClass));
+		}
+
+		/**
+		 * Get data field ids of a form (except field 15).
+		 *
+		 * @param arsession server connection
+		 * @param formName form name
+		 * @return data field ids
+		 * @throws AREasyException if any error will occur
+		 */
+		public int[] getFormFieldIds(ServerConnection arsession, String formName) throws AREasyException
+		{
+			int[] ids = formFields.get(getKey(formName));
+
+			if(ids == null)
+			{
+				try
+				{
+					List<Integer> fields = arsession.getContext().getListField(formName, Constants.AR_FIELD_TYPE_DATA, 0);
+					List<Integer> list = new ArrayList<Integer>();
+
+					for(int i = 0; i < fields.size(); i++)
+					{
+						if(fields.get(i) != 15) list.add(fields.get(i));
+					}
+
+					ids = new int[list.size()];
+					for(int i = 0; i < list.size(); i++) ids[i] = list.get(i);
+
+					formFields.put(getKey(formName), ids);
+				}
+				catch(ARException are)
+				{
+					throw new AREasyException(are);
+				}
+			}
+
+			return ids;
+		}
+
+		/**
+		 * Get the cache key of a name (form keyword, class id, class name or form name).
+		 *
+		 * @param name metadata name
+		 * @return lower case name
+		 */
+		private static String getKey(String name)
+		{
+			return name != null ? name.toLowerCase() : null;
+		}
+
+		/**
+		 * Read all the entries of a form, page by page in the entry id order, until the server delivers an empty page
+		 * (the server could limit the number of entries returned by one call).
+		 *
+		 * @param arsession server connection
+		 * @param formName form name
+		 * @param fieldIds field ids to be read
+		 * @return list of entries
+		 * @throws ARException if any error will occur
+		 */
+		private static List<Entry> getAllEntries(ServerConnection arsession, String formName, int fieldIds[]) throws ARException
+		{
+			List<Entry> entries = new ArrayList<Entry>();
+			List<SortInfo> sortOrder = new ArrayList<SortInfo>();
+			sortOrder.add(new SortInfo(1, Constants.AR_SORT_ASCENDING));
+
+			List<Entry> page;
+
+			do
+			{
+				page = arsession.getContext().getListEntryObjects(formName, new QualifierInfo(), entries.size(), 0, sortOrder, fieldIds, true, null);
+				if(page != null) entries.addAll(page);
+			}
+			while(page != null && !page.isEmpty());
+
+			return entries;
+		}
+
+		private static String getValue(Entry entry, int fieldId)
+		{
+			Value value = entry.get(fieldId);
+
+			if(value != null && value.getValue() != null) return value.getValue().toString();
+				else return null;
+		}
+	}
 }
@@ -27,8 +27,9 @@ import org.areasy.runtime.engine.structures.data.itsm.foundation.Organisation;
 import org.areasy.runtime.engine.structures.data.itsm.foundation.People;
 import org.areasy.runtime.engine.structures.data.itsm.foundation.SupportGroup;
 
-import java.util.List;
-import java.util.Map;
+import java.net.NetworkInterface;
+import java.security.SecureRandom;
+import java.util.*;
 
 /**
  * Workflow processors: direct methods to perform different actions in CMDB application.
@@ -37,6 +38,20 @@ public class ProcessorLevel2CmdbApp extends ProcessorLevel1Context
 {
 	private static Logger logger = LoggerFactory.getLog(ProcessorLevel2CmdbApp.class);
 
+	/** Characters used to encode locally generated GUIDs */
+	private static final String GUID_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+	/** GUID blocks reserved on the server, for each server connection and prefix */
+	private static Map<ServerConnection, Map<String, Object[]>> guidBlocks = new WeakHashMap<ServerConnection, Map<String, Object[]>>();
+
+	/** Lock of the local GUIDs sequence */
+	private static final Object guidLock = new Object();
+
+	private static SecureRandom guidRandom = new SecureRandom();
+	private static String guidNode = null;
+	private static long guidTime = 0;
+	private static int guidSequence = 0;
+
 	/**
 	 * Generate an application GUID
  	 * @param arsession ARS server connection structure
@@ -49,13 +64,120 @@ public class ProcessorLevel2CmdbApp extends ProcessorLevel1Context
 	}
 
 	/**
-	 * Generate an applicatuin GUID
+	 * Generate an applicatuin GUID. The generation mode is given by the server connection: <code>server</code> (the GUID
+	 * is generated by the server), <code>block</code> (the GUID is derived from a GUID reserved on the server for a
+	 * block of ids) or <code>local</code> (the GUID is generated locally).
+	 *
  	 * @param arsession ARS server connection structure
 	 * @param prefix guid prefix (it is necessary, otherwise could be null)
 	 * @return a GUID string value
 	 * @throws AREasyException @throws AREasyException if any error will occur
 	 */
 	public static String getStringInstanceId(ServerConnection arsession, String prefix) throws AREasyException
+	{
+		if(StringUtility.equalsIgnoreCase(arsession.getGuidMode(), "local")) return getLocalInstanceId(prefix);
+			else if(StringUtility.equalsIgnoreCase(arsession.getGuidMode(), "block")) return getBlockInstanceId(arsession, prefix);
+				else return getServerInstanceId(arsession, prefix);
+	}
+
+	/**
+	 * Generate an application GUID locally, without any server call. The GUID has the same structure like the ones
+	 * generated by the server (prefix, node address and time-based sequence) but it has a different length, so it
+	 * never overlaps the GUIDs generated by the server.
+	 *
+	 * @param prefix guid prefix (it is necessary, otherwise could be null)
+	 * @return a GUID string value
+	 */
+	public static String getLocalInstanceId(String prefix)
+	{
+		long time;
+		int sequence;
+
+		synchronized(guidLock)
+		{
+			time = System.currentTimeMillis();
+
+			if(time == guidTime) guidSequence++;
+			else
+			{
+				guidTime = time;
+				guidSequence = 0;
+			}
+
+			//sequence overflow: wait for the next millisecond
+			if(guidSequence >= 62 * 62 * 62)
+			{
+				while(time <= guidTime) time = System.currentTimeMillis();
+
+				guidTime = time;
+				guidSequence = 0;
+			}
+
+			sequence = guidSequence;
+		}
+
+		StringBuffer buffer = new StringBuffer();
+
+		if(prefix != null) buffer.append(prefix);
+		buffer.append(getGuidNode());
+		appendGuidChars(buffer, time, 8);
+		appendGuidChars(buffer, sequence, 3);
+		appendGuidChars(buffer, guidRandom.nextInt(62 * 62 * 62 * 62), 4);
+
+		return buffer.toString();
+	}
+
+	/**
+	 * Generate an application GUID from a block of ids. A GUID is reserved on the server for each block and the ids
+	 * of the block are composed by the reserved GUID and a sequence suffix, so only one server call is done for a
+	 * block of ids (the block size is given by the server connection).
+	 *
+	 * @param arsession ARS server connection structure
+	 * @param prefix guid prefix (it is necessary, otherwise could be null)
+	 * @return a GUID string value
+	 * @throws AREasyException @throws AREasyException if any error will occur
+	 */
+	public static String getBlockInstanceId(ServerConnection arsession, String prefix) throws AREasyException
+	{
+		int size = Math.min(arsession.getGuidBlockSize(), 62 * 62 * 62);
+
+		synchronized(guidBlocks)
+		{
+			Map<String, Object[]> blocks = guidBlocks.get(arsession);
+
+			if(blocks == null)
+			{
+				blocks = new HashMap<String, Object[]>();
+				guidBlocks.put(arsession, blocks);
+			}
+
+			Object block[] = blocks.get(String.valueOf(prefix));
+
+			if(block == null || (Integer)block[1] >= size)
+			{
+				block = new Object[] {getServerInstanceId(arsession, prefix), 0};
+				blocks.put(String.valueOf(prefix), block);
+			}
+
+			int sequence = (Integer)block[1];
+			block[1] = sequence + 1;
+
+			StringBuffer buffer = new StringBuffer((String)block[0]);
+			appendGuidChars(buffer, sequence, 3);
+
+			return buffer.toString();
+		}
+	}
+
+	/**
+	 * Generate an application GUID on the server
+	 *
+ 	 * @param arsession ARS server connection structure
+	 * @param prefix guid prefix (it is necessary, otherwise could be null)
+	 * @return a GUID string value
+	 * @throws AREasyException @throws AREasyException if any error will occur
+	 */
+	public static String getServerInstanceId(ServerConnection arsession, String prefix) throws AREasyException
 	{
 		boolean impersonated = false;
 		String output = null;
@@ -82,6 +204,55 @@ public class ProcessorLevel2CmdbApp extends ProcessorLevel1Context
 		return output;
 	}
 
+	private static String getGuidNode()
+	{
+		if(guidNode == null)
+		{
+			byte address[] = null;
+
+			try
+			{
+				Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+
+				while(address == null && interfaces != null && interfaces.hasMoreElements())
+				{
+					NetworkInterface network = interfaces.nextElement();
+					if(!network.isLoopback()) address = network.getHardwareAddress();
+				}
+			}
+			catch(Exception e)
+			{
+				logger.debug("Network address couldn't be read: " + e.getMessage());
+			}
+
+			if(address == null || address.length < 6)
+			{
+				address = new byte[6];
+				guidRandom.nextBytes(address);
+			}
+
+			StringBuffer buffer = new StringBuffer();
+			for(int i = 0; i < 6; i++) buffer.append(String.format("%02X", address[i] & 0xFF));
+
+			guidNode = buffer.toString();
+		}
+
+		return guidNode;
+	}
+
+	private static void appendGuidChars(StringBuffer buffer, long value, int length)
+	{
+		char chars[] = new char[length];
+
+		for(int i = length - 1; i >= 0; i--)
+		{
+			chars[i] = GUID_CHARS.charAt((int)(value % 62));
+			value /= 62;
+		}
+
+		buffer.append(chars);
+	}
+
 	/**
 	 * Create a relationship between two CIs.
 	 *
@@ -117,38 +288,14 @@ public class ProcessorLevel2CmdbApp extends ProcessorLevel1Context
 		String relationClassForm = null;
 		String relationClassId = null;
 
-		CoreItem cmdbclass = null;
+		//read class details from class metadata cache
+		String relationClassDetails[] = getClassMetadata(arsession).getRelationshipClass(relationClass);
 
-		try
+		if(relationClassDetails != null)
 		{
-			cmdbclass = new CoreItem(FORM_SHRSCHEMANAMES);
-			cmdbclass.read(arsession, "'260000000' = \"" + relationClass + "\" OR '490001100' = \"" + relationClass + "\"");
-
-			if(cmdbclass.exists())
-			{
-				relationClassId = cmdbclass.getStringAttributeValue(230000009);
-				relationClassForm = cmdbclass.getStringAttributeValue(301170700);
-				relationClassName = cmdbclass.getStringAttributeValue(260000000);
-			}
-		}
-		catch(Throwable th)
-		{
-			logger.debug("Error reading class definition from Asset Management dictionary: " + th.getMessage());
-		}
-
-		if(cmdbclass != null && !cmdbclass.exists())
-		{
-			cmdbclass = new CoreItem(FORM_OBJSTRCLASS);
-			cmdbclass.read(arsession, "'490001100' = \"" + relationClass + "\"");
-
-			if(cmdbclass.exists())
-			{
-				relationClassId = cmdbclass.getStringAttributeValue(179);
-				relationClassForm = cmdbclass.getStringAttributeValue(400130800);
-				relationClassName = cmdbclass.getStringAttributeValue(490021100);
-
-				if(StringUtility.isEmpty(relationClassName)) relationClassName = relationClassId;
-			}
+			relationClassId = relationClassDetails[0];
+			relationClassForm = relationClassDetails[1];
+			relationClassName = relationClassDetails[2];
 		}
 
 		if(relationClassId == null) throw new AREasyException("Invalid relationship class: " + relationClass);